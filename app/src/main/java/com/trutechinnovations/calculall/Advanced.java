@@ -146,10 +146,11 @@ public class Advanced extends Basic {
      * When the user presses the equals Button.
      */
     public void clickEquals() {
+        PreviewService.getInstance().cancel(); //The result is shown here instead
         try {
             //Does a quick check to see if the result would be infinite
-            Number num = new Number(Utility.process(Utility.subVariables(Utility.multiplyConstants(tokens))));
-            if (Double.isInfinite(num.getValue())) {
+            Number num = PreciseEvaluator.getInstance().process(Utility.subVariables(Utility.multiplyConstants(tokens)));
+            if (Double.isInfinite(num.getValue()) && !(num instanceof PreciseNumber)) { //Precise results may be larger than doubles
                 throw new NumberTooLargeException();
             } else if (num.getValue() == 9001) {
                 Toast.makeText(activity, "IT'S OVER 9000!!", Toast.LENGTH_LONG).show();
@@ -185,7 +186,13 @@ public class Advanced extends Basic {
         activity.scrollDown();
     }
 
-    private ArrayList<Token> equals() {
+    /**
+     * Finds the result of the given expression for autocalculate (on the preview thread).
+     *
+     * @param tokens The expression
+     * @return The result of the expression
+     */
+    private ArrayList<Token> autocalculate(ArrayList<Token> tokens) {
         Number num = new Number(Utility.process(Utility.subVariables(Utility.multiplyConstants(tokens))));
         if (fracMode == DEC) {
             ArrayList<Token> list = new ArrayList<Token>();
@@ -202,11 +209,12 @@ public class Advanced extends Basic {
     public void updateOutput() {
         ViewPager mPager = (ViewPager) activity.findViewById(R.id.pager);
         if (mPager.getCurrentItem() == MainActivity.ADVANCED && activity.isAutocalculateOn()) { // checks if the current mode is Advanced
-            try {
-                display.displayOutput(equals());
-            } catch (Exception e) {
-                display.displayOutput(new ArrayList<Token>()); //Clears output
-            }
+            PreviewService.getInstance().request(new Command<ArrayList<Token>, ArrayList<Token>>() {
+                @Override
+                public ArrayList<Token> execute(ArrayList<Token> tokens) {
+                    return autocalculate(tokens);
+                }
+            }, tokens, showPreview);
         }
         display.displayInput(tokens);
     }
@@ -4,7 +4,6 @@
 
 package com.trutechinnovations.calculall;
 
-import android.content.Context;
 import android.content.Intent;
 import android.graphics.drawable.BitmapDrawable;
 import android.support.v4.app.Fragment;
@@ -21,12 +20,8 @@ import android.widget.ListView;
 import android.widget.PopupWindow;
 import android.widget.Toast;
 
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Random;
@@ -53,6 +48,14 @@ public class Basic implements View.OnClickListener {
     protected String filename = "history_basic";
     protected Fragment fragment;
     private String reference = "";
+    private IncrementalEvaluator autocalculator = new IncrementalEvaluator(); //Keeps its progress between keystrokes; only used by the preview thread
+    protected final Command<Void, ArrayList<Token>> showPreview = new Command<Void, ArrayList<Token>>() {
+        @Override
+        public Void execute(ArrayList<Token> preview) {
+            display.displayOutput(preview);
+            return null;
+        }
+    };
 
     /**
      * Makes sure that an instance of Basic cannot be created from outside the class.
@@ -375,10 +378,11 @@ public class Basic implements View.OnClickListener {
      * When the user presses the equals Button.
      */
     public void clickEquals() {
+        PreviewService.getInstance().cancel(); //The result is shown here instead
         try {
-            Number num = new Number(Utility.process(tokens));
+            Number num = PreciseEvaluator.getInstance().process(tokens);
             ArrayList<Token> output = new ArrayList<>();
-            if (Double.isInfinite(num.getValue())) {
+            if (Double.isInfinite(num.getValue()) && !(num instanceof PreciseNumber)) { //Precise results may be larger than doubles
                 throw new NumberTooLargeException();
             } else if (num.getValue() == 9001) {
                 Toast.makeText(activity, "IT'S OVER 9000!!", Toast.LENGTH_LONG).show();
@@ -414,6 +418,20 @@ public class Basic implements View.OnClickListener {
         return list;
     }
 
+    /**
+     * Finds the same result as equals(), but only processes the part of the expression that has
+     * changed since the last time; used for autocalculate (on the preview thread).
+     *
+     * @param tokens The expression
+     * @return The result of the expression
+     */
+    private ArrayList<Token> autocalculate(ArrayList<Token> tokens) {
+        Number num = new Number(autocalculator.evaluate(tokens));
+        ArrayList<Token> list = new ArrayList<Token>();
+        list.add(num);
+        return list;
+    }
+
     /**
      * Called when an exception occurs anywhere during processing.
      *
@@ -446,29 +464,7 @@ public class Basic implements View.OnClickListener {
      * @param output The result of the calculation
      */
     public void saveEquation(ArrayList<Token> input, ArrayList<Token> output, String filepath) throws IOException, ClassNotFoundException {
-        ArrayList<Object[]> history = new ArrayList<Object[]>();
-        try {
-            FileInputStream inStream = activity.openFileInput(filepath);
-            ObjectInputStream objectStreamIn = new ObjectInputStream(inStream);
-            history = (ArrayList<Object[]>) objectStreamIn.readObject();
-        } catch (Exception e) {
-        }
-
-        FileOutputStream outStream = activity.openFileOutput(filepath, Context.MODE_PRIVATE);
-        Object[] toWrite = new Object[2];
-        toWrite[0] = input;
-        toWrite[1] = output;
-        history.add(toWrite);
-
-        while (history.size() > HISTORY_SIZE) {
-            history.remove(0);
-        }
-
-        ObjectOutputStream objectStreamOut = new ObjectOutputStream(outStream);
-        objectStreamOut.writeObject(history);
-        objectStreamOut.flush();
-        objectStreamOut.close();
-        outStream.close();
+        HistoryLog.getInstance().append(activity, filepath, input, output);
     }
 
     /**
@@ -489,12 +485,14 @@ public class Basic implements View.OnClickListener {
         updatePlaceHolders();
         ViewPager mPager = (ViewPager) activity.findViewById(R.id.pager);
         if (mPager.getCurrentItem() == MainActivity.BASIC && activity.isAutocalculateOn()) { // checks if the current mode is Basic
-            try {
-                display.displayOutput(equals()); // Autocalculates if possible
-            } catch (Exception e) {
-                display.displayOutput(new ArrayList<Token>());
-            }
+            PreviewService.getInstance().request(new Command<ArrayList<Token>, ArrayList<Token>>() {
+                @Override
+                public ArrayList<Token> execute(ArrayList<Token> tokens) {
+                    return autocalculate(tokens); // Autocalculates if possible
+                }
+            }, tokens, showPreview);
         } else {
+            PreviewService.getInstance().cancel();
             display.displayOutput(new ArrayList<Token>()); //Clears output
         }
         display.displayInput(tokens);
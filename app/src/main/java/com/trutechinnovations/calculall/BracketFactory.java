@@ -8,6 +8,27 @@ package com.trutechinnovations.calculall;
  */
 public class BracketFactory {
 
+    private static final Bracket[] SHARED = new Bracket[Bracket.FRACTION_CLOSE + 1];
+
+    static {
+        for (Bracket b : new Bracket[]{makeOpenBracket(), makeCloseBracket(), makeOpenSquareBracket(), makeCloseSquareBracket(),
+                makeMagnitudeOpen(), makeMagnitudeClose(), makeSuperscriptOpen(), makeSuperscriptClose(), makeNumOpen(),
+                makeNumClose(), makeDenomOpen(), makeDenomClose(), makeFracOpen(), makeFracClose()}) {
+            SHARED[b.getType()] = Token.share(b);
+        }
+    }
+
+    /**
+     * Gets the shared Bracket of the given type, which can be used in place of a new one in
+     * expressions that are never edited (ex. results).
+     *
+     * @param type The type of Bracket (see the Bracket class constants)
+     * @return The shared Bracket
+     */
+    public static Bracket getShared(int type) {
+        return SHARED[type];
+    }
+
     public static Bracket makeOpenBracket() {
         return new Bracket("(", Bracket.OPEN);
     }
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2016 TruTech Innovations Inc - All Rights Reserved
+ */
+
+package com.trutechinnovations.calculall;
+
+import org.apache.commons.math3.special.Gamma;
+
+import java.math.BigInteger;
+
+/**
+ * Finds factorials, permutations and combinations without recursion. Factorials up to 170! (the
+ * largest that fits in a double) are looked up from a table, and permutations and combinations are
+ * multiplied out one factor at a time, cancelling as they go, so that nCr does not overflow just
+ * because n! does. Results that are too large for a double are returned as infinity; their
+ * approximate size can still be found with the log methods, which use the log-gamma function.
+ *
+ * @author Alston Lin
+ * @version 3.0
+ */
+public class Combinatorics {
+
+    public static final int MAX_FACTORIAL = 170; //171! is too large for a double
+    private static final double[] FACTORIALS = new double[MAX_FACTORIAL + 1];
+    private static final double MAX_LOG = Math.log(Double.MAX_VALUE);
+    private static final double MAX_EXACT = 9007199254740992d; //2^53; every integer up to this is exact as a double
+
+    static {
+        //Multiplies exactly and only rounds once, so every entry is the closest double
+        BigInteger factorial = BigInteger.ONE;
+        FACTORIALS[0] = 1;
+        for (int i = 1; i <= MAX_FACTORIAL; i++) {
+            factorial = factorial.multiply(BigInteger.valueOf(i));
+            FACTORIALS[i] = factorial.doubleValue();
+        }
+    }
+
+    /**
+     * Finds n!, using the gamma function (n! = Γ(n + 1)) if n is not an integer.
+     *
+     * @param n The base of the factorial
+     * @return n!, or infinity if it is too large for a double
+     * @throws IllegalArgumentException If n is a negative integer
+     */
+    public static double factorial(double n) {
+        if (n % 1 == 0) {
+            if (n < 0) {
+                throw new IllegalArgumentException("Factorials of negative integers are undefined");
+            }
+            return n <= MAX_FACTORIAL ? FACTORIALS[(int) n] : Double.POSITIVE_INFINITY;
+        } else {
+            return Gamma.gamma(n + 1);
+        }
+    }
+
+    /**
+     * Finds the number of ways r items can be picked from n items in order, n! / (n - r)!.
+     *
+     * @param n The number of items
+     * @param r The number of items picked
+     * @return nPr, or infinity if it is too large for a double
+     * @throws IllegalArgumentException If n and r are not integers where 0 ≤ r ≤ n
+     */
+    public static double permutation(double n, double r) {
+        checkArguments(n, r);
+        if (logPermutation(n, r) > MAX_LOG) {
+            return Double.POSITIVE_INFINITY;
+        }
+        //As nPr ≥ r!, this loops at most 170 times
+        long exact = 1;
+        double result = 1;
+        for (int i = 1; i <= r; i++) {
+            double factor = n - r + i;
+            if (exact != 0) {
+                if (factor <= MAX_EXACT && exact <= Long.MAX_VALUE / (long) factor) {
+                    exact *= (long) factor;
+                    continue;
+                }
+                result = exact; //Too large for a long; continues with doubles
+                exact = 0;
+            }
+            result *= factor;
+        }
+        return exact != 0 ? exact : result;
+    }
+
+    /**
+     * Finds the number of ways r items can be picked from n items in any order,
+     * n! / (r! × (n - r)!).
+     *
+     * @param n The number of items
+     * @param r The number of items picked
+     * @return nCr, or infinity if it is too large for a double
+     * @throws IllegalArgumentException If n and r are not integers where 0 ≤ r ≤ n
+     */
+    public static double combination(double n, double r) {
+        checkArguments(n, r);
+        double k = Math.min(r, n - r); //nCr = nC(n - r)
+        if (logCombination(n, k) > MAX_LOG) {
+            return Double.POSITIVE_INFINITY;
+        }
+        //Each step gives (n - k + i)Ci, which is always an integer; as nCk ≥ 2^k, this loops at most 1024 times
+        long exact = 1;
+        double result = 1;
+        for (int i = 1; i <= k; i++) {
+            double factor = n - k + i;
+            if (exact != 0) {
+                if (factor <= MAX_EXACT && exact <= Long.MAX_VALUE / (long) factor) {
+                    exact = exact * (long) factor / i;
+                    continue;
+                }
+                result = exact; //Too large for a long; continues with doubles
+                exact = 0;
+            }
+            result = result / i * factor;
+        }
+        return exact != 0 ? exact : Math.rint(result);
+    }
+
+    /**
+     * Finds ln(n!) without finding n! itself, so that the size of factorials too large for a double
+     * can still be found.
+     *
+     * @param n The base of the factorial, which is greater than -1
+     * @return ln(n!)
+     */
+    public static double logFactorial(double n) {
+        if (n % 1 == 0 && n >= 0 && n <= MAX_FACTORIAL) {
+            return Math.log(FACTORIALS[(int) n]);
+        }
+        return Gamma.logGamma(n + 1);
+    }
+
+    /**
+     * @param n The number of items
+     * @param r The number of items picked
+     * @return ln(nPr)
+     */
+    public static double logPermutation(double n, double r) {
+        return logFactorial(n) - logFactorial(n - r);
+    }
+
+    /**
+     * @param n The number of items
+     * @param r The number of items picked
+     * @return ln(nCr)
+     */
+    public static double logCombination(double n, double r) {
+        return logFactorial(n) - logFactorial(r) - logFactorial(n - r);
+    }
+
+    /**
+     * @param n The number of items
+     * @param r The number of items picked
+     * @throws IllegalArgumentException If n and r are not integers where 0 ≤ r ≤ n
+     */
+    private static void checkArguments(double n, double r) {
+        if (n % 1 != 0 || r % 1 != 0) {
+            throw new IllegalArgumentException("Arguments must be integers");
+        } else if (r > n) {
+            throw new IllegalArgumentException("n must be greater than or equal to r");
+        } else if (r < 0) {
+            throw new IllegalArgumentException("r must be greater than or equal to 0");
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2016 TruTech Innovations Inc - All Rights Reserved
+ */
+
+package com.trutechinnovations.calculall;
+
+import java.util.ArrayList;
+
+/**
+ * A function of x that has been converted into reverse polish once and flattened into a
+ * primitive program, so that it can be evaluated many times (ex. when graphing) without
+ * re-running the Shunting Yard Algorithm or creating any new Objects.
+ * <p>
+ * Note: an instance holds its own evaluation stack, so it should only be used by one thread
+ * at a time; use copy() to get an instance for another thread.
+ *
+ * @author Alston Lin
+ * @version 3.0
+ */
+public class CompiledExpression {
+
+    private static final int PUSH_CONSTANT = 0, PUSH_X = 1, PUSH_NEGATIVE_X = 2, OPERATE = 3, PERFORM = 4; //Instructions
+
+    private final int[] instructions;
+    private final int[] arguments; //Index into constants/operators/functions for each instruction
+    private final double[] constants;
+    private final Operator[] operators;
+    private final Function[] functions;
+    private final double[] stack;
+
+    /**
+     * Should not be used outside of this class; to create a CompiledExpression see compile().
+     */
+    private CompiledExpression(int[] instructions, int[] arguments, double[] constants, Operator[] operators,
+                               Function[] functions, int stackSize) {
+        this.instructions = instructions;
+        this.arguments = arguments;
+        this.constants = constants;
+        this.operators = operators;
+        this.functions = functions;
+        this.stack = new double[stackSize];
+    }
+
+    /**
+     * Compiles the given function of x. The function must already be set up (the digits condensed
+     * and Utility.setupExpression() applied), the same as what Utility.valueAt() takes. Variables
+     * other than X are substituted with their values at the time of compiling.
+     *
+     * @param function The function to compile
+     * @return The compiled function
+     * @throws IllegalArgumentException The function is not a valid expression
+     */
+    public static CompiledExpression compile(ArrayList<Token> function) {
+        ArrayList<Token> expression = new ArrayList<>();
+        //Substitutes all variables other than x with their value
+        for (Token token : function) {
+            if (token instanceof Variable && token.getType() != Variable.X) {
+                expression.add(new Number(Utility.process(((Variable) token).getValue())));
+            } else {
+                expression.add(token);
+            }
+        }
+        ArrayList<Token> reversePolish = Utility.convertToReversePolish(expression);
+
+        int size = reversePolish.size();
+        int[] instructions = new int[size];
+        int[] arguments = new int[size];
+        double[] constants = new double[size];
+        Operator[] operators = new Operator[size];
+        Function[] functions = new Function[size];
+        int numConstants = 0, numOperators = 0, numFunctions = 0;
+        int depth = 0, maxDepth = 0;
+        for (int i = 0; i < size; i++) {
+            Token token = reversePolish.get(i);
+            if (token instanceof Number) {
+                instructions[i] = PUSH_CONSTANT;
+                arguments[i] = numConstants;
+                constants[numConstants++] = ((Number) token).getValue();
+                depth++;
+            } else if (token instanceof Variable) { //Only X is left at this point
+                instructions[i] = ((Variable) token).isNegative() ? PUSH_NEGATIVE_X : PUSH_X;
+                depth++;
+            } else if (token instanceof Operator) {
+                if (depth < 2) {
+                    throw new IllegalArgumentException("Illegal Expression");
+                }
+                instructions[i] = OPERATE;
+                arguments[i] = numOperators;
+                operators[numOperators++] = (Operator) token;
+                depth--;
+            } else if (token instanceof Function) {
+                if (depth < 1) {
+                    throw new IllegalArgumentException("Illegal Expression");
+                }
+                instructions[i] = PERFORM;
+                arguments[i] = numFunctions;
+                functions[numFunctions++] = (Function) token;
+            } else { //This should never be reached
+                throw new IllegalArgumentException();
+            }
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        if (depth == 0) {
+            throw new IllegalArgumentException("Input is empty");
+        } else if (depth != 1) {
+            throw new IllegalArgumentException("Illegal Expression"); //There should only be 1 value left on the stack
+        }
+        return new CompiledExpression(instructions, arguments, constants, operators, functions, maxDepth);
+    }
+
+    /**
+     * Evaluates the function at the given x value.
+     *
+     * @param x The x value to evaluate the function at
+     * @return The y value
+     * @throws ArithmeticException      If the function is undefined at the given x (ex. division by zero)
+     * @throws IllegalArgumentException If the function is undefined at the given x
+     */
+    public double evaluate(double x) {
+        double[] stack = this.stack;
+        int top = -1;
+        for (int i = 0; i < instructions.length; i++) {
+            switch (instructions[i]) {
+                case PUSH_CONSTANT:
+                    stack[++top] = constants[arguments[i]];
+                    break;
+                case PUSH_X:
+                    stack[++top] = x;
+                    break;
+                case PUSH_NEGATIVE_X:
+                    stack[++top] = -x;
+                    break;
+                case OPERATE:
+                    double right = stack[top--];
+                    stack[top] = operators[arguments[i]].operate(stack[top], right);
+                    break;
+                case PERFORM:
+                    stack[top] = functions[arguments[i]].perform(stack[top]);
+                    break;
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Finds the value of the function at the given x value, with the same conventions as
+     * Utility.valueAt().
+     *
+     * @param x The x value to find the function at
+     * @return The y value, or Integer.MAX_VALUE if non-existant
+     */
+    public double valueAt(double x) {
+        try {
+            return evaluate(x);
+        } catch (Exception e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @return A CompiledExpression that shares this program but has its own stack, so that it
+     * may be evaluated on a different thread
+     */
+    public CompiledExpression copy() {
+        return new CompiledExpression(instructions, arguments, constants, operators, functions, stack.length);
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2016 TruTech Innovations Inc - All Rights Reserved
+ */
+
+package com.trutechinnovations.calculall;
+
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.exception.OutOfRangeException;
+import org.apache.commons.math3.linear.AbstractRealMatrix;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.MatrixDimensionMismatchException;
+import org.apache.commons.math3.linear.RealMatrix;
+
+/**
+ * A matrix of doubles stored in a single array, which is what Matrix Mode works with while it
+ * evaluates. The entry at row i and column j is at offset + i × rowStride + j × colStride, so parts
+ * of a matrix (see view()) and its transpose (see transposeView()) can be used without copying; any
+ * changes to them are changes to the original matrix.
+ * <p>
+ * As this is a RealMatrix, it can be given directly to the Apache Commons decompositions and
+ * operations, instead of copying it into an Array2DRowRealMatrix first.
+ *
+ * @author Alston Lin
+ * @version 3.0
+ */
+public class DenseMatrix extends AbstractRealMatrix {
+
+    private final double[] data;
+    private final int offset, rows, cols, rowStride, colStride;
+
+    /**
+     * Creates a new matrix of zeroes.
+     *
+     * @param rows The number of rows
+     * @param cols The number of columns
+     */
+    public DenseMatrix(int rows, int cols) {
+        this(new double[rows * cols], rows, cols);
+    }
+
+    /**
+     * Creates a matrix backed by the given array (not copied), with the entries in row-major order.
+     *
+     * @param data The entries, row by row
+     * @param rows The number of rows
+     * @param cols The number of columns
+     */
+    public DenseMatrix(double[] data, int rows, int cols) {
+        this(data, 0, rows, cols, cols, 1);
+        if (data.length != rows * cols) {
+            throw new DimensionMismatchException(data.length, rows * cols);
+        }
+    }
+
+    private DenseMatrix(double[] data, int offset, int rows, int cols, int rowStride, int colStride) {
+        this.data = data;
+        this.offset = offset;
+        this.rows = rows;
+        this.cols = cols;
+        this.rowStride = rowStride;
+        this.colStride = colStride;
+    }
+
+    /**
+     * @param a A matrix as an array of rows
+     * @return A copy of the matrix
+     */
+    public static DenseMatrix of(double[][] a) {
+        return new DenseMatrix(MatrixUtils.flatten(a), a.length, a[0].length);
+    }
+
+    /**
+     * @param m A matrix
+     * @return The matrix itself if it is already a DenseMatrix, otherwise a copy of it
+     */
+    public static DenseMatrix of(RealMatrix m) {
+        if (m instanceof DenseMatrix) {
+            return (DenseMatrix) m;
+        } else if (m instanceof Array2DRowRealMatrix) {
+            return of(((Array2DRowRealMatrix) m).getDataRef());
+        } else {
+            DenseMatrix copy = new DenseMatrix(m.getRowDimension(), m.getColumnDimension());
+            for (int i = 0; i < copy.rows; i++) {
+                for (int j = 0; j < copy.cols; j++) {
+                    copy.data[i * copy.cols + j] = m.getEntry(i, j);
+                }
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * @param dim The number of rows/columns
+     * @return A new Identity Matrix of the given size
+     */
+    public static DenseMatrix identity(int dim) {
+        DenseMatrix identity = new DenseMatrix(dim, dim);
+        for (int i = 0; i < dim; i++) {
+            identity.data[i * (dim + 1)] = 1;
+        }
+        return identity;
+    }
+
+    @Override
+    public int getRowDimension() {
+        return rows;
+    }
+
+    @Override
+    public int getColumnDimension() {
+        return cols;
+    }
+
+    @Override
+    public double getEntry(int row, int column) {
+        return data[index(row, column)];
+    }
+
+    @Override
+    public void setEntry(int row, int column, double value) {
+        data[index(row, column)] = value;
+    }
+
+    @Override
+    public void addToEntry(int row, int column, double increment) {
+        data[index(row, column)] += increment;
+    }
+
+    @Override
+    public void multiplyEntry(int row, int column, double factor) {
+        data[index(row, column)] *= factor;
+    }
+
+    @Override
+    public DenseMatrix createMatrix(int rowDimension, int columnDimension) {
+        return new DenseMatrix(rowDimension, columnDimension);
+    }
+
+    /**
+     * @return A copy of this matrix, with its own storage
+     */
+    @Override
+    public DenseMatrix copy() {
+        return new DenseMatrix(isCompact() ? data.clone() : toFlatArray(), rows, cols);
+    }
+
+    @Override
+    public double[][] getData() {
+        double[][] a = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            if (colStride == 1) {
+                System.arraycopy(data, offset + i * rowStride, a[i], 0, cols);
+            } else {
+                for (int j = 0; j < cols; j++) {
+                    a[i][j] = data[offset + i * rowStride + j * colStride];
+                }
+            }
+        }
+        return a;
+    }
+
+    /**
+     * @return The entries of this matrix in row-major order; this is the backing array (not a
+     * copy) if this matrix is not a view of a larger one
+     */
+    public double[] getFlatData() {
+        return isCompact() ? data : toFlatArray();
+    }
+
+    /**
+     * @param row  The first row of the view
+     * @param col  The first column of the view
+     * @param rows The number of rows in the view
+     * @param cols The number of columns in the view
+     * @return A view of part of this matrix, which shares the same storage
+     */
+    public DenseMatrix view(int row, int col, int rows, int cols) {
+        if (row < 0 || col < 0 || row + rows > this.rows || col + cols > this.cols) {
+            throw new OutOfRangeException(row + rows, 0, this.rows);
+        }
+        return new DenseMatrix(data, offset + row * rowStride + col * colStride, rows, cols, rowStride, colStride);
+    }
+
+    /**
+     * @return A view of the transpose of this matrix, which shares the same storage
+     */
+    public DenseMatrix transposeView() {
+        return new DenseMatrix(data, offset, cols, rows, colStride, rowStride);
+    }
+
+    /**
+     * @return The transpose of this matrix, with its own storage
+     */
+    @Override
+    public DenseMatrix transpose() {
+        return transposeView().copy();
+    }
+
+    @Override
+    public RealMatrix add(RealMatrix m) {
+        return copy().addInPlace(m, 1);
+    }
+
+    @Override
+    public RealMatrix subtract(RealMatrix m) {
+        return copy().addInPlace(m, -1);
+    }
+
+    @Override
+    public RealMatrix scalarMultiply(double d) {
+        return copy().scaleInPlace(d);
+    }
+
+    @Override
+    public RealMatrix multiply(RealMatrix m) {
+        if (cols != m.getRowDimension()) {
+            throw new DimensionMismatchException(m.getRowDimension(), cols);
+        }
+        int p = m.getColumnDimension();
+        return new DenseMatrix(MatrixUtils.multiply(getFlatData(), of(m).getFlatData(), rows, cols, p), rows, p);
+    }
+
+    /**
+     * Adds a multiple of the given matrix to this one.
+     *
+     * @param m      The matrix to add
+     * @param scalar The scalar to multiply the added matrix by (ex. -1 to subtract)
+     * @return This matrix
+     */
+    public DenseMatrix addInPlace(RealMatrix m, double scalar) {
+        if (rows != m.getRowDimension() || cols != m.getColumnDimension()) {
+            throw new MatrixDimensionMismatchException(m.getRowDimension(), m.getColumnDimension(), rows, cols);
+        }
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                data[offset + i * rowStride + j * colStride] += scalar * m.getEntry(i, j);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Multiplies every entry of this matrix by the given scalar.
+     *
+     * @param scalar The scalar
+     * @return This matrix
+     */
+    public DenseMatrix scaleInPlace(double scalar) {
+        for (int i = 0; i < rows; i++) {
+            scaleRow(i, scalar);
+        }
+        return this;
+    }
+
+    /**
+     * @param row1 The index of the first row
+     * @param row2 The index of the second row
+     */
+    public void swapRows(int row1, int row2) {
+        int start1 = index(row1, 0), start2 = index(row2, 0);
+        for (int j = 0; j < cols; j++) {
+            int a = start1 + j * colStride, b = start2 + j * colStride;
+            double temp = data[a];
+            data[a] = data[b];
+            data[b] = temp;
+        }
+    }
+
+    /**
+     * Adds a multiple of one row to another.
+     *
+     * @param row1   The index of the row being added to
+     * @param row2   The index of the row being added
+     * @param scalar The scalar to multiply the second row by
+     */
+    public void addRows(int row1, int row2, double scalar) {
+        int start1 = index(row1, 0), start2 = index(row2, 0);
+        for (int j = 0; j < cols; j++) {
+            data[start1 + j * colStride] += scalar * data[start2 + j * colStride];
+        }
+    }
+
+    /**
+     * @param row    The index of the row to scale
+     * @param scalar The scaling factor
+     */
+    public void scaleRow(int row, double scalar) {
+        int start = index(row, 0);
+        for (int j = 0; j < cols; j++) {
+            data[start + j * colStride] *= scalar;
+        }
+    }
+
+    /**
+     * @return If this matrix takes up the whole backing array in row-major order
+     */
+    private boolean isCompact() {
+        return offset == 0 && colStride == 1 && rowStride == cols && data.length == rows * cols;
+    }
+
+    /**
+     * @return A new array of the entries of this matrix in row-major order
+     */
+    private double[] toFlatArray() {
+        double[] flat = new double[rows * cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                flat[i * cols + j] = data[offset + i * rowStride + j * colStride];
+            }
+        }
+        return flat;
+    }
+
+    /**
+     * @param row    The row of the entry
+     * @param column The column of the entry
+     * @return The index of the entry in the backing array
+     */
+    private int index(int row, int column) {
+        if (row < 0 || row >= rows) {
+            throw new OutOfRangeException(row, 0, rows - 1);
+        } else if (column < 0 || column >= cols) {
+            throw new OutOfRangeException(column, 0, cols - 1);
+        }
+        return offset + row * rowStride + column * colStride;
+    }
+}
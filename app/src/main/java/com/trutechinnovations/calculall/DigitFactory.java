@@ -9,6 +9,32 @@ package com.trutechinnovations.calculall;
 public class DigitFactory {
 
     public static int DECIMAL = -1, NEGATIVE = -10;
+    private static final Digit[] SHARED = {makeZero(), makeOne(), makeTwo(), makeThree(), makeFour(), makeFive(),
+            makeSix(), makeSeven(), makeEight(), makeNine()};
+    private static final Digit SHARED_DECIMAL = Token.share(makeDecimal()), SHARED_NEGATIVE = Token.share(makeNegative());
+
+    static {
+        for (Digit d : SHARED) {
+            Token.share(d);
+        }
+    }
+
+    /**
+     * Gets the shared Digit of the given value, which can be used in place of a new one in
+     * expressions that are never edited (ex. results).
+     *
+     * @param value The value of the Digit (0 to 9, DECIMAL or NEGATIVE)
+     * @return The shared Digit
+     */
+    public static Digit getShared(int value) {
+        if (value == DECIMAL) {
+            return SHARED_DECIMAL;
+        } else if (value == NEGATIVE) {
+            return SHARED_NEGATIVE;
+        } else {
+            return SHARED[value];
+        }
+    }
 
     public static Digit makeOne() {
         return new Digit("1", 1);
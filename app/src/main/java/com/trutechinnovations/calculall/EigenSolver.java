@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2016 TruTech Innovations Inc - All Rights Reserved
+ */
+
+package com.trutechinnovations.calculall;
+
+import org.apache.commons.math3.linear.EigenDecomposition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Finds the eigenvalues and eigenvectors of a matrix numerically, from a single Eigen
+ * Decomposition, instead of sending the matrix to Symja as a String and reading the results back.
+ * <p>
+ * Eigenvalues that are within a tolerance of each other are treated as one repeated eigenvalue,
+ * as a repeated eigenvalue is usually found as a few slightly different ones. Each eigenvalue that
+ * is not repeated takes its eigenvector from the decomposition. The eigenspace of a repeated
+ * eigenvalue is found as the null space of A - λI, which is reduced once (see getNullSpace()).
+ * If the matrix is symmetric, its eigenvalues are always real and the eigenvectors from the
+ * decomposition are orthogonal, so they are used whenever the null space is the wrong size.
+ *
+ * @author Alston Lin
+ * @version 3.0
+ */
+public class EigenSolver {
+
+    private static final double EIGENVALUE_TOLERANCE = 1e-6; //Relative to the larger of two neighbouring eigenvalues
+    private static final double ZERO_TOLERANCE = 1e-12; //Relative to the norm of the matrix; eigenvalues this close are the same even near zero
+    private static final double PIVOT_TOLERANCE = 1e-9; //Relative to the largest entry; smaller pivots are zero
+
+    /**
+     * Finds the distinct eigenvalues of the given matrix.
+     *
+     * @param a The matrix, which must be square
+     * @return The eigenvalues, in ascending order
+     * @throws UnsupportedOperationException If the matrix has complex eigenvalues
+     */
+    public static double[] getEigenValues(double[][] a) {
+        EigenDecomposition ed = decompose(a);
+        int[][] groups = groupEigenvalues(ed, norm(a));
+        double[] values = new double[groups.length];
+        for (int i = 0; i < groups.length; i++) {
+            values[i] = getEigenvalue(ed, groups[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Finds a basis of each eigenspace of the given matrix.
+     *
+     * @param a The matrix, which must be square
+     * @return The eigenvectors, by ascending eigenvalue; these are not scaled in any way
+     * @throws UnsupportedOperationException If the matrix has complex eigenvalues
+     */
+    public static ArrayList<double[]> getEigenVectors(double[][] a) {
+        EigenDecomposition ed = decompose(a);
+        boolean symmetric = isSymmetric(a);
+        ArrayList<double[]> vectors = new ArrayList<>(a.length);
+        for (int[] group : groupEigenvalues(ed, norm(a))) {
+            ArrayList<double[]> basis = null;
+            if (group.length > 1) { //Repeated eigenvalue
+                basis = getNullSpace(MatrixUtils.getEigenMatrix(a, getEigenvalue(ed, group)));
+                if (basis.isEmpty() || (symmetric && basis.size() != group.length)) {
+                    basis = null;
+                }
+            }
+            if (basis == null) { //Takes the eigenvectors from the decomposition instead
+                basis = new ArrayList<>(group.length);
+                for (int index : group) {
+                    basis.add(ed.getEigenvector(index).toArray());
+                }
+            }
+            vectors.addAll(basis);
+        }
+        return vectors;
+    }
+
+    /**
+     * Finds a basis of the null space of the given matrix by reducing it once, with partial
+     * pivoting. Each basis vector has a 1 for one of the free variables and 0 for the others.
+     *
+     * @param a The matrix
+     * @return The basis vectors, which are empty if the matrix has full column rank
+     */
+    public static ArrayList<double[]> getNullSpace(double[][] a) {
+        int rows = a.length, cols = a[0].length;
+        double[][] r = new double[rows][];
+        double scale = 0; //Zero only for a zero matrix, when a tolerance of zero still frees every column
+        for (int i = 0; i < rows; i++) {
+            r[i] = a[i].clone();
+            for (double entry : r[i]) {
+                scale = Math.max(scale, Math.abs(entry));
+            }
+        }
+        double tolerance = PIVOT_TOLERANCE * scale;
+        int[] pivotCols = new int[Math.min(rows, cols)];
+        boolean[] isPivot = new boolean[cols];
+        int rank = 0;
+        //Gauss-Jordan elimination into reduced row echelon form
+        for (int col = 0; col < cols && rank < rows; col++) {
+            int best = rank;
+            for (int i = rank + 1; i < rows; i++) {
+                if (Math.abs(r[i][col]) > Math.abs(r[best][col])) {
+                    best = i;
+                }
+            }
+            if (Math.abs(r[best][col]) <= tolerance) { //Free variable
+                continue;
+            }
+            double[] pivotRow = r[best];
+            r[best] = r[rank];
+            r[rank] = pivotRow;
+            double pivot = pivotRow[col];
+            for (int j = col; j < cols; j++) {
+                pivotRow[j] /= pivot;
+            }
+            for (int i = 0; i < rows; i++) {
+                double factor = r[i][col];
+                if (i != rank && factor != 0) {
+                    for (int j = col; j < cols; j++) {
+                        r[i][j] -= factor * pivotRow[j];
+                    }
+                }
+            }
+            pivotCols[rank] = col;
+            isPivot[col] = true;
+            rank++;
+        }
+        ArrayList<double[]> basis = new ArrayList<>(cols - rank);
+        for (int free = 0; free < cols; free++) {
+            if (!isPivot[free]) {
+                double[] v = new double[cols];
+                v[free] = 1;
+                for (int i = 0; i < rank; i++) {
+                    v[pivotCols[i]] = -r[i][free];
+                }
+                basis.add(v);
+            }
+        }
+        return basis;
+    }
+
+    /**
+     * @param a The matrix, which must be square
+     * @return The Eigen Decomposition of the matrix
+     * @throws UnsupportedOperationException If the matrix has complex eigenvalues
+     */
+    private static EigenDecomposition decompose(double[][] a) {
+        EigenDecomposition ed = new EigenDecomposition(DenseMatrix.of(a));
+        if (ed.hasComplexEigenvalues()) {
+            throw new UnsupportedOperationException("Matrices with complex eigenvalues are not supported");
+        }
+        return ed;
+    }
+
+    /**
+     * @param a The matrix
+     * @return The infinity norm of the matrix (the largest absolute row sum)
+     */
+    private static double norm(double[][] a) {
+        double norm = 0;
+        for (double[] row : a) {
+            double sum = 0;
+            for (double entry : row) {
+                sum += Math.abs(entry);
+            }
+            norm = Math.max(norm, sum);
+        }
+        return norm;
+    }
+
+    /**
+     * Groups together the eigenvalues from the decomposition that are the same eigenvalue. Each
+     * pair of neighbouring eigenvalues is compared against its own size, so that small eigenvalues
+     * are not merged only because the matrix also has a large one.
+     *
+     * @param ed   The Eigen Decomposition
+     * @param norm The norm of the matrix
+     * @return The indices of the eigenvalues in each group, with the groups in ascending order
+     */
+    private static int[][] groupEigenvalues(EigenDecomposition ed, double norm) {
+        final double[] values = ed.getRealEigenvalues();
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                return Double.compare(values[lhs], values[rhs]);
+            }
+        });
+        double floor = ZERO_TOLERANCE * norm;
+        ArrayList<int[]> groups = new ArrayList<>(values.length);
+        int start = 0;
+        for (int i = 1; i <= order.length; i++) {
+            if (i == order.length || isDistinct(values[order[i - 1]], values[order[i]], floor)) {
+                int[] group = new int[i - start];
+                for (int j = start; j < i; j++) {
+                    group[j - start] = order[j];
+                }
+                groups.add(group);
+                start = i;
+            }
+        }
+        return groups.toArray(new int[groups.size()][]);
+    }
+
+    /**
+     * @param lower  An eigenvalue
+     * @param higher The next eigenvalue, which is not less than lower
+     * @param floor  The smallest difference between two distinct eigenvalues
+     * @return If the two eigenvalues are different eigenvalues
+     */
+    private static boolean isDistinct(double lower, double higher, double floor) {
+        double tolerance = Math.max(EIGENVALUE_TOLERANCE * Math.max(Math.abs(lower), Math.abs(higher)), floor);
+        return higher - lower > tolerance;
+    }
+
+    /**
+     * @param ed    The Eigen Decomposition
+     * @param group The indices of the eigenvalues that are the same eigenvalue
+     * @return The eigenvalue; the mean of the group, as the errors in a repeated eigenvalue
+     * mostly cancel out
+     */
+    private static double getEigenvalue(EigenDecomposition ed, int[] group) {
+        double sum = 0;
+        for (int index : group) {
+            sum += ed.getRealEigenvalue(index);
+        }
+        return MatrixUtils.roundInfinitesimal(sum / group.length);
+    }
+
+    /**
+     * @param a The matrix
+     * @return If the matrix is exactly symmetric
+     */
+    private static boolean isSymmetric(double[][] a) {
+        for (int i = 0; i < a.length; i++) {
+            for (int j = i + 1; j < a.length; j++) {
+                if (a[i][j] != a[j][i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2016 TruTech Innovations Inc - All Rights Reserved
+ */
+
+package com.trutechinnovations.calculall;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.WeakHashMap;
+
+/**
+ * An immutable node of an expression tree. Nodes are hash-consed: only one ExpressionNode exists
+ * for each distinct tree, so identical subtrees are shared rather than copied, and two trees are
+ * equal exactly when they are the same object. The structural hash is computed once, when the
+ * node is made.
+ * <p>
+ * Two Tokens are considered the same if they were made by the same factory method and have the
+ * same type, as well as the same value for Numbers and the same sign for Variables. Constants and
+ * StringTokens must also have the same symbol, as every constant is made by the same method. Rationals
+ * are the same as Numbers with the same value, unless their value cannot be held exactly by a double.
+ *
+ * @author Alston Lin
+ * @version 3.0
+ */
+public final class ExpressionNode {
+
+    private static final ExpressionNode[] NO_CHILDREN = new ExpressionNode[0];
+    private static final WeakHashMap<ExpressionNode, WeakReference<ExpressionNode>> TABLE = new WeakHashMap<>(); //All the nodes in use
+    private static final Comparator<ExpressionNode> BY_ID = new Comparator<ExpressionNode>() {
+        @Override
+        public int compare(ExpressionNode n1, ExpressionNode n2) {
+            return n1.id < n2.id ? -1 : (n1.id == n2.id ? 0 : 1);
+        }
+    };
+    private static long nextId = 0;
+    private final Token content;
+    private final Class<?> tokenClass;
+    private final int type;
+    private final long value; //Bits of the value for Numbers, or the sign for Variables
+    private final String exact; //Exact value of Rationals that are not exact as doubles
+    private final String symbol; //Symbol of constants and StringTokens; null for other Tokens
+    private final ExpressionNode[] children;
+    private final int hash;
+    private final int size;
+    private final boolean defined; //If there are no NaNs in this tree
+    private long id; //Order in which the nodes were made
+    private ExpressionNode canonical; //Same tree with the operands of + and × in a fixed order
+
+    /**
+     * Use make() or of() to obtain nodes.
+     */
+    private ExpressionNode(Token content, ExpressionNode[] children) {
+        this.content = content;
+        this.children = children;
+        tokenClass = getTokenClass(content);
+        exact = getExact(content);
+        type = content.getType();
+        symbol = getSymbol(content);
+        if (content instanceof Number) {
+            value = Double.doubleToLongBits(((Number) content).getValue() + 0.0); //+ 0.0 so that -0 == 0
+        } else if (content instanceof Variable) {
+            value = ((Variable) content).isNegative() ? 1 : 0;
+        } else {
+            value = 0;
+        }
+        int h = (tokenClass.hashCode() * 31 + type) * 31 + (int) (value ^ (value >>> 32)) + (exact == null ? 0 : exact.hashCode())
+                + (symbol == null ? 0 : symbol.hashCode());
+        int s = 1;
+        boolean d = !(content instanceof Number && Double.isNaN(((Number) content).getValue()));
+        for (ExpressionNode child : children) {
+            h = h * 31 + child.hash;
+            s += child.size;
+            d &= child.defined;
+        }
+        hash = h;
+        size = s;
+        defined = d;
+    }
+
+    /**
+     * @param t A Token
+     * @return The class the Token is compared as; Rationals are compared as Numbers
+     */
+    private static Class<?> getTokenClass(Token t) {
+        return t instanceof Rational ? Number.class : t.getClass();
+    }
+
+    /**
+     * @param t A Token
+     * @return The exact value of the Token if it is a Rational that is not exact as a double, otherwise null
+     */
+    private static String getExact(Token t) {
+        return t instanceof Rational && !((Rational) t).isExactDouble() ? t.toString() : null;
+    }
+
+    /**
+     * @param t A Token
+     * @return The symbol of the Token if it is a constant or a StringToken, otherwise null
+     */
+    private static String getSymbol(Token t) {
+        return t instanceof StringToken || (t instanceof Variable && t.getType() == Variable.CONSTANT) ? t.getSymbol() : null;
+    }
+
+    /**
+     * Determines if two Tokens would be at the same node, without making any nodes. As with
+     * isEquivalent(), a NaN is not the same as anything.
+     *
+     * @param t1 The first Token
+     * @param t2 The second Token
+     * @return If both Tokens are the same
+     */
+    public static boolean isSameToken(Token t1, Token t2) {
+        if (getTokenClass(t1) != getTokenClass(t2) || t1.getType() != t2.getType()) {
+            return false;
+        } else if (t1 instanceof Number) {
+            String exact1 = getExact(t1), exact2 = getExact(t2);
+            return ((Number) t1).getValue() == ((Number) t2).getValue() && (exact1 == null ? exact2 == null : exact1.equals(exact2));
+        } else if (t1 instanceof Variable && ((Variable) t1).isNegative() != ((Variable) t2).isNegative()) {
+            return false;
+        }
+        String symbol1 = getSymbol(t1), symbol2 = getSymbol(t2);
+        return symbol1 == null ? symbol2 == null : symbol1.equals(symbol2);
+    }
+
+    /**
+     * Obtains the node with the given content and children.
+     *
+     * @param content  The Token at this node
+     * @param children The roots of the subtrees, in order
+     * @return The shared node
+     */
+    public static ExpressionNode make(Token content, ExpressionNode... children) {
+        ExpressionNode node = new ExpressionNode(content, children.length == 0 ? NO_CHILDREN : children.clone());
+        synchronized (TABLE) {
+            WeakReference<ExpressionNode> existing = TABLE.get(node);
+            ExpressionNode shared = existing == null ? null : existing.get();
+            if (shared != null) {
+                return shared;
+            }
+            node.id = nextId++;
+            TABLE.put(node, new WeakReference<>(node));
+            return node;
+        }
+    }
+
+    /**
+     * Obtains the shared node for the given (mutable) tree.
+     *
+     * @param root The root of the tree
+     * @return The shared node with the same structure
+     */
+    public static ExpressionNode of(Node<Token> root) {
+        ExpressionNode[] children = new ExpressionNode[root.getNumOfChildren()];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = of(root.getChildren().get(i));
+        }
+        return make(root.getContent(), children);
+    }
+
+    /**
+     * Makes a new mutable tree with the same structure as this one, for rules that rewrite in place.
+     * Numbers and Variables are copied (with the value and sign they had when this node was made)
+     * as they can be changed in place (ex. Numbers are rounded when shown). All the other Tokens are
+     * shared, including Rationals that are not exact as doubles; these never change, and copying
+     * them as Numbers would lose their exact value.
+     *
+     * @return The root of the new tree
+     */
+    public Node<Token> toNode() {
+        Token t = content;
+        if (exact == null && t instanceof Number) {
+            t = new Number(Double.longBitsToDouble(value));
+        } else if (t instanceof Variable) {
+            Variable copy = ((Variable) t).copy();
+            copy.setNegative(value == 1);
+            t = copy;
+        }
+        Node<Token> root = new Node<>(t);
+        for (ExpressionNode child : children) {
+            root.addChild(child.toNode());
+        }
+        return root;
+    }
+
+    /**
+     * Determines if this tree and the given tree are the same, allowing the operands of addition
+     * and multiplication to be in any order. As with doubles, a tree containing NaN is not
+     * equivalent to anything.
+     *
+     * @param other The other tree
+     * @return If both are equivalent
+     */
+    public boolean isEquivalent(ExpressionNode other) {
+        return defined && other.defined && (this == other || getCanonical() == other.getCanonical());
+    }
+
+    /**
+     * @return The equivalent tree with the operands of addition and multiplication sorted
+     */
+    private ExpressionNode getCanonical() {
+        ExpressionNode result = canonical;
+        if (result == null) {
+            ExpressionNode[] sorted = new ExpressionNode[children.length];
+            boolean changed = false;
+            for (int i = 0; i < children.length; i++) {
+                sorted[i] = children[i].getCanonical();
+                changed |= sorted[i] != children[i];
+            }
+            if (content instanceof Operator && (type == Operator.ADD || type == Operator.MULTIPLY)) {
+                Arrays.sort(sorted, BY_ID); //Canonical nodes are unique, so their ids give a fixed order
+                changed |= !Arrays.equals(sorted, children);
+            }
+            result = changed ? make(content, sorted).getCanonical() : this;
+            canonical = result; //Races only ever store the same node
+        }
+        return result;
+    }
+
+    /**
+     * @return The Token at this node
+     */
+    public Token getContent() {
+        return content;
+    }
+
+    /**
+     * @param n The index of the child
+     * @return The nth child of this node
+     */
+    public ExpressionNode getChild(int n) {
+        return children[n];
+    }
+
+    /**
+     * @return The number of children of this node
+     */
+    public int getNumOfChildren() {
+        return children.length;
+    }
+
+    /**
+     * @return The number of nodes in this tree
+     */
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Compares the contents and the (already shared) children of the nodes; only used to find
+     * the shared node when one is made. Otherwise, shared nodes can simply be compared with ==.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        } else if (!(o instanceof ExpressionNode)) {
+            return false;
+        }
+        ExpressionNode other = (ExpressionNode) o;
+        if (hash != other.hash || tokenClass != other.tokenClass || type != other.type || value != other.value
+                || children.length != other.children.length || (exact == null ? other.exact != null : !exact.equals(other.exact))
+                || (symbol == null ? other.symbol != null : !symbol.equals(other.symbol))) {
+            return false;
+        }
+        for (int i = 0; i < children.length; i++) {
+            if (children[i] != other.children[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -14,6 +14,27 @@ import org.apache.commons.math3.special.Erf;
  */
 
 public class FunctionFactory {
+    private static final Function[] SHARED = new Function[Function.GAMMA + 1];
+
+    static {
+        for (Function f : new Function[]{makeCsc(), makeSec(), makeCot(), makeErf(), makeErfi(), makeGamma(), makeAppellF1(),
+                makeSin(), makeASin(), makeCos(), makeACos(), makeTan(), makeATan(), makeSinh(), makeASinh(), makeCosh(),
+                makeACosh(), makeTanh(), makeATanh(), makeLog_10(), makeLn(), makeSqrt()}) {
+            SHARED[f.getType()] = Token.share(f);
+        }
+    }
+
+    /**
+     * Gets the shared Function of the given type, which can be used in place of a new one in
+     * expressions that are never edited (ex. results).
+     *
+     * @param type The type of Function (see the Function class constants)
+     * @return The shared Function
+     */
+    public static Function getShared(int type) {
+        return SHARED[type];
+    }
+
     private static double sin(double a) {
         if (a % Math.PI == 0) {
             return 0;
@@ -12,7 +12,6 @@ import android.content.DialogInterface;
 import android.content.SharedPreferences;
 import android.content.res.Resources;
 import android.graphics.drawable.BitmapDrawable;
-import android.os.AsyncTask;
 import android.util.TypedValue;
 import android.view.Gravity;
 import android.view.LayoutInflater;
@@ -28,12 +27,7 @@ import org.matheclipse.core.eval.exception.WrongNumberOfArguments;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Contains the back-end for Function Mode. Ability to define functions and perform various
@@ -44,22 +38,11 @@ import java.util.concurrent.TimeUnit;
  */
 public class FunctionMode extends Advanced {
 
-    //Some Threading stuff
-    private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
-    private static final int CORE_POOL_SIZE = CPU_COUNT + 1;
-    private static final int MAXIMUM_POOL_SIZE = CPU_COUNT * 2 + 1;
-    private static final int KEEP_ALIVE = 1;
     private static final String FILENAME = "history_function";
-    private static final int STACK_SIZE = 500000; //1MB STACK SIZE
-    private static final ThreadFactory threadFactory = new ThreadFactory() {
-        public Thread newThread(Runnable r) {
-            ThreadGroup group = new ThreadGroup("threadGroup");
-            return new Thread(group, r, "Calculus Thread", STACK_SIZE);
-        }
-    };
+    //Maximum time (in milliseconds) each calculation may take
+    private static final long ROOTS_TIMEOUT = 60000, DERIVATIVE_TIMEOUT = 30000, INTEGRAL_TIMEOUT = 180000,
+            EXPAND_TIMEOUT = 30000, FACTOR_TIMEOUT = 30000;
     private static final FunctionMode INSTANCE = new FunctionMode();
-    private static final BlockingQueue<Runnable> sPoolWorkQueue = new LinkedBlockingQueue<Runnable>(128);
-    public static final Executor EXECUTOR = new ThreadPoolExecutor(CORE_POOL_SIZE, MAXIMUM_POOL_SIZE, KEEP_ALIVE, TimeUnit.SECONDS, sPoolWorkQueue, threadFactory);
     //Actual variables used
     private ProgressDialog pd;
     private PopupWindow pw;
@@ -134,80 +117,63 @@ public class FunctionMode extends Advanced {
 
     public void clickRoots() {
         final Context context = activity;
-        AsyncTask<ArrayList<Token>, Void, ArrayList<ArrayList<Token>>> task = new AsyncTask<ArrayList<Token>, Void, ArrayList<ArrayList<Token>>>() {
-
-            private Exception error;
 
+        Command<ArrayList<ArrayList<Token>>, ArrayList<Token>> task = new Command<ArrayList<ArrayList<Token>>, ArrayList<Token>>() {
             @Override
-            protected void onPreExecute() {
-                if (pd == null) { //Lazy Initialization
-                    //Loading dialog
-                    pd = new ProgressDialog(activity, R.style.progressDialog);
-                    pd.setTitle("Calculating...");
-                    pd.setMessage("This may take a while. ");
-                    pd.setCancelable(false);
-                    pd.setButton(DialogInterface.BUTTON_NEGATIVE, "Cancel", new DialogInterface.OnClickListener() {
-                        @Override
-                        public void onClick(DialogInterface dialog, int which) {
-                            cancel(true);
-                        }
-                    });
-                }
-                pd.show();
-                super.onPreExecute();
+            public ArrayList<ArrayList<Token>> execute(ArrayList<Token> tokens) {
+                return MathUtilities.findRoots(subAns(tokens));
             }
+        };
 
+        Command<Void, ArrayList<ArrayList<Token>>> resultHandler = new Command<Void, ArrayList<ArrayList<Token>>>() {
             @Override
-            protected ArrayList<ArrayList<Token>> doInBackground(ArrayList<Token>... params) {
-                try {
-                    return MathUtilities.findRoots(subAns(params[0]));
-                } catch (Exception e) {
-                    error = e;
+            public Void execute(ArrayList<ArrayList<Token>> roots) {
+                pd.dismiss();
+                if (roots == null) {
+                    showMalformedExpressionToast();
                     return null;
                 }
+                ArrayList<Token> toOutput = new ArrayList<>();
+                int counter = 0;
+                toOutput.add(new StringToken("X = "));
+                while (counter < roots.size()) {
+                    ArrayList<Token> root = roots.get(counter);
+                    if (counter != 0) {
+                        toOutput.add(new StringToken(" OR "));
+                    }
+                    toOutput.addAll(root);
+                    counter++;
+                }
+                if (counter == 0) { //No roots
+                    toOutput.add(new StringToken("No Real Roots"));
+                }
+                display.displayOutput(toOutput);
+                activity.scrollDown();
+                //Saves to history
+                try {
+                    ArrayList<Token> saveInput = new ArrayList<>();
+                    saveInput.addAll(subAns(tokens));
+                    saveInput.add(0, new StringToken("Roots of "));
+                    saveEquation(saveInput, toOutput, filename);
+                } catch (IOException | ClassNotFoundException e) {
+                    Toast.makeText(activity, "Error saving to history", Toast.LENGTH_LONG).show();
+                }
+                return null;
             }
+        };
 
+        Command<Void, Exception> errorHandler = new Command<Void, Exception>() {
             @Override
-            protected void onPostExecute(ArrayList<ArrayList<Token>> roots) {
+            public Void execute(Exception error) {
                 pd.dismiss();
-                if (!isCancelled()) {
-                    if (roots == null) {
-                        if (error == null) {
-                            showMalformedExpressionToast();
-                        } else if (error instanceof UnsupportedOperationException) {
-                            Toast.makeText(context, "Sorry, we're unable to find the root(s) of this function. Root finding for this function may not be supported yet.", Toast.LENGTH_SHORT).show();
-                        } else {
-                            Toast.makeText(context, "Something weird happened in our system, and we can't find the roots. We'll try to fix this as soon as we can. Sorry! :(", Toast.LENGTH_LONG).show();
-                        }
-                    } else {
-                        ArrayList<Token> toOutput = new ArrayList<>();
-                        int counter = 0;
-                        toOutput.add(new StringToken("X = "));
-                        while (counter < roots.size()) {
-                            ArrayList<Token> root = roots.get(counter);
-                            if (counter != 0) {
-                                toOutput.add(new StringToken(" OR "));
-                            }
-                            toOutput.addAll(root);
-                            counter++;
-                        }
-                        if (counter == 0) { //No roots
-                            toOutput.add(new StringToken("No Real Roots"));
-                        }
-                        display.displayOutput(toOutput);
-                        activity.scrollDown();
-                        //Saves to history
-                        try {
-                            ArrayList<Token> saveInput = new ArrayList<>();
-                            saveInput.addAll(subAns(tokens));
-                            saveInput.add(0, new StringToken("Roots of "));
-                            saveEquation(saveInput, toOutput, filename);
-                        } catch (IOException | ClassNotFoundException e) {
-                            Toast.makeText(activity, "Error saving to history", Toast.LENGTH_LONG).show();
-                        }
-                        super.onPostExecute(roots);
-                    }
+                if (error instanceof TimeoutException) {
+                    showTimeoutToast();
+                } else if (error instanceof UnsupportedOperationException) {
+                    Toast.makeText(context, "Sorry, we're unable to find the root(s) of this function. Root finding for this function may not be supported yet.", Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(context, "Something weird happened in our system, and we can't find the roots. We'll try to fix this as soon as we can. Sorry! :(", Toast.LENGTH_LONG).show();
                 }
+                return null;
             }
         };
 
@@ -218,7 +184,8 @@ public class FunctionMode extends Advanced {
 
         ArrayList<Token> tokens = Utility.condenseDigits(this.tokens);
         tokens = Utility.setupExpression(tokens);
-        task.execute(tokens);
+        showProgressDialog("This may take a while. ");
+        MathScheduler.getInstance().submit(task, tokens, ROOTS_TIMEOUT, resultHandler, errorHandler);
     }
 
     public void clickDerivative() {
@@ -249,14 +216,12 @@ public class FunctionMode extends Advanced {
         }
 
         //Sets up the params
-        ArrayList<Token>[] params = new ArrayList[1];
-        params[0] = tokens;
         ArrayList<Token> input = new ArrayList<>();
         input.add(new StringToken("d/dx "));
         input.addAll(subAns(tokens));
         //Passes the rest onto the Thread
-        MathThread thread = new MathThread(task, errorHandler, input);
-        thread.executeOnExecutor(EXECUTOR, params);
+        MathThread thread = new MathThread(task, errorHandler, input, DERIVATIVE_TIMEOUT);
+        thread.execute(tokens);
 
     }
 
@@ -293,14 +258,12 @@ public class FunctionMode extends Advanced {
         }
 
         //Sets up the params
-        ArrayList<Token>[] params = new ArrayList[1];
-        params[0] = tokens;
         ArrayList<Token> input = new ArrayList<>();
         input.add(0, new StringToken("∫ "));
         input.addAll(subAns(tokens));
         //Passes the rest onto the Thread
-        MathThread thread = new MathThread(task, errorHandler, input);
-        thread.executeOnExecutor(EXECUTOR, params);
+        MathThread thread = new MathThread(task, errorHandler, input, INTEGRAL_TIMEOUT);
+        thread.execute(tokens);
     }
 
     /**
@@ -336,14 +299,12 @@ public class FunctionMode extends Advanced {
         }
 
         //Sets up the params
-        ArrayList<Token>[] params = new ArrayList[1];
-        params[0] = tokens;
         ArrayList<Token> input = new ArrayList<>();
         input.add(0, new StringToken("Expand "));
         input.addAll(subAns(tokens));
         //Passes the rest onto the Thread
-        MathThread thread = new MathThread(task, errorHandler, input);
-        thread.executeOnExecutor(EXECUTOR, params);
+        MathThread thread = new MathThread(task, errorHandler, input, EXPAND_TIMEOUT);
+        thread.execute(tokens);
     }
 
     /**
@@ -379,14 +340,40 @@ public class FunctionMode extends Advanced {
         }
 
         //Sets up the params
-        ArrayList<Token>[] params = new ArrayList[1];
-        params[0] = tokens;
         ArrayList<Token> input = new ArrayList<>();
         input.add(0, new StringToken("Factor "));
         input.addAll(subAns(tokens));
         //Passes the rest onto the Thread
-        MathThread thread = new MathThread(task, errorHandler, input);
-        thread.executeOnExecutor(EXECUTOR, params);
+        MathThread thread = new MathThread(task, errorHandler, input, FACTOR_TIMEOUT);
+        thread.execute(tokens);
+    }
+
+    /**
+     * Shows the loading dialog, which allows the user to cancel the calculation.
+     *
+     * @param message The message to show on the dialog
+     */
+    private void showProgressDialog(String message) {
+        if (pd == null) { //Lazy Initialization
+            pd = new ProgressDialog(activity, R.style.progressDialog);
+            pd.setTitle("Calculating...");
+            pd.setCancelable(false);
+            pd.setButton(DialogInterface.BUTTON_NEGATIVE, "Cancel", new DialogInterface.OnClickListener() {
+                @Override
+                public void onClick(DialogInterface dialog, int which) {
+                    MathScheduler.getInstance().cancel();
+                }
+            });
+        }
+        pd.setMessage(message);
+        pd.show();
+    }
+
+    /**
+     * Makes the toast that shows a message saying that the calculation took too long.
+     */
+    protected void showTimeoutToast() {
+        Toast.makeText(activity, "This calculation is taking too long, so it has been stopped. Sorry! :(", Toast.LENGTH_LONG).show();
     }
 
     /**
@@ -542,13 +529,14 @@ public class FunctionMode extends Advanced {
     }
 
     /**
-     * A generalization of the Thread that all the heavy worload calculus functions will use.
+     * A generalization of the calculation that all the heavy worload calculus functions will use; it is
+     * computed in the background by the MathScheduler while a loading dialog is shown.
      */
-    protected class MathThread extends AsyncTask<ArrayList<Token>, Void, ArrayList<Token>> {
-        private Exception error; //If any Exception were to occur
+    protected class MathThread {
         private Command<ArrayList<Token>, ArrayList<Token>> task;
         private Command<Void, Exception> errorHandler;
         private ArrayList<Token> historyInput;
+        private long timeout;
 
         /**
          * Constructor for MathThread.
@@ -556,66 +544,57 @@ public class FunctionMode extends Advanced {
          * @param task         The Command to be executed
          * @param errorHandler The Command that will be called to handle errors
          * @param historyInput The tokens that would appear on history as input
+         * @param timeout      The maximum time (in milliseconds) the task may take
          */
-        public MathThread(Command<ArrayList<Token>, ArrayList<Token>> task, Command<Void, Exception> errorHandler, ArrayList<Token> historyInput) {
+        public MathThread(Command<ArrayList<Token>, ArrayList<Token>> task, Command<Void, Exception> errorHandler, ArrayList<Token> historyInput, long timeout) {
             this.task = task;
             this.errorHandler = errorHandler;
             this.historyInput = historyInput;
+            this.timeout = timeout;
         }
 
-        @Override
-        protected void onPreExecute() {
-            if (pd == null) { //Lazy Initialization
-                //Loading dialog
-                pd = new ProgressDialog(activity, R.style.progressDialog);
-                pd.setTitle("Calculating...");
-                if (historyInput.get(0).getSymbol().equals("∫ ")) { //Very lazy way of doing this
-                    pd.setMessage("This may take a while. Some integrations, especially ones relating to partial fractions can take several minutes or may be impossible.");
-                } else {
-                    pd.setMessage("This may take a while.");
-                }
-                pd.setCancelable(false);
+        /**
+         * Shows the loading dialog and schedules the task; any calculation still running is cancelled.
+         *
+         * @param tokens The expression to perform the task on
+         */
+        public void execute(ArrayList<Token> tokens) {
+            if (historyInput.get(0).getSymbol().equals("∫ ")) { //Very lazy way of doing this
+                showProgressDialog("This may take a while. Some integrations, especially ones relating to partial fractions can take several minutes or may be impossible.");
+            } else {
+                showProgressDialog("This may take a while.");
             }
-            pd.setButton(DialogInterface.BUTTON_NEGATIVE, "Cancel", new DialogInterface.OnClickListener() {
+            Command<Void, ArrayList<Token>> resultHandler = new Command<Void, ArrayList<Token>>() {
                 @Override
-                public void onClick(DialogInterface dialog, int which) {
-                    cancel(true);
+                public Void execute(ArrayList<Token> result) {
+                    pd.dismiss();
+                    if (result == null) { //Something went Wrong
+                        errorHandler.execute(null);
+                    } else {
+                        try {
+                            saveEquation(historyInput, result, filename);
+                        } catch (IOException | ClassNotFoundException e) {
+                            Toast.makeText(activity, "Error saving to history", Toast.LENGTH_LONG).show();
+                        }
+                        display.displayOutput(result);
+                        VariableFactory.ansValueFunc = result;
+                    }
+                    return null;
                 }
-            });
-            pd.show();
-            super.onPreExecute();
-        }
-
-        @Override
-        protected final ArrayList<Token> doInBackground(ArrayList<Token>[] params) {
-            try {
-                android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_MORE_FAVORABLE); //Higher priority
-                return task.execute(params[0]);
-            } catch (Exception e) {
-                error = e;
-                return null;
-            } catch (StackOverflowError e) {
-                throw new IllegalArgumentException("Not enough processing power to compute!");
-            }
-        }
-
-        @Override
-        protected void onPostExecute(ArrayList<Token> result) {
-            pd.dismiss();
-            if (!isCancelled()) {
-                if (result == null) { //Something went Wrong
-                    errorHandler.execute(error);
-                } else {
-                    try {
-                        saveEquation(historyInput, result, filename);
-                    } catch (IOException | ClassNotFoundException e) {
-                        Toast.makeText(activity, "Error saving to history", Toast.LENGTH_LONG).show();
+            };
+            Command<Void, Exception> onError = new Command<Void, Exception>() {
+                @Override
+                public Void execute(Exception error) {
+                    pd.dismiss();
+                    if (error instanceof TimeoutException) {
+                        showTimeoutToast();
+                    } else {
+                        errorHandler.execute(error);
                     }
-                    display.displayOutput(result);
-                    VariableFactory.ansValueFunc = result;
+                    return null;
                 }
-                super.onPostExecute(tokens);
-            }
+            };
+            MathScheduler.getInstance().submit(task, tokens, timeout, resultHandler, onError);
         }
     }
 }
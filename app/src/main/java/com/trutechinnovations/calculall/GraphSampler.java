@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2016 TruTech Innovations Inc - All Rights Reserved
+ */
+
+package com.trutechinnovations.calculall;
+
+import java.util.Arrays;
+
+/**
+ * Samples a function across the graph's bounds and converts it into line segments on the screen.
+ * Instead of sampling a fixed amount of evenly spaced points, the screen is split into coarse
+ * intervals which are then subdivided wherever the curve bends, starts or stops existing, or jumps;
+ * no interval is subdivided past the given resolution (in pixels) so the work is capped by the
+ * width of the screen.
+ *
+ * @author Alston Lin, Jason Fok
+ * @version 3.0
+ */
+public class GraphSampler {
+
+    public static final float COARSE_RESOLUTION = 16; //Width (pixels) of the initial intervals
+    public static final float FINE_RESOLUTION = 1;
+    private static final float TOLERANCE = 0.5f; //Max distance (pixels) the curve may be from a line before subdividing
+    private static final float MAX_COORDINATE = 1e6f; //Keeps huge values from overflowing when drawn
+
+    private final CompiledExpression function;
+    private final double lowerX, lowerY;
+    private final double xMultiplier, yMultiplier;
+    private final int width, height;
+    private float[] lines = new float[256]; //Stored as x0, y0, x1, y1 for each segment
+    private int size;
+    private volatile boolean cancelled = false;
+
+    /**
+     * Creates a new sampler for the given function, bounds, and screen size.
+     *
+     * @param function The function to sample
+     * @param lowerX   The minimum x value
+     * @param upperX   The maximum x value
+     * @param lowerY   The minimum y value
+     * @param upperY   The maximum y value
+     * @param width    The width of the screen in pixels
+     * @param height   The height of the screen in pixels
+     */
+    public GraphSampler(CompiledExpression function, float lowerX, float upperX, float lowerY, float upperY, int width, int height) {
+        this.function = function;
+        this.lowerX = lowerX;
+        this.lowerY = lowerY;
+        this.width = width;
+        this.height = height;
+        xMultiplier = width / (double) (upperX - lowerX);
+        yMultiplier = height / (double) (upperY - lowerY);
+    }
+
+    /**
+     * Samples the function across the whole screen.
+     *
+     * @param resolution The smallest width (in pixels) an interval may be subdivided into; use
+     *                   COARSE_RESOLUTION for a quick first draft, and FINE_RESOLUTION for the final graph
+     * @return The line segments to draw, in screen coordinates, as expected by Canvas.drawLines(),
+     * or null if the sampling has been cancelled
+     */
+    public float[] sample(float resolution) {
+        size = 0;
+        int intervals = Math.max(1, (int) Math.ceil(width / COARSE_RESOLUTION));
+        double step = width / xMultiplier / intervals;
+        double minStep = resolution / xMultiplier;
+        double x0 = lowerX;
+        float y0 = evaluate(x0);
+        for (int i = 1; i <= intervals; i++) {
+            if (cancelled) {
+                return null;
+            }
+            double x1 = lowerX + i * step;
+            float y1 = evaluate(x1);
+            subdivide(x0, y0, x1, y1, minStep);
+            x0 = x1;
+            y0 = y1;
+        }
+        return Arrays.copyOf(lines, size);
+    }
+
+    /**
+     * Stops any sampling in progress (or any future sampling) by this sampler.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Recursively splits the given interval in half until a line is a close enough approximation
+     * of the curve, or the interval reaches the minimum width.
+     *
+     * @param x0      The starting x value
+     * @param y0      The y value (screen coordinates) at x0
+     * @param x1      The ending x value
+     * @param y1      The y value (screen coordinates) at x1
+     * @param minStep The minimum width of an interval
+     */
+    private void subdivide(double x0, float y0, double x1, float y1, double minStep) {
+        boolean exists0 = !Float.isNaN(y0), exists1 = !Float.isNaN(y1);
+        double xm = (x0 + x1) / 2;
+        if (x1 - x0 <= minStep) {
+            if (exists0 && exists1) {
+                if (Math.abs(y1 - y0) > height) { //Checks if the jump is an asymptote or just steep
+                    float ym = evaluate(xm);
+                    if (Float.isNaN(ym) || ym < Math.min(y0, y1) || ym > Math.max(y0, y1)) {
+                        return;
+                    }
+                }
+                addLine(x0, y0, x1, y1);
+            }
+            return;
+        }
+        float ym = evaluate(xm);
+        boolean existsM = !Float.isNaN(ym);
+        if (exists0 != exists1 || exists0 != existsM) { //Function starts or stops existing somewhere in here
+            subdivide(x0, y0, xm, ym, minStep);
+            subdivide(xm, ym, x1, y1, minStep);
+        } else if (exists0) {
+            if (Math.abs(ym - (y0 + y1) / 2) > TOLERANCE) { //Curve bends away from the line
+                subdivide(x0, y0, xm, ym, minStep);
+                subdivide(xm, ym, x1, y1, minStep);
+            } else {
+                addLine(x0, y0, x1, y1);
+            }
+        }
+    }
+
+    /**
+     * Finds the y value of the function at the given x, as a screen coordinate.
+     *
+     * @param x The x value
+     * @return The y screen coordinate, or NaN if the function does not exist there
+     */
+    private float evaluate(double x) {
+        double y = function.valueAt(x);
+        if (y == Integer.MAX_VALUE || Double.isNaN(y) || Double.isInfinite(y)) {
+            return Float.NaN;
+        }
+        double screenY = height - (y - lowerY) * yMultiplier;
+        return (float) Math.max(-MAX_COORDINATE, Math.min(MAX_COORDINATE, screenY));
+    }
+
+    /**
+     * Adds a line segment to the output.
+     *
+     * @param x0 The starting x value
+     * @param y0 The starting y screen coordinate
+     * @param x1 The ending x value
+     * @param y1 The ending y screen coordinate
+     */
+    private void addLine(double x0, float y0, double x1, float y1) {
+        if (size + 4 > lines.length) {
+            lines = Arrays.copyOf(lines, lines.length * 2);
+        }
+        lines[size++] = (float) ((x0 - lowerX) * xMultiplier);
+        lines[size++] = y0;
+        lines[size++] = (float) ((x1 - lowerX) * xMultiplier);
+        lines[size++] = y1;
+    }
+}
@@ -15,6 +15,10 @@ import android.view.View;
 import android.widget.PopupWindow;
 
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * A custom view that will show the graph of a function.
@@ -24,11 +28,24 @@ import java.util.ArrayList;
  */
 public class GraphView extends View {
 
-    private static final int NUM_OF_POINTS = 10000;
     private static final int NUM_OF_GRIDELINES = 10; //NOTE: NOT EXACT; IT WILL BE WITHIN AN ORDER OF MAGNITUDE
     private static final int MAX_INCREMENT_TEXTS = 15;
+    private static final ThreadFactory threadFactory = new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Graph Thread");
+            thread.setPriority(Thread.NORM_PRIORITY - 1); //Keeps the UI responsive
+            return thread;
+        }
+    };
+    private static final ExecutorService PLOT_EXECUTOR = Executors.newSingleThreadExecutor(threadFactory);
     private PopupWindow popupWindow;
     private ArrayList<Token> function;
+    private CompiledExpression compiledFunction; //null if the function cannot be evaluated
+    private float[] graphLines; //The sampled graph in screen coordinates; null if it has not been sampled yet
+    //The plot currently being sampled in the background
+    private GraphSampler sampler;
+    private Future<?> plotTask;
+    private int plotGeneration = 0; //Incremented for every new plot so that stale results are ignored
     private RectF exitRect; //The rectangle of tne exit button
     private Paint axisPaint;
     private Paint exitPaint;
@@ -115,6 +132,12 @@ public class GraphView extends View {
      */
     public void setFunction(ArrayList<Token> function) {
         this.function = Utility.setupExpression(Utility.condenseDigits(function));
+        try {
+            compiledFunction = CompiledExpression.compile(this.function);
+        } catch (RuntimeException e) { //Malformed expression; nothing will be graphed
+            compiledFunction = null;
+        }
+        startPlot();
     }
 
     /**
@@ -139,6 +162,72 @@ public class GraphView extends View {
         this.upperX = upperX;
         this.lowerY = lowerY;
         this.upperY = upperY;
+        startPlot();
+    }
+
+    /**
+     * Cancels the plot being sampled, if any, and starts sampling the function for the current
+     * bounds and size in the background. A coarse version of the graph is published first,
+     * followed by the refined one.
+     */
+    private void startPlot() {
+        cancelPlot();
+        graphLines = null;
+        invalidate();
+        if (compiledFunction == null || width == 0 || height == 0 || upperX == lowerX || upperY == lowerY) {
+            return; //Nothing to sample yet
+        }
+        final int generation = plotGeneration;
+        final GraphSampler sampler = new GraphSampler(compiledFunction.copy(), lowerX, upperX, lowerY, upperY, width, height);
+        this.sampler = sampler;
+        plotTask = PLOT_EXECUTOR.submit(new Runnable() {
+            @Override
+            public void run() {
+                float[] coarse = sampler.sample(GraphSampler.COARSE_RESOLUTION);
+                if (coarse == null) { //Cancelled
+                    return;
+                }
+                publishPlot(generation, coarse);
+                float[] fine = sampler.sample(GraphSampler.FINE_RESOLUTION);
+                if (fine != null) {
+                    publishPlot(generation, fine);
+                }
+            }
+        });
+    }
+
+    /**
+     * Cancels the plot being sampled, if any.
+     */
+    private void cancelPlot() {
+        plotGeneration++;
+        if (sampler != null) {
+            sampler.cancel();
+            sampler = null;
+        }
+        if (plotTask != null) {
+            plotTask.cancel(true);
+            plotTask = null;
+        }
+    }
+
+    /**
+     * Hands the sampled graph over to the UI thread to be drawn, unless the plot has been
+     * replaced in the meantime.
+     *
+     * @param generation The plot generation the lines were sampled for
+     * @param lines      The sampled graph
+     */
+    private void publishPlot(final int generation, final float[] lines) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation == plotGeneration) {
+                    graphLines = lines;
+                    invalidate();
+                }
+            }
+        });
     }
 
     /**
@@ -158,91 +247,20 @@ public class GraphView extends View {
     }
 
     /**
-     * Main graphing algorithm for the mode. Takes the tokens
-     * given and draws it onto the given canvas.
+     * Draws the latest sampled graph of the function; the sampling itself
+     * is done in the background (see startPlot()).
      *
      * @param canvas The canvas to draw on
      */
     private void drawGraph(Canvas canvas) {
-        final int NULL = 0, POSITIVE = 1, NEGATIVE = 2;
-
-        ArrayList<Double> xValues = new ArrayList<>();
-        ArrayList<Double> yValues = new ArrayList<>();
-
-        //Calculates important values that will adjust how the graph would look
-        double xRange = upperX - lowerX;
-        double xMultiplier = width / xRange;
-        double yMultiplier = height / (upperY - lowerY);
-
-        //Plots the 100 points across the screen
-        for (int i = 0; i <= NUM_OF_POINTS; i++) {
-            double x = lowerX + i * (xRange / NUM_OF_POINTS);
-            double y = Utility.valueAt(function, x);
-            xValues.add(x);
-            yValues.add(y);
-        }
-
-        //Keeps tracks on the slopes
-        ArrayList<Double> slopes = findSlopes(yValues, lowerX, xRange / NUM_OF_POINTS);
-        int beforeLastSlopePositive = NULL;
-        int lastSlopePositive = NULL;
-        //Now draws a line in between each point
-        for (int i = 0; i < NUM_OF_POINTS; i++) {
-            Double startX = xValues.get(i);
-            Double endX = xValues.get(i + 1);
-            Double startY = yValues.get(i);
-            Double endY = yValues.get(i + 1);
-            int slopeIsPositive;
-            if (startY != Integer.MAX_VALUE && endY != Integer.MAX_VALUE) { //Does not graph points that DNE or outside the screen
-                slopeIsPositive = i + 1 >= slopes.size() ? NULL : slopes.get(i + 1) > 0 ? POSITIVE : NEGATIVE; //Checks after
-                //Checks for conditions for asympotes: +-+ or -+- slope
-                boolean hasAsymptote = (beforeLastSlopePositive == POSITIVE && lastSlopePositive == NEGATIVE && slopeIsPositive == POSITIVE) ||
-                        (beforeLastSlopePositive == NEGATIVE && lastSlopePositive == POSITIVE && slopeIsPositive == NEGATIVE);
-                if (!hasAsymptote) {
-                    startX = (startX - lowerX) * xMultiplier;
-                    endX = (endX - lowerX) * xMultiplier;
-                    startY = (startY - lowerY) * yMultiplier;
-                    endY = (endY - lowerY) * yMultiplier;
-                    canvas.drawLine(startX.floatValue(), height - startY.floatValue(), endX.floatValue(), (float) (height - endY), blackPaint);
-                } else {
-                    slopeIsPositive = NULL;
-                }
-            } else { //Either does not matter or points DNE
-                slopeIsPositive = NULL;
-            }
-            beforeLastSlopePositive = lastSlopePositive;
-            lastSlopePositive = slopeIsPositive;
-            //Saves the origin coordinate
-            originX = -lowerX * xMultiplier;
-            originY = -lowerY * yMultiplier;
+        //Saves the origin coordinate
+        originX = -lowerX * width / (upperX - lowerX);
+        originY = -lowerY * height / (upperY - lowerY);
+        if (graphLines != null) {
+            canvas.drawLines(graphLines, blackPaint);
         }
     }
 
-    /**
-     * Finds th slopes in between each points on the given list.
-     *
-     * @param yValues    The list of y values
-     * @param lowerX     The starting X value
-     * @param increments Distance between each point
-     * @return The slopes in between the points
-     */
-    private ArrayList<Double> findSlopes(ArrayList<Double> yValues, double lowerX, double increments) {
-        ArrayList<Double> slopes = new ArrayList<>();
-        double startX = lowerX;
-        for (int i = 0; i < NUM_OF_POINTS; i++) {
-            double endX = lowerX + (i + 1) * increments;
-            Double startY = yValues.get(i);
-            Double endY = yValues.get(i + 1);
-            double slope = Integer.MAX_VALUE; //Default value of MAX_VALUE
-            if (startY != Integer.MAX_VALUE && endY != Integer.MAX_VALUE) { //Both points exists
-                slope = (endY - startY) / (endX - startX);
-            }
-            slopes.add(slope);
-            startX = endX;
-        }
-        return slopes;
-    }
-
     /**
      * Draws the axises for the graph. This will draw the x and y axises
      * as well as the incrementations along it.
@@ -332,6 +350,16 @@ public class GraphView extends View {
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         width = w;
         height = h;
+        startPlot();
+    }
+
+    /**
+     * Called by Android when this view is no longer shown; stops any plot being sampled.
+     */
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        cancelPlot();
     }
 
     /**
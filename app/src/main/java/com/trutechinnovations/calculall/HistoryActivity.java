@@ -5,6 +5,7 @@ import android.graphics.drawable.BitmapDrawable;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
 import android.support.v7.app.AppCompatActivity;
+import android.util.LruCache;
 import android.util.TypedValue;
 import android.view.GestureDetector;
 import android.view.Gravity;
@@ -16,12 +17,8 @@ import android.view.ViewGroup;
 import android.widget.BaseAdapter;
 import android.widget.ListView;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.util.ArrayList;
-import java.util.Collections;
 
 /**
  * Created by david on 1/15/2017.
@@ -30,6 +27,8 @@ import java.util.Collections;
 public class HistoryActivity extends AppCompatActivity {
     public static final double HISTORY_IO_RATIO = 0.7; //The size of the output / input in the history
     public static final String FILENAME = "FILENAME";
+    private static final int PAGE_SIZE = 20; //Amount of entries loaded from the history at a time
+    private static final int CACHE_SIZE = 4000; //Maximum amount of Tokens kept in decoded entries
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -42,60 +41,11 @@ public class HistoryActivity extends AppCompatActivity {
         getSupportActionBar().setTitle("Calculation History");
         getSupportActionBar().setDisplayHomeAsUpEnabled(true);
         getSupportActionBar().setDisplayShowHomeEnabled(true);
-        //Retrieves the user data from saved memory
-        ArrayList<Object[]> history;
-        try {
-            FileInputStream stream = openFileInput(filename);
-            ObjectInputStream objectStream = new ObjectInputStream(stream);
-            history = (ArrayList<Object[]>) objectStream.readObject();
-            //Reverses the order so that the most recent is at the top
-            Collections.reverse(history);
-        } catch (FileNotFoundException e) { //No history
-            history = new ArrayList<>();
-
-            ArrayList<Token> list1 = new ArrayList<>();
-            ArrayList<Token> list2 = new ArrayList<>();
-
-            list1.add(new StringToken("No History to show"));
-            list2.add(new StringToken(""));
-
-            ArrayList<Token>[] message = new ArrayList[2];
-            message[0] = list1;
-            message[1] = list2;
-            history.add(message);
-        } catch (ClassNotFoundException e) {
-            history = new ArrayList<>();
-
-            ArrayList<Token> list1 = new ArrayList<>();
-            ArrayList<Token> list2 = new ArrayList<>();
-
-            list1.add(new StringToken("No History to show"));
-            list2.add(new StringToken(""));
-
-            ArrayList<Token>[] message = new ArrayList[2];
-            message[0] = list1;
-            message[1] = list2;
-            history.add(message);
-        } catch (IOException e) {
-            history = new ArrayList<>();
-
-            ArrayList<Token> list1 = new ArrayList<>();
-            ArrayList<Token> list2 = new ArrayList<>();
-
-            list1.add(new StringToken("No History to show"));
-            list2.add(new StringToken(""));
-
-            ArrayList<Token>[] message = new ArrayList[2];
-            message[0] = list1;
-            message[1] = list2;
-            history.add(message);
-        }
-
         //Finds the ListView from the inflated History XML so it could be manipulated
         ListView lv = (ListView) findViewById(R.id.historyList);
 
         //Attaches the custom Adapter to the ListView so that it can configure the items and their Views within it
-        lv.setAdapter(new HistoryAdapter(history));
+        lv.setAdapter(new HistoryAdapter(filename));
     }
 
     public boolean onOptionsItemSelected(MenuItem item){
@@ -108,25 +58,79 @@ public class HistoryActivity extends AppCompatActivity {
     }
 
     /**
-     * The custom Adapter for the ListView in the calculation history.
+     * Creates an entry that shows the given message instead of a calculation.
+     *
+     * @param text The message to show
+     * @return The entry
+     */
+    private static Object[] makeMessage(String text) {
+        ArrayList<Token> list1 = new ArrayList<>();
+        ArrayList<Token> list2 = new ArrayList<>();
+
+        list1.add(new StringToken(text));
+        list2.add(new StringToken(""));
+
+        ArrayList<Token>[] message = new ArrayList[2];
+        message[0] = list1;
+        message[1] = list2;
+        return message;
+    }
+
+    /**
+     * The custom Adapter for the ListView in the calculation history. Entries are read from the
+     * history a page at a time as they are scrolled to (newest first), and only a limited amount of
+     * them are kept decoded in memory.
      */
     private class HistoryAdapter extends BaseAdapter {
         private GestureDetector gestureDetector;
-        private ArrayList<Object[]> history; //The data that will be shown in the ListView
-
-        public HistoryAdapter(ArrayList<Object[]> history) {
-            this.history = history;
+        private String filename;
+        private int count; //Amount of entries in the history
+        private LruCache<Integer, Object[]> entries; //Decoded entries, by position
+
+        public HistoryAdapter(String filename) {
+            this.filename = filename;
+            try {
+                count = HistoryLog.getInstance().size(HistoryActivity.this, filename);
+            } catch (IOException e) {
+                count = 0;
+            }
+            entries = new LruCache<Integer, Object[]>(CACHE_SIZE) {
+                @Override
+                protected int sizeOf(Integer key, Object[] entry) {
+                    return 1 + ((ArrayList<Token>) entry[0]).size() + ((ArrayList<Token>) entry[1]).size();
+                }
+            };
             gestureDetector = new GestureDetector(getApplicationContext(), new SingleTapUp());
         }
 
         @Override
         public int getCount() {
-            return history.size();
+            return count == 0 ? 1 : count; //Shows a message if there is no history
         }
 
         @Override
         public Object getItem(int position) {
-            return history.get(position);
+            if (count == 0) { //No history
+                return makeMessage("No History to show");
+            }
+            Object[] entry = entries.get(position);
+            if (entry == null) { //Loads the page the entry is in
+                int from = position - position % PAGE_SIZE;
+                try {
+                    ArrayList<Object[]> page = HistoryLog.getInstance().read(HistoryActivity.this, filename, from, PAGE_SIZE);
+                    for (int i = 0; i < page.size(); i++) {
+                        entries.put(from + i, page.get(i));
+                    }
+                    entry = entries.get(position);
+                } catch (IOException e) {
+                    entry = null;
+                }
+                if (entry == null) {
+                    entry = makeMessage("Unable to load this calculation");
+                    entries.put(position, entry);
+                }
+            }
+            return entry;
         }
 
         @Override
@@ -159,12 +163,12 @@ public class HistoryActivity extends AppCompatActivity {
             output.setFontSize((int) (Basic.getInstance().activity.getFontSize() * HISTORY_IO_RATIO));
 
             //Enters the appropriate expressions to the OutputView
-            Object[] entry = history.get(position);
+            Object[] entry = (Object[]) getItem(position);
             input.display((ArrayList<Token>) entry[0]);
             output.display((ArrayList<Token>) entry[1]);
 
             //To respond to user touches
-            final ArrayList<Token> INPUT = (ArrayList<Token>) history.get(position)[0]; //Makes a constant reference so that history can be accessed by an inner class
+            final ArrayList<Token> INPUT = (ArrayList<Token>) entry[0]; //Makes a constant reference so that history can be accessed by an inner class
             convertView.setOnTouchListener(new View.OnTouchListener() {
                 @Override
                 public boolean onTouch(View v, MotionEvent event) {
@@ -0,0 +1,758 @@
+/*
+ * Copyright (c) 2016 TruTech Innovations Inc - All Rights Reserved
+ */
+
+package com.trutechinnovations.calculall;
+
+import android.content.Context;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores the calculation history of each mode as an append-only log of entries, so saving a
+ * calculation only writes that calculation instead of re-writing the whole history. Each entry is
+ * written as its length, its contents and its length again, which allows the newest entries to be
+ * read from the end of the file without reading the rest of it. Once the log grows to a multiple
+ * of the history size the older entries are dropped (compacted).
+ * <p>
+ * Entries are not written right away; they wait in memory and are written together by a
+ * background thread once enough of them build up or shortly after the first one, so saving a
+ * calculation never waits on the disk. Call flush() before the app may be killed (in onPause).
+ * <p>
+ * Tokens that can be re-created by their factories are stored as just their type; any other
+ * Token (ex. Matrices) falls back to being serialized on its own.
+ *
+ * @author Alston Lin
+ * @version 3.0
+ */
+public class HistoryLog {
+
+    private static final int MAGIC = 0x43484C47; //Marks the file as a log, rather than the old serialized ArrayList
+    private static final int FILE_VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int COMPACT_FACTOR = 2; //Compacts once there are this many times more entries than shown
+    private static final byte DIGIT = 0, NUMBER = 1, STRING = 2, BRACKET = 3, PLACEHOLDER = 4, OPERATOR = 5,
+            FUNCTION = 6, VARIABLE = 7, SERIALIZED = 8; //Token tags
+    private static final int FLUSH_SIZE = 16; //Writes right away once this many entries are waiting
+    private static final long FLUSH_DELAY = 2000; //Maximum time (in milliseconds) an entry waits to be written
+    private static final HistoryLog INSTANCE = new HistoryLog();
+    private final HashMap<String, Integer> sizes = new HashMap<>(); //Number of entries in each log
+    private final LinkedHashMap<File, ArrayList<byte[]>> pending = new LinkedHashMap<>(); //Entries waiting to be written
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor();
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+    private int numPending = 0;
+    private ScheduledFuture<?> scheduledFlush;
+
+    /**
+     * Allows for the Singleton pattern so there would be only one instance.
+     */
+    private HistoryLog() {
+    }
+
+    /**
+     * @return The singleton instance
+     */
+    public static HistoryLog getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Adds an entry to the end of the history. The entry is encoded right away (so later changes to
+     * the Tokens do not affect it) but is written to the file in the background.
+     *
+     * @param context  The context that owns the history file
+     * @param filename The name of the history file
+     * @param input    The expression that the user inputted into the calculator
+     * @param output   The result of the calculation
+     * @throws IOException If a Token could not be encoded
+     */
+    public void append(Context context, String filename, ArrayList<Token> input, ArrayList<Token> output) throws IOException {
+        File file = context.getFileStreamPath(filename);
+        byte[] record = encodeEntry(input, output);
+        synchronized (pending) {
+            ArrayList<byte[]> records = pending.get(file);
+            if (records == null) {
+                records = new ArrayList<>();
+                pending.put(file, records);
+            }
+            records.add(record);
+            numPending++;
+            if (numPending >= FLUSH_SIZE) {
+                writer.execute(flushTask);
+            } else if (scheduledFlush == null) {
+                scheduledFlush = writer.schedule(flushTask, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Writes all the entries that are waiting, on the calling thread; each log is written in a
+     * single write no matter how many entries are waiting for it. Entries that could not be written
+     * are put back to wait for the next flush.
+     */
+    public synchronized void flush() {
+        LinkedHashMap<File, ArrayList<byte[]>> toWrite;
+        synchronized (pending) {
+            if (numPending == 0) {
+                return;
+            }
+            toWrite = new LinkedHashMap<>(pending);
+            pending.clear();
+            numPending = 0;
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+        }
+        for (Map.Entry<File, ArrayList<byte[]>> e : toWrite.entrySet()) {
+            try {
+                appendRecords(e.getKey(), e.getValue());
+            } catch (IOException ex) {
+                ex.printStackTrace();
+                requeue(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    /**
+     * Puts entries that could not be written back in front of any that were added since.
+     *
+     * @param file    The history file
+     * @param records The encoded entries, from oldest to newest
+     */
+    private void requeue(File file, ArrayList<byte[]> records) {
+        synchronized (pending) {
+            ArrayList<byte[]> newer = pending.get(file);
+            if (newer != null) {
+                records.addAll(newer);
+                numPending -= newer.size();
+            }
+            pending.put(file, records);
+            numPending += records.size();
+        }
+    }
+
+    /**
+     * Adds the given records to the end of the log. If writing fails the log is cut back to where
+     * it was, so none of the records are written.
+     *
+     * @param file    The history file
+     * @param records The encoded entries, from oldest to newest
+     * @throws IOException If the log could not be written to
+     */
+    private void appendRecords(File file, ArrayList<byte[]> records) throws IOException {
+        int size = getSize(file);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (byte[] record : records) {
+            writeRecord(out, record);
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() < HEADER_SIZE) { //New file
+                raf.setLength(0);
+                raf.writeInt(MAGIC);
+                raf.writeInt(FILE_VERSION);
+            }
+            long end = raf.length();
+            raf.seek(end);
+            try {
+                raf.write(bytes.toByteArray()); //In a single write so that a failure can only leave a partial record at the end
+            } catch (IOException e) {
+                raf.setLength(end);
+                throw e;
+            }
+        } finally {
+            raf.close();
+        }
+        size += records.size();
+        sizes.put(file.getPath(), size);
+        if (size >= Basic.HISTORY_SIZE * COMPACT_FACTOR) {
+            try {
+                compact(file, Basic.HISTORY_SIZE);
+            } catch (IOException e) { //The records are written; compacts again on the next write
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Reads a page of entries in the history, counting from the newest one; only the entries in
+     * the page are decoded.
+     *
+     * @param context  The context that owns the history file
+     * @param filename The name of the history file
+     * @param from     The index of the first entry to read, where 0 is the newest
+     * @param n        The maximum amount of entries to read
+     * @return The entries as {input, output} pairs, from newest to oldest
+     * @throws IOException If the history could not be read
+     */
+    public synchronized ArrayList<Object[]> read(Context context, String filename, int from, int n) throws IOException {
+        flush();
+        File file = context.getFileStreamPath(filename);
+        ArrayList<Object[]> entries = new ArrayList<>();
+        n = Math.min(n, Basic.HISTORY_SIZE - from); //Entries past the history size are waiting to be compacted
+        if (n <= 0 || getSize(file) == 0) {
+            return entries;
+        }
+        for (byte[] record : readRecords(file, from, n)) {
+            entries.add(decodeEntry(record));
+        }
+        return entries;
+    }
+
+    /**
+     * @param context  The context that owns the history file
+     * @param filename The name of the history file
+     * @return The amount of entries in the history
+     * @throws IOException If the history could not be read
+     */
+    public synchronized int size(Context context, String filename) throws IOException {
+        flush();
+        return Math.min(getSize(context.getFileStreamPath(filename)), Basic.HISTORY_SIZE);
+    }
+
+    /**
+     * Finds the amount of entries in the given log, counting them (without decoding them) the first
+     * time the log is used. An old serialized history is converted to a log, and an entry that was
+     * only partly written is cut off.
+     *
+     * @param file The history file
+     * @return The amount of entries in the log
+     * @throws IOException If the file could not be read
+     */
+    private int getSize(File file) throws IOException {
+        Integer size = sizes.get(file.getPath());
+        if (size != null) {
+            return size;
+        }
+        if (!file.exists() || file.length() == 0) {
+            size = 0;
+        } else {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC || raf.readInt() != FILE_VERSION) {
+                    size = -1;
+                } else {
+                    size = 0;
+                    long pos = HEADER_SIZE;
+                    long length = raf.length();
+                    while (pos + 8 <= length) {
+                        raf.seek(pos);
+                        int recordLength = raf.readInt();
+                        if (recordLength < 0 || pos + 8 + recordLength > length) { //Partly written
+                            break;
+                        }
+                        raf.seek(pos + 4 + recordLength);
+                        if (raf.readInt() != recordLength) { //Corrupted
+                            break;
+                        }
+                        pos += 8 + recordLength;
+                        size++;
+                    }
+                    raf.setLength(pos);
+                }
+            } finally {
+                raf.close();
+            }
+            if (size == -1) { //Not a log
+                size = migrate(file);
+            }
+        }
+        sizes.put(file.getPath(), size);
+        return size;
+    }
+
+    /**
+     * Converts a history file in the old format (a serialized ArrayList of entries) to a log. The
+     * file is only replaced once it has been read; if it cannot be read (ex. a Token class has
+     * changed) it is kept as a backup (see backup()) and a new log is started.
+     *
+     * @param file The history file
+     * @return The amount of entries in the new log
+     * @throws IOException If the log could not be written, or the file could not be backed up
+     */
+    private int migrate(File file) throws IOException {
+        ArrayList<Object[]> history;
+        try {
+            ObjectInputStream in = new ObjectInputStream(new FileInputStream(file));
+            try {
+                history = (ArrayList<Object[]>) in.readObject();
+            } finally {
+                in.close();
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException e) { //Unreadable; keeps it and starts over
+            e.printStackTrace();
+            backup(file);
+            return 0;
+        }
+        ArrayList<byte[]> records = new ArrayList<>();
+        for (Object[] entry : history) {
+            records.add(encodeEntry((ArrayList<Token>) entry[0], (ArrayList<Token>) entry[1]));
+        }
+        writeLog(file, records);
+        return records.size();
+    }
+
+    /**
+     * Moves the given file out of the way without deleting it, to the first of file.bak,
+     * file.bak1, file.bak2, ... that does not exist yet.
+     *
+     * @param file The history file
+     * @throws IOException If the file could not be moved
+     */
+    private void backup(File file) throws IOException {
+        File backup = new File(file.getPath() + ".bak");
+        for (int i = 1; backup.exists(); i++) {
+            backup = new File(file.getPath() + ".bak" + i);
+        }
+        if (!file.renameTo(backup)) {
+            throw new IOException("Could not back up " + file.getName());
+        }
+    }
+
+    /**
+     * Drops all but the newest entries of the given log.
+     *
+     * @param file The history file
+     * @param keep The amount of entries to keep
+     * @throws IOException If the log could not be rewritten
+     */
+    private void compact(File file, int keep) throws IOException {
+        ArrayList<byte[]> records = readRecords(file, 0, keep);
+        Collections.reverse(records); //Back to oldest first
+        writeLog(file, records);
+        sizes.put(file.getPath(), records.size());
+    }
+
+    /**
+     * Replaces the given file with a log of the given records. The log is written to a temporary
+     * file first so the history is not lost if writing fails.
+     *
+     * @param file    The history file
+     * @param records The encoded entries, from oldest to newest
+     * @throws IOException If the log could not be written
+     */
+    private void writeLog(File file, ArrayList<byte[]> records) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(FILE_VERSION);
+            for (byte[] record : records) {
+                writeRecord(out, record);
+            }
+            raf.setLength(0);
+            raf.write(bytes.toByteArray());
+        } finally {
+            raf.close();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not replace " + file.getName());
+        }
+    }
+
+    /**
+     * Reads records in the log, starting at the end of the file; the records before the page are
+     * skipped by only reading their lengths.
+     *
+     * @param file The history file (must be a valid log)
+     * @param from The amount of newest records to skip
+     * @param n    The maximum amount of records to read
+     * @return The records, from newest to oldest
+     * @throws IOException If the file could not be read
+     */
+    private ArrayList<byte[]> readRecords(File file, int from, int n) throws IOException {
+        ArrayList<byte[]> records = new ArrayList<>();
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            long pos = raf.length();
+            int skipped = 0;
+            while (records.size() < n && pos > HEADER_SIZE) {
+                raf.seek(pos - 4);
+                int length = raf.readInt();
+                long start = pos - 4 - length;
+                if (length < 0 || start - 4 < HEADER_SIZE) {
+                    throw new IOException("Corrupted history file");
+                }
+                if (skipped < from) {
+                    skipped++;
+                } else {
+                    byte[] record = new byte[length];
+                    raf.seek(start);
+                    raf.readFully(record);
+                    records.add(record);
+                }
+                pos = start - 4;
+            }
+        } finally {
+            raf.close();
+        }
+        return records;
+    }
+
+    /**
+     * Writes a record, surrounded by its length.
+     *
+     * @param out    The stream to write to
+     * @param record The record to write
+     * @throws IOException If the stream could not be written to
+     */
+    private static void writeRecord(DataOutputStream out, byte[] record) throws IOException {
+        out.writeInt(record.length);
+        out.write(record);
+        out.writeInt(record.length);
+    }
+
+    /**
+     * Encodes an entry of the history.
+     *
+     * @param input  The expression that the user inputted into the calculator
+     * @param output The result of the calculation
+     * @return The encoded entry
+     * @throws IOException If a Token could not be encoded
+     */
+    private static byte[] encodeEntry(ArrayList<Token> input, ArrayList<Token> output) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeTokens(out, input);
+        writeTokens(out, output);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes an entry of the history.
+     *
+     * @param record The encoded entry
+     * @return The entry as an {input, output} pair
+     * @throws IOException If the entry could not be decoded
+     */
+    private static Object[] decodeEntry(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        Object[] entry = new Object[2];
+        entry[0] = readTokens(in);
+        entry[1] = readTokens(in);
+        return entry;
+    }
+
+    /**
+     * Writes a list of Tokens, followed by the dependencies between the Tokens in the list.
+     *
+     * @param out    The stream to write to
+     * @param tokens The Tokens to write
+     * @throws IOException If the Tokens could not be written
+     */
+    private static void writeTokens(DataOutputStream out, ArrayList<Token> tokens) throws IOException {
+        IdentityHashMap<Token, Integer> indices = new IdentityHashMap<>();
+        out.writeInt(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            Token t = tokens.get(i);
+            indices.put(t, i);
+            writeToken(out, t);
+        }
+        //Dependencies are stored as (token, dependency) index pairs; ones outside the list are dropped
+        ArrayList<Integer> pairs = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            for (Token dependency : tokens.get(i).getDependencies()) {
+                Integer index = indices.get(dependency);
+                if (index != null) {
+                    pairs.add(i);
+                    pairs.add(index);
+                }
+            }
+        }
+        out.writeInt(pairs.size() / 2);
+        for (int index : pairs) {
+            out.writeInt(index);
+        }
+    }
+
+    /**
+     * Reads a list of Tokens written by writeTokens().
+     *
+     * @param in The stream to read from
+     * @return The Tokens
+     * @throws IOException If the Tokens could not be read
+     */
+    private static ArrayList<Token> readTokens(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        ArrayList<Token> tokens = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tokens.add(readToken(in));
+        }
+        int numPairs = in.readInt();
+        for (int i = 0; i < numPairs; i++) {
+            Token t = tokens.get(in.readInt());
+            t.addDependency(tokens.get(in.readInt()));
+        }
+        return tokens;
+    }
+
+    /**
+     * Writes a single Token; if it cannot be re-created from its type it is serialized instead.
+     *
+     * @param out The stream to write to
+     * @param t   The Token to write
+     * @throws IOException If the Token could not be written
+     */
+    private static void writeToken(DataOutputStream out, Token t) throws IOException {
+        if (t.getClass() == Digit.class) {
+            out.writeByte(DIGIT);
+            out.writeByte(((Digit) t).getValue());
+        } else if (t.getClass() == Number.class) {
+            out.writeByte(NUMBER);
+            out.writeDouble(((Number) t).getValue());
+        } else if (t.getClass() == StringToken.class && t.getSymbol() != null) {
+            out.writeByte(STRING);
+            out.writeUTF(t.getSymbol());
+        } else {
+            byte tag = t instanceof Bracket ? BRACKET : t instanceof Placeholder ? PLACEHOLDER : t instanceof Operator ? OPERATOR
+                    : t instanceof Function ? FUNCTION : t instanceof Variable ? VARIABLE : SERIALIZED;
+            Token made = tag == SERIALIZED ? null : makeToken(tag, t.getType());
+            if (made instanceof Variable) {
+                ((Variable) made).setNegative(((Variable) t).isNegative());
+            }
+            //Anonymous classes are unique to each factory method, so the class shows where the Token came from
+            if (made != null && made.getClass() == t.getClass() && made.getSymbol().equals(t.getSymbol())) {
+                out.writeByte(tag);
+                out.writeByte(t.getType());
+                if (tag == VARIABLE) {
+                    out.writeBoolean(((Variable) t).isNegative());
+                }
+            } else {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+                objectOut.writeObject(t);
+                objectOut.close();
+                out.writeByte(SERIALIZED);
+                out.writeInt(bytes.size());
+                bytes.writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * Reads a single Token written by writeToken().
+     *
+     * @param in The stream to read from
+     * @return The Token
+     * @throws IOException If the Token could not be read
+     */
+    private static Token readToken(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case DIGIT:
+                int value = in.readByte();
+                return new Digit(value == DigitFactory.DECIMAL ? "." : value == DigitFactory.NEGATIVE ? "-" : Integer.toString(value), value);
+            case NUMBER:
+                return new Number(in.readDouble());
+            case STRING:
+                return new StringToken(in.readUTF());
+            case SERIALIZED:
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                try {
+                    Token t = (Token) new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+                    t.clearDependencies(); //Restored from the dependency pairs instead
+                    return t;
+                } catch (ClassNotFoundException | ClassCastException e) {
+                    throw new IOException("Unknown Token in history");
+                }
+            default:
+                Token t = makeToken(tag, in.readByte());
+                if (t == null) {
+                    throw new IOException("Unknown Token in history");
+                }
+                if (tag == VARIABLE) {
+                    ((Variable) t).setNegative(in.readBoolean());
+                }
+                return t;
+        }
+    }
+
+    /**
+     * Creates a new Token of the given kind and type from its factory.
+     *
+     * @param tag  The kind of Token (see the tag constants)
+     * @param type The type of the Token
+     * @return The new Token, or null if its factory does not make that type
+     */
+    private static Token makeToken(byte tag, int type) {
+        switch (tag) {
+            case BRACKET:
+                switch (type) {
+                    case Bracket.OPEN:
+                        return BracketFactory.makeOpenBracket();
+                    case Bracket.CLOSE:
+                        return BracketFactory.makeCloseBracket();
+                    case Bracket.SQUAREOPEN:
+                        return BracketFactory.makeOpenSquareBracket();
+                    case Bracket.SQUARECLOSED:
+                        return BracketFactory.makeCloseSquareBracket();
+                    case Bracket.MAGNITUDE_OPEN:
+                        return BracketFactory.makeMagnitudeOpen();
+                    case Bracket.MAGNITUDE_CLOSE:
+                        return BracketFactory.makeMagnitudeClose();
+                    case Bracket.SUPERSCRIPT_OPEN:
+                        return BracketFactory.makeSuperscriptOpen();
+                    case Bracket.SUPERSCRIPT_CLOSE:
+                        return BracketFactory.makeSuperscriptClose();
+                    case Bracket.NUM_OPEN:
+                        return BracketFactory.makeNumOpen();
+                    case Bracket.NUM_CLOSE:
+                        return BracketFactory.makeNumClose();
+                    case Bracket.DENOM_OPEN:
+                        return BracketFactory.makeDenomOpen();
+                    case Bracket.DENOM_CLOSE:
+                        return BracketFactory.makeDenomClose();
+                    case Bracket.FRACTION_OPEN:
+                        return BracketFactory.makeFracOpen();
+                    case Bracket.FRACTION_CLOSE:
+                        return BracketFactory.makeFracClose();
+                }
+                return null;
+            case PLACEHOLDER:
+                switch (type) {
+                    case Placeholder.SUPERSCRIPT_BLOCK:
+                        return PlaceholderFactory.makeSuperscriptBlock();
+                    case Placeholder.BASE_BLOCK:
+                        return PlaceholderFactory.makeBaseBlock();
+                    case Placeholder.COMMA:
+                        return PlaceholderFactory.makeComma();
+                }
+                return null;
+            case OPERATOR:
+                switch (type) {
+                    case Operator.ADD:
+                        return OperatorFactory.makeAdd();
+                    case Operator.SUBTRACT:
+                        return OperatorFactory.makeSubtract();
+                    case Operator.MULTIPLY:
+                        return OperatorFactory.makeMultiply();
+                    case Operator.DIVIDE:
+                        return OperatorFactory.makeDivide();
+                    case Operator.FRACTION:
+                        return OperatorFactory.makeFraction();
+                    case Operator.EXPONENT:
+                        return OperatorFactory.makeExponent();
+                    case Operator.FACTORIAL:
+                        return OperatorFactory.makeFactorial();
+                    case Operator.VARROOT:
+                        return OperatorFactory.makeVariableRoot();
+                    case Operator.PERMUTATION:
+                        return OperatorFactory.makePermutation();
+                    case Operator.COMBINATION:
+                        return OperatorFactory.makeCombination();
+                }
+                return null;
+            case FUNCTION:
+                switch (type) {
+                    case Function.SIN:
+                        return FunctionFactory.makeSin();
+                    case Function.COS:
+                        return FunctionFactory.makeCos();
+                    case Function.TAN:
+                        return FunctionFactory.makeTan();
+                    case Function.ARCSIN:
+                        return FunctionFactory.makeASin();
+                    case Function.ARCCOS:
+                        return FunctionFactory.makeACos();
+                    case Function.ARCTAN:
+                        return FunctionFactory.makeATan();
+                    case Function.SINH:
+                        return FunctionFactory.makeSinh();
+                    case Function.COSH:
+                        return FunctionFactory.makeCosh();
+                    case Function.TANH:
+                        return FunctionFactory.makeTanh();
+                    case Function.ARCSINH:
+                        return FunctionFactory.makeASinh();
+                    case Function.ARCCOSH:
+                        return FunctionFactory.makeACosh();
+                    case Function.ARCTANH:
+                        return FunctionFactory.makeATanh();
+                    case Function.CSC:
+                        return FunctionFactory.makeCsc();
+                    case Function.SEC:
+                        return FunctionFactory.makeSec();
+                    case Function.COT:
+                        return FunctionFactory.makeCot();
+                    case Function.LOG10:
+                        return FunctionFactory.makeLog_10();
+                    case Function.LN:
+                        return FunctionFactory.makeLn();
+                    case Function.SQRT:
+                        return FunctionFactory.makeSqrt();
+                    case Function.ERF:
+                        return FunctionFactory.makeErf();
+                    case Function.ERFI:
+                        return FunctionFactory.makeErfi();
+                    case Function.GAMMA:
+                        return FunctionFactory.makeGamma();
+                    case Function.APPELLF1:
+                        return FunctionFactory.makeAppellF1();
+                }
+                return null;
+            case VARIABLE:
+                switch (type) {
+                    case Variable.A:
+                        return VariableFactory.makeA();
+                    case Variable.B:
+                        return VariableFactory.makeB();
+                    case Variable.C:
+                        return VariableFactory.makeC();
+                    case Variable.X:
+                        return VariableFactory.makeX();
+                    case Variable.Y:
+                        return VariableFactory.makeY();
+                    case Variable.PI:
+                        return VariableFactory.makePI();
+                    case Variable.E:
+                        return VariableFactory.makeE();
+                    case Variable.U:
+                        return VariableFactory.makeU();
+                    case Variable.V:
+                        return VariableFactory.makeV();
+                    case Variable.S:
+                        return VariableFactory.makeS();
+                    case Variable.T:
+                        return VariableFactory.makeT();
+                    case Variable.MATRIX_A:
+                        return VariableFactory.makeMatrixA();
+                    case Variable.MATRIX_B:
+                        return VariableFactory.makeMatrixB();
+                    case Variable.MATRIX_C:
+                        return VariableFactory.makeMatrixC();
+                }
+                return null; //ANS and constants depend on the mode or value, so they are serialized
+        }
+        return null;
+    }
+}
@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) 2016 TruTech Innovations Inc - All Rights Reserved
+ */
+
+package com.trutechinnovations.calculall;
+
+import java.util.ArrayList;
+
+/**
+ * Evaluates an expression the same way as Utility.process(), but keeps its progress between calls
+ * so that the expression can be re-evaluated after an edit (ex. for autocalculate) without
+ * processing it all over again.
+ * <p>
+ * All the steps of Utility.process() (adding missing brackets, condensing digits, substituting
+ * variables, setting up the expression, the Shunting Yard Algorithm and evaluating the reverse
+ * polish) are done together in a single pass from left to right. The state of that pass is saved
+ * after every Token; since the stacks are linked lists that are never modified, saving the state
+ * only copies a few references. When the expression is evaluated again, processing resumes from
+ * the state after the part of the expression that has not changed, so typing or deleting at the
+ * end only processes the edited Tokens. Variables may change value between calls, so processing
+ * always resumes from before the first Variable.
+ *
+ * @author Alston Lin
+ * @version 3.0
+ */
+public class IncrementalEvaluator {
+
+    private ArrayList<Token> processed = new ArrayList<>(); //The Tokens the states are for
+    private ArrayList<State> states = new ArrayList<>(); //states.get(i) is the state after the first i Tokens
+    private int angleMode = Function.angleMode; //The angle mode the states were found in
+
+    /**
+     * Creates a new evaluator with no saved progress.
+     */
+    public IncrementalEvaluator() {
+        states.add(new State());
+    }
+
+    /**
+     * Finds the value of the given expression, re-using the progress from the last call for the
+     * part of the expression that has not changed.
+     *
+     * @param tokens The expression to evaluate
+     * @return The numerical value of the expression
+     * @throws IllegalArgumentException If the user has input a invalid expression
+     */
+    public double evaluate(ArrayList<Token> tokens) {
+        if (angleMode != Function.angleMode) { //Functions would give different results
+            clear();
+        }
+        //Finds how much of the expression is unchanged
+        int unchanged = 0;
+        int max = Math.min(tokens.size(), processed.size());
+        while (unchanged < max && tokens.get(unchanged) == processed.get(unchanged) && !(tokens.get(unchanged) instanceof Variable)) {
+            unchanged++;
+        }
+        //Throws away the progress after that point
+        while (processed.size() > unchanged) {
+            processed.remove(processed.size() - 1);
+            states.remove(states.size() - 1);
+        }
+        //Processes the rest
+        State state = states.get(unchanged);
+        for (int i = unchanged; i < tokens.size(); i++) {
+            state = state.copy();
+            state.feed(tokens.get(i));
+            processed.add(tokens.get(i));
+            states.add(state);
+        }
+        return state.copy().finish();
+    }
+
+    /**
+     * Throws away all the saved progress.
+     */
+    public void clear() {
+        processed.clear();
+        states.clear();
+        states.add(new State());
+        angleMode = Function.angleMode;
+    }
+
+    /**
+     * An element of a stack that is never modified, so that a stack can be shared between states.
+     *
+     * @param <E> The type of the elements
+     */
+    private static class Link<E> {
+        private final E value;
+        private final Link<E> next;
+
+        private Link(E value, Link<E> next) {
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * The state of the pass through an expression after some amount of Tokens.
+     */
+    private static class State {
+        private RuntimeException error; //Once the expression is invalid, it stays invalid
+        private int brackets = 0; //Open brackets that have not been closed
+        private Link<Digit> digits; //Digits of the current number, in reverse order
+        private Token last, beforeLast; //The last two Tokens of the set up expression, not yet sent to the Shunting Yard
+        private int setupSize = 0; //The size of the set up expression
+        private Link<Token> operators; //The operator stack of the Shunting Yard Algorithm
+        private Link<Double> values; //The stack of values for evaluating the reverse polish
+        private int numValues = 0;
+
+        /**
+         * @return A copy of this state that can be changed without affecting this one
+         */
+        private State copy() {
+            State s = new State();
+            s.error = error;
+            s.brackets = brackets;
+            s.digits = digits;
+            s.last = last;
+            s.beforeLast = beforeLast;
+            s.setupSize = setupSize;
+            s.operators = operators;
+            s.values = values;
+            s.numValues = numValues;
+            return s;
+        }
+
+        /**
+         * Processes the next Token of the expression.
+         *
+         * @param t The Token
+         */
+        private void feed(Token t) {
+            if (error != null) {
+                return;
+            }
+            try {
+                if (t instanceof Bracket) { //As in Utility.addMissingBrackets()
+                    if (t.getType() == Bracket.OPEN) {
+                        brackets++;
+                    } else if (t.getType() == Bracket.CLOSE) {
+                        brackets--;
+                    }
+                }
+                condense(t);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+
+        /**
+         * Finishes the pass as if the expression ended here; this state should not be used after.
+         *
+         * @return The value of the expression
+         * @throws IllegalArgumentException If the user has input a invalid expression
+         */
+        private double finish() {
+            if (error != null) {
+                throw error;
+            }
+            for (int i = brackets; i > 0; i--) { //Adds the missing brackets
+                condense(BracketFactory.makeCloseBracket());
+            }
+            if (digits != null) { //Digits left
+                substitute(new Number(Utility.valueOf(takeDigits())));
+            }
+            //Sends the rest of the set up expression through
+            if (beforeLast != null) {
+                shunt(beforeLast);
+            }
+            if (last != null) {
+                shunt(last);
+            }
+            while (operators != null) { //Puts the remaining tokens in the stack to the queue
+                Token top = operators.value;
+                operators = operators.next;
+                output(top);
+            }
+            if (numValues == 0) {
+                throw new IllegalArgumentException("Input is empty");
+            } else if (numValues != 1) {
+                throw new IllegalArgumentException("Illegal Expression"); //There should only be 1 token left on the stack
+            } else {
+                return values.value;
+            }
+        }
+
+        /**
+         * @return The digits of the current number in order; they are removed from this state
+         */
+        private ArrayList<Digit> takeDigits() {
+            ArrayList<Digit> list = new ArrayList<>();
+            for (Link<Digit> d = digits; d != null; d = d.next) {
+                list.add(0, d.value);
+            }
+            digits = null;
+            return list;
+        }
+
+        /**
+         * Condenses digits into Numbers; as in Utility.condenseDigits().
+         *
+         * @param token The next Token
+         */
+        private void condense(Token token) {
+            if (token instanceof Digit) {
+                digits = new Link<>((Digit) token, digits);
+            } else {
+                if (digits != null) { //Number ended
+                    Number num = new Number(Utility.valueOf(takeDigits()));
+                    //Special case of //-1 * Variable; the sign is set on a copy, as the Variable is still in the editor
+                    if (num.getValue() == -1 && token instanceof Variable) {
+                        Variable negative = ((Variable) token).copy();
+                        negative.setNegative(true);
+                        token = negative;
+                    } else if (num.getValue() == 1 && token instanceof Variable) { // 1 * Variable
+                        Variable positive = ((Variable) token).copy();
+                        positive.setNegative(false);
+                        token = positive;
+                    } else if (num.getValue() < 0) { //Negative number; changes to -1 * Number
+                        substitute(new Number(-1));
+                        substitute(OperatorFactory.makeMultiply());
+                        substitute(new Number(num.getValue() * -1));
+                    } else {
+                        substitute(num);
+                    }
+                }
+                substitute(token);
+            }
+        }
+
+        /**
+         * Substitutes Variables with their values; as in Utility.subVariables().
+         *
+         * @param token The next Token
+         */
+        private void substitute(Token token) {
+            if (token instanceof Variable && token.getType() != Variable.S && token.getType() != Variable.T) {
+                ArrayList<Token> val = Utility.condenseDigits(((Variable) token).getValue());
+                if (val.isEmpty()) {
+                    val.add(new Number(0));
+                }
+                for (Token t : val) {
+                    setup(t);
+                }
+            } else {
+                setup(token);
+            }
+        }
+
+        /**
+         * Adds the implied Tokens to the expression; as in Utility.setupExpression().
+         *
+         * @param t The next Token
+         */
+        private void setup(Token t) {
+            boolean negative = false;
+            boolean lastIsSubtract = last instanceof Operator && last.getType() == Operator.SUBTRACT;
+            boolean beforeLastIsOperator = beforeLast != null && beforeLast instanceof Operator;
+            boolean beforeLastIsOpenBracket = beforeLast != null && beforeLast instanceof Bracket && (beforeLast.getType() == Bracket.OPEN
+                    || beforeLast.getType() == Bracket.NUM_OPEN || beforeLast.getType() == Bracket.DENOM_OPEN || beforeLast.getType() == Bracket.SUPERSCRIPT_OPEN || beforeLast.getType() == Bracket.FRACTION_OPEN);
+
+            if (t instanceof Bracket) {
+                Bracket b = (Bracket) t;
+                if (b.getType() == Bracket.OPEN && last instanceof Bracket && (last.getType() == Bracket.CLOSE
+                        || last.getType() == Bracket.SUPERSCRIPT_CLOSE || last.getType() == Bracket.DENOM_CLOSE)) { //Ex. (2 + 1)(3 + 4)
+                    add(OperatorFactory.makeMultiply());
+                } else if ((last instanceof Number || last instanceof Variable) && (b.getType() == Bracket.OPEN || b.getType() == Bracket.FRACTION_OPEN)) { //Ex. 3(2 + 1)
+                    add(OperatorFactory.makeMultiply());
+                } else if (lastIsSubtract && beforeLastIsOperator) { //Ex. E + -(X + 1) -> E + -1 * (X + 1)
+                    removeLast();
+                    add(new Number(-1));
+                    add(OperatorFactory.makeMultiply());
+                }
+            } else if (t instanceof Number || t instanceof Variable || t instanceof Function) {
+                if (last instanceof Number) { //Ex. 5A , 5f(x)
+                    add(OperatorFactory.makeMultiply());
+                } else if (last instanceof Bracket && (last.getType() == Bracket.CLOSE
+                        || last.getType() == Bracket.SUPERSCRIPT_CLOSE || last.getType() == Bracket.DENOM_CLOSE)) { //Ex. x^2(x + 1)
+                    add(OperatorFactory.makeMultiply());
+                } else if (lastIsSubtract && (beforeLastIsOperator || beforeLastIsOpenBracket || setupSize <= 1)) { //Ex. E * -X -> E * -1 * X
+                    removeLast();
+                    if (t instanceof Number) {
+                        negative = true;
+                    } else {
+                        add(new Number(-1));
+                        add(OperatorFactory.makeMultiply());
+                    }
+                } else if (t instanceof Function && (last instanceof Function || last instanceof Variable)) { //Ex. f(x)g(x)
+                    add(OperatorFactory.makeMultiply());
+                }
+
+                if (t instanceof Variable && last instanceof Variable) { //Ex. pi x
+                    add(OperatorFactory.makeMultiply());
+                }
+            }
+            if (negative) {
+                add(new Number(((Number) t).getValue() * -1));
+            } else {
+                add(t);
+            }
+        }
+
+        /**
+         * Adds a Token to the end of the set up expression; the Token that is no longer one of the
+         * last two is sent to the Shunting Yard.
+         *
+         * @param t The Token to add
+         */
+        private void add(Token t) {
+            if (beforeLast != null) {
+                shunt(beforeLast);
+            }
+            beforeLast = last;
+            last = t;
+            setupSize++;
+        }
+
+        /**
+         * Removes the last Token of the set up expression. The Token before it is only needed
+         * again after another Token is added, which always happens right after.
+         */
+        private void removeLast() {
+            last = beforeLast;
+            beforeLast = null;
+            setupSize--;
+        }
+
+        /**
+         * Converts the expression to reverse polish; as in Utility.convertToReversePolish().
+         *
+         * @param token The next Token of the set up expression
+         */
+        private void shunt(Token token) {
+            if (token instanceof Number || token instanceof Variable) { //Adds directly to the queue if it's a token
+                output(token);
+            } else if (token instanceof Function) { //Adds to the stack if it's a function
+                operators = new Link<>(token, operators);
+            } else if (token instanceof Operator) {
+                Operator operator = (Operator) token;
+                while (operators != null && ((operators.value instanceof Operator && operator.isLeftAssociative()
+                        && ((Operator) operators.value).getPrecedence() >= operator.getPrecedence()) || operators.value instanceof Function)) {
+                    output(operators.value); //Pops top element to the queue
+                    operators = operators.next;
+                }
+                operators = new Link<>(token, operators);
+            } else if (token instanceof Bracket) {
+                int type = token.getType();
+                if (type == Bracket.OPEN || type == Bracket.SUPERSCRIPT_OPEN || type == Bracket.NUM_OPEN
+                        || type == Bracket.DENOM_OPEN || type == Bracket.FRACTION_OPEN) { //Pushes the bracket to the stack if it's open
+                    operators = new Link<>(token, operators);
+                } else if (type == Bracket.CLOSE || type == Bracket.SUPERSCRIPT_CLOSE || type == Bracket.NUM_CLOSE
+                        || type == Bracket.DENOM_CLOSE || type == Bracket.FRACTION_CLOSE) { //Pops operators until a open bracket is found
+                    while (operators != null && !(operators.value instanceof Bracket)) {
+                        output(operators.value);
+                        operators = operators.next;
+                    }
+                    if (operators == null) { //Mismatched brackets
+                        throw new IllegalArgumentException();
+                    }
+                    operators = operators.next; //Removes the bracket
+                }
+            }
+        }
+
+        /**
+         * Evaluates the reverse polish as it is produced; as in Utility.evaluateExpression().
+         *
+         * @param token The next Token of the reverse polish
+         */
+        private void output(Token token) {
+            if (token instanceof Number) { //Adds all numbers directly to the stack
+                push(((Number) token).getValue());
+            } else if (token instanceof Operator) {
+                //Operates the first and second top operators
+                double right = pop();
+                double left = pop();
+                push(((Operator) token).operate(left, right));
+            } else if (token instanceof Function) { //Function uses the top number on the stack
+                push(((Function) token).perform(pop()));
+            } else { //This should never be reached
+                throw new IllegalArgumentException();
+            }
+        }
+
+        private void push(double value) {
+            values = new Link<>(value, values);
+            numValues++;
+        }
+
+        private double pop() {
+            if (values == null) {
+                throw new IllegalArgumentException("Illegal Expression");
+            }
+            double value = values.value;
+            values = values.next;
+            numValues--;
+            return value;
+        }
+    }
+}
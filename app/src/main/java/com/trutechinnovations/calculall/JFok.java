@@ -1,5 +1,6 @@
 package com.trutechinnovations.calculall;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.EmptyStackException;
 import java.util.Stack;
@@ -14,6 +15,241 @@ public class JFok {
 
     public static final double FRACTIONALIZE_ERROR = 1e-12;
     public static final double FRACTIONALIZE_DENOM_LIMIT = 10000;
+    private static final int MAX_SWEEPS = 8; //Maximum times the rules are swept over a single node
+    private static final int MAX_EXPANDING_SWEEPS = 1; //Expanding to a fixed point multiplies out powers, which grows exponentially
+    private static final int MAX_FIRINGS = 5000; //Maximum number of rules applied in one rewrite
+    private static final int MAX_SHARED_RESULTS = 512; //Subtree results kept between calls, for each set of rules
+    private static final int[] NOT_A_FRACTION = new int[0];
+    private static final Command<Node<Token>, Node<Token>> EXPAND = new Command<Node<Token>, Node<Token>>() {
+        @Override
+        public Node<Token> execute(Node<Token> o) {
+            return expand(o);
+        }
+    };
+    private static final Command<Node<Token>, Node<Token>> SIMPLIFY = new Command<Node<Token>, Node<Token>>() {
+        @Override
+        public Node<Token> execute(Node<Token> o) {
+            return simplify(o);
+        }
+    };
+    private static final Command<Node<Token>, Node<Token>> JFOK = new Command<Node<Token>, Node<Token>>() {
+        @Override
+        public Node<Token> execute(Node<Token> o) {
+            return jFok(o);
+        }
+    };
+    //The math rules to expand and then simplify the expression into standard form
+    private static final RewriteEngine EXPANDER = new RewriteEngine("Expand", MAX_EXPANDING_SWEEPS, MAX_FIRINGS,
+            new RewriteEngine.Rule("applyPowers", Operator.class, Operator.EXPONENT) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return applyPowers(node);
+                }
+            },
+            new RewriteEngine.Rule("processMultipleFractions", Operator.class, Operator.DIVIDE, Operator.FRACTION) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return processMultipleFractions(node, EXPAND);
+                }
+            },
+            new RewriteEngine.Rule("processMultipleFractions(f)", Function.class) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return processMultipleFractions(node, EXPAND);
+                }
+            },
+            new RewriteEngine.Rule("applyDistributiveProperty", Operator.class, Operator.MULTIPLY) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return applyDistributiveProperty(node);
+                }
+            },
+            new RewriteEngine.Rule("multiplyPolynomials", Operator.class, Operator.MULTIPLY) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return multiplyPolynomials(node);
+                }
+            },
+            new RewriteEngine.Rule("multiplyTerms", Operator.class, Operator.MULTIPLY, Operator.DIVIDE, Operator.FRACTION) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return multiplyTerms(node);
+                }
+            },
+            //Rules to be applied before constants are evaluated
+            new RewriteEngine.Rule("applyCommutativeProperty", Operator.class, Operator.ADD, Operator.SUBTRACT) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return applyCommutativeProperty(node);
+                }
+            },
+            new RewriteEngine.Rule("evaluateConstants", Token.class) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return evaluateConstants(node, false, false);
+                }
+            },
+            //Rules to be applied after constants are evaluated
+            new RewriteEngine.Rule("multiplyVariables", Operator.class, Operator.MULTIPLY, Operator.DIVIDE, Operator.FRACTION) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return multiplyVariables(node);
+                }
+            });
+    //The math rules to simplify and factor the expression
+    private static final RewriteEngine SIMPLIFIER = new RewriteEngine("Simplify", MAX_SWEEPS, MAX_FIRINGS,
+            new RewriteEngine.Rule("multiplyDecimalFractions", Operator.class, Operator.DIVIDE, Operator.FRACTION) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return multiplyDecimalFractions(node);
+                }
+            },
+            new RewriteEngine.Rule("applyTrigSpecialValues", Function.class) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return applyTrigSpecialValues(node);
+                }
+            },
+            new RewriteEngine.Rule("applyInvTrigSpecialValues", Function.class, Function.ARCSIN, Function.ARCCOS, Function.ARCTAN) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return applyInvTrigSpecialValues(node);
+                }
+            },
+            new RewriteEngine.Rule("processMultipleFractions", Operator.class, Operator.DIVIDE, Operator.FRACTION) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return processMultipleFractions(node, SIMPLIFY);
+                }
+            },
+            new RewriteEngine.Rule("processMultipleFractions(f)", Function.class) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return processMultipleFractions(node, SIMPLIFY);
+                }
+            },
+            new RewriteEngine.Rule("applySquareRootRules", Function.class, Function.SQRT) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return applySquareRootRules(node);
+                }
+            },
+            new RewriteEngine.Rule("applySquareRootRules(x)", Operator.class, Operator.MULTIPLY) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return applySquareRootRules(node);
+                }
+            },
+            new RewriteEngine.Rule("applyCommutativeProperty", Operator.class, Operator.ADD, Operator.SUBTRACT) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return applyCommutativeProperty(node);
+                }
+            },
+            //Rules to be applied before constants are evaluated
+            new RewriteEngine.Rule("evaluateConstants", Token.class) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return evaluateConstants(node, true, true);
+                }
+            },
+            //Rules to be applied after constants are evaluated
+            new RewriteEngine.Rule("multiplyFractions", Operator.class, Operator.MULTIPLY) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return multiplyFractions(node, SIMPLIFY);
+                }
+            },
+            new RewriteEngine.Rule("addLikeFractions", Operator.class, Operator.ADD, Operator.SUBTRACT) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return addLikeFractions(node);
+                }
+            },
+            new RewriteEngine.Rule("simplifyFraction", Operator.class, Operator.DIVIDE, Operator.FRACTION) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return simplifyFraction(node);
+                }
+            },
+            new RewriteEngine.Rule("simplifyFraction(f)", Function.class) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return simplifyFraction(node);
+                }
+            },
+            new RewriteEngine.Rule("simplifyIdenticalNumDenom", Operator.class, Operator.DIVIDE, Operator.FRACTION) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return simplifyIdenticalNumDenom(node);
+                }
+            },
+            new RewriteEngine.Rule("removeMultiplicationsOfOne", Operator.class, Operator.MULTIPLY) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return removeMultiplicationsOfOne(node);
+                }
+            },
+            new RewriteEngine.Rule("applyTrigRules", Operator.class, Operator.DIVIDE) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return applyTrigRules(node);
+                }
+            });
+    //The rules that evaluate exact sub-expressions and take away negative exponents
+    private static final RewriteEngine JFOKER = new RewriteEngine("jFok", MAX_SWEEPS, MAX_FIRINGS,
+            new RewriteEngine.Rule("evaluateConstants", Token.class) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return evaluateConstants(node, true, true);
+                }
+            },
+            new RewriteEngine.Rule("removeNegativeExponents", Operator.class, Operator.EXPONENT) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return removeNegativeExponents(node);
+                }
+            },
+            new RewriteEngine.Rule("addSqrts", Operator.class, Operator.EXPONENT) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return addSqrts(node);
+                }
+            },
+            new RewriteEngine.Rule("removeMultiplicationsOfOne", Operator.class, Operator.MULTIPLY) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return removeMultiplicationsOfOne(node);
+                }
+            },
+            new RewriteEngine.Rule("multiplyFractions", Operator.class, Operator.MULTIPLY) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return multiplyFractions(node, JFOK);
+                }
+            },
+            new RewriteEngine.Rule("processMultipleFractions", Operator.class, Operator.DIVIDE, Operator.FRACTION) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return processMultipleFractions(node, JFOK);
+                }
+            },
+            new RewriteEngine.Rule("processMultipleFractions(f)", Function.class) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return processMultipleFractions(node, JFOK);
+                }
+            },
+            new RewriteEngine.Rule("removeExponentsOfOne", Operator.class, Operator.EXPONENT) {
+                @Override
+                public Node<Token> apply(Node<Token> node) {
+                    return removeExponentsOfOne(node);
+                }
+            });
+
+    static {
+        setSharingResults(true);
+    }
 
     /**
      * Simplify and factor the given mathematical expression. There should be no
@@ -67,6 +303,51 @@ public class JFok {
         return expression;
     }
 
+    /**
+     * @return How many times each of the rules have been tried and applied, and the time spent on them
+     */
+    public static String getProfile() {
+        return EXPANDER.getProfile() + SIMPLIFIER.getProfile() + JFOKER.getProfile();
+    }
+
+    /**
+     * Clears the profile of the rules.
+     */
+    public static void resetProfile() {
+        EXPANDER.resetProfile();
+        SIMPLIFIER.resetProfile();
+        JFOKER.resetProfile();
+    }
+
+    /**
+     * Sets whether the results of sub-expressions are kept between calls, so that sub-expressions
+     * that appear again (ex. in the next calculation) do not have to be simplified again.
+     *
+     * @param sharing If the results are kept
+     */
+    public static void setSharingResults(boolean sharing) {
+        int size = sharing ? MAX_SHARED_RESULTS : 0;
+        EXPANDER.shareResults(size);
+        SIMPLIFIER.shareResults(size);
+        JFOKER.shareResults(size);
+    }
+
+    /**
+     * Forgets the results of sub-expressions kept between calls.
+     */
+    public static void clearSharedResults() {
+        EXPANDER.clearSharedResults();
+        SIMPLIFIER.clearSharedResults();
+        JFOKER.clearSharedResults();
+    }
+
+    /**
+     * @return The outside state that the results of the rules depend on
+     */
+    private static Object getContext() {
+        return Function.angleMode;
+    }
+
     /**
      * Converts the given Number into a fraction. If the denominator if more
      * than 1000, it will assume the result is inaccurate and leave it.
@@ -75,61 +356,104 @@ public class JFok {
      * @return An equivalent fraction
      */
     public static ArrayList<Token> fractionalize(Number number) {
+        if (number instanceof Rational) { //Already exact
+            return ((Rational) number).toTokens();
+        }
         double value = number.getValue();
-        int n = (int) Math.floor(value);
         ArrayList<Token> output = new ArrayList<>();
+        int[] fraction = findFraction(value);
+        if (fraction == NOT_A_FRACTION) {
+            output.add(number);
+        } else if (fraction[1] == 1) { //An integer
+            output.add(new Number(fraction[0]));
+        } else {
+            output.add(BracketFactory.getShared(Bracket.FRACTION_OPEN));
+            output.add(BracketFactory.getShared(Bracket.NUM_OPEN));
+            output.add(new Number(fraction[0]));
+            output.add(BracketFactory.getShared(Bracket.NUM_CLOSE));
+            output.add(OperatorFactory.getShared(Operator.FRACTION));
+            output.add(BracketFactory.getShared(Bracket.DENOM_OPEN));
+            output.add(new Number(fraction[1]));
+            output.add(BracketFactory.getShared(Bracket.DENOM_CLOSE));
+            output.add(BracketFactory.getShared(Bracket.FRACTION_CLOSE));
+        }
+        return output;
+    }
+
+    /**
+     * Finds the simplest fraction within FRACTIONALIZE_ERROR of the given value by searching the
+     * Stern-Brocot tree. Runs of moves in the same direction are made all at once.
+     *
+     * @param value The value
+     * @return The numerator and denominator, or NOT_A_FRACTION if the denominator would be over the limit
+     */
+    private static int[] findFraction(double value) {
+        int n = (int) Math.floor(value);
         value -= n;
 
         //Checks if it is an integer
         if (value < FRACTIONALIZE_ERROR) {
-            output.add(new Number(n));
-            return output;
+            return new int[]{n, 1};
         } else if (1 - FRACTIONALIZE_ERROR < value) {
-            output.add(new Number(n + 1));
-            return output;
+            return new int[]{n + 1, 1};
         }
 
         //The lower fraction starts at 0 / 1
-        int lowerN = 0;
-        int lowerD = 1;
+        long lowerN = 0;
+        long lowerD = 1;
         //The upper fraction starts at 1 / 1
-        int upperN = 1;
-        int upperD = 1;
+        long upperN = 1;
+        long upperD = 1;
 
         while (true) { //Continues until returns
 
             //Finds the average of the upper and lower fractions
-            int middleN = lowerN + upperN;
-            int middleD = lowerD + upperD;
-
-            if (middleD * (value + FRACTIONALIZE_ERROR) < middleN) {
-                upperN = middleN;
-                upperD = middleD;
+            long middleN = lowerN + upperN;
+            long middleD = lowerD + upperD;
+
+            if (middleD >= FRACTIONALIZE_DENOM_LIMIT) { //Any fraction found from here on would be over the limit
+                return NOT_A_FRACTION;
+            } else if (middleD * (value + FRACTIONALIZE_ERROR) < middleN) {
+                long moves = countMoves(upperN, upperD, lowerN, lowerD, value + FRACTIONALIZE_ERROR, true);
+                upperN += moves * lowerN;
+                upperD += moves * lowerD;
             } else if (middleN < (value - FRACTIONALIZE_ERROR) * middleD) {
-                lowerN = middleN;
-                lowerD = middleD;
+                long moves = countMoves(lowerN, lowerD, upperN, upperD, value - FRACTIONALIZE_ERROR, false);
+                lowerN += moves * upperN;
+                lowerD += moves * upperD;
             } else {
-                if (middleD < FRACTIONALIZE_DENOM_LIMIT) { //Denom is within the limit
-                    Number num = new Number(n * middleD + middleN);
-                    Number denom = new Number(middleD);
-
-                    output.add(BracketFactory.makeFracOpen());
-                    output.add(BracketFactory.makeNumOpen());
-                    output.add(num);
-                    output.add(BracketFactory.makeNumClose());
-                    output.add(OperatorFactory.makeFraction());
-                    output.add(BracketFactory.makeDenomOpen());
-                    output.add(denom);
-                    output.add(BracketFactory.makeDenomClose());
-                    output.add(BracketFactory.makeFracClose());
-                    return output;
-                } else {
-                    ArrayList<Token> original = new ArrayList<>();
-                    original.add(number);
-                    return original;
-                }
+                return new int[]{(int) (n * middleD + middleN), (int) middleD};
+            }
+        }
+    }
+
+    /**
+     * Counts how many times in a row the Stern-Brocot search would replace the given bound with
+     * the mediant, which moves the bound to (bound + k × other) after k moves. The first move is
+     * assumed to be needed.
+     *
+     * @param boundN The numerator of the bound that is moving
+     * @param boundD The denominator of the bound that is moving
+     * @param otherN The numerator of the other bound
+     * @param otherD The denominator of the other bound
+     * @param target The value that the bound is moving towards
+     * @param upper  If the upper bound is moving
+     * @return The number of moves to make at once
+     */
+    private static long countMoves(long boundN, long boundD, long otherN, long otherD, double target, boolean upper) {
+        //The bound keeps moving while k < (boundN - target × boundD) / (target × otherD - otherN)
+        double limit = (boundN - target * boundD) / (target * otherD - otherN);
+        long moves = (long) Math.min(Math.ceil(limit) - 1, (FRACTIONALIZE_DENOM_LIMIT - boundD) / otherD);
+        //Rounding may be off, so checks the same way as moving one at a time would
+        while (moves > 1) {
+            long n = boundN + moves * otherN;
+            long d = boundD + moves * otherD;
+            if (upper ? d * target < n : n < target * d) {
+                break;
             }
+            moves--;
         }
+        return Math.max(moves, 1);
     }
 
     /**
@@ -153,90 +477,7 @@ public class JFok {
      * @return The root of the new expanded tree
      */
     private static Node<Token> expand(Node<Token> root) {
-        if (root.getNumOfChildren() > 0) { //Not a leaf
-            Node<Token> n1 = root.getNumOfChildren() > 0 ? root.getChildren().get(0) : null;
-            Node<Token> n2 = root.getNumOfChildren() > 1 ? root.getChildren().get(1) : null;
-            //Applies rules to the subtrees first, if any are found
-            if ((n1 != null && n1.getNumOfChildren() != 0) || (n2 != null && n2.getNumOfChildren() != 0)) { //The children are not leaves
-                //Evaluates the subtrees first
-                n1 = expand(n1);
-                if (n2 != null) {
-                    n2 = expand(n2);
-                }
-                //Adds the new subtrees to the root
-                root.getChildren().clear();
-                root.addChild(n1);
-                if (n2 != null) {
-                    root.addChild(n2);
-                }
-                //Now applies the rules
-                root = applyExpandingRules(root);
-                return root;
-            } else { //Children are leaves; applies the rules
-                root = applyExpandingRules(root);
-                return root;
-            }
-        } else { //Base case: the root is a leaf
-            return root;
-        }
-    }
-
-    /**
-     * Applies the math rules to expand and then simplify the expression into
-     * standard form.
-     *
-     * @param root The root of the tree/subtree
-     * @return The root of the new tree/subtree
-     */
-    private static Node<Token> applyExpandingRules(Node<Token> root) {
-        root = applyPowers(root);
-        root = processMultipleFractions(root, new Command<Node<Token>, Node<Token>>() {
-            @Override
-            public Node<Token> execute(Node<Token> o) {
-                return expand(o);
-            }
-        });
-        root = applyDistributiveProperty(root);
-        root = multiplyPolynomials(root);
-        root = multiplyTerms(root);
-        //Rules to be applied before constants are evaluated
-        root = applyCommutativeProperty(root);
-        root = evaluateConstants(root, false, false);
-        //Rules to be applied after constants are evaluated
-        //root = addLikeTerms(root);
-        root = multiplyVariables(root);
-        return root;
-    }
-
-    /**
-     * Applies the math rules to simplify and factor the expression/
-     *
-     * @param root The root of the tree/subtree
-     * @return The new root of the tree/subtree
-     */
-    private static Node<Token> applySimplifyingRules(Node<Token> root) {
-        Command<Node<Token>, Node<Token>> command = new Command<Node<Token>, Node<Token>>() {
-            @Override
-            public Node<Token> execute(Node<Token> o) {
-                return simplify(o);
-            }
-        };
-        root = multiplyDecimalFractions(root);
-        root = applyTrigSpecialValues(root);
-        root = applyInvTrigSpecialValues(root);
-        root = processMultipleFractions(root, command);
-        root = applySquareRootRules(root);
-        root = applyCommutativeProperty(root);
-        //Rules to be applied before constants are evaluated
-        root = evaluateConstants(root, true, true);
-        //Rules to be applied after constants are evaluated
-        root = multiplyFractions(root, command);
-        root = addLikeFractions(root);
-        root = simplifyFraction(root);
-        root = simplifyIdenticalNumDenom(root);
-        root = removeMultiplicationsOfOne(root);
-        root = applyTrigRules(root);
-        return root;
+        return EXPANDER.rewrite(root, getContext());
     }
 
     /**
@@ -335,7 +576,7 @@ public class JFok {
                     int multiplier = (int) (decimals1 > decimals2 ? Math.pow(10, decimals1) : Math.pow(10, decimals2));
                     value1 *= multiplier;
                     value2 *= multiplier;
-                    Node<Token> div = new Node<Token>(OperatorFactory.makeFraction());
+                    Node<Token> div = new Node<Token>(OperatorFactory.getShared(Operator.FRACTION));
                     div.addChild(new Node<Token>(new Number(Math.round(value1))));
                     div.addChild(new Node<Token>(new Number(Math.round(value2))));
                     return div;
@@ -456,7 +697,7 @@ public class JFok {
                     Node<Token> inside1 = (Node<Token>) child1.getChildren().get(0);
                     Node inside2 = (Node) child2.getChildren().get(0);
                     if (isBranchesEqual(inside1, inside2)) {
-                        Node<Token> tan = new Node<Token>(FunctionFactory.makeTan());
+                        Node<Token> tan = new Node<Token>(FunctionFactory.getShared(Function.TAN));
                         tan.addChild(inside1);
                         return tan;
                     }
@@ -464,8 +705,8 @@ public class JFok {
                     Node<Token> inside1 = (Node<Token>) child1.getChildren().get(0);
                     Node<Token> inside2 = (Node<Token>) child2.getChildren().get(0);
                     if (isBranchesEqual(inside1, inside2)) {
-                        Node<Token> div = new Node<Token>(OperatorFactory.makeDivide());
-                        Node<Token> tan = new Node<Token>(FunctionFactory.makeTan());
+                        Node<Token> div = new Node<Token>(OperatorFactory.getShared(Operator.DIVIDE));
+                        Node<Token> tan = new Node<Token>(FunctionFactory.getShared(Function.TAN));
                         tan.addChild(inside1);
                         div.addChild(new Node<Token>(new Number(1)));
                         div.addChild(tan);
@@ -498,33 +739,32 @@ public class JFok {
     }
 
     /**
-     * Determines if both nodes contain the exact same tokens
+     * Determines if both nodes contain the exact same tokens, where the operands of additions and
+     * multiplications may be in either order. Tokens are compared the same way as ExpressionNodes
+     * (see ExpressionNode.isSameToken()), and the comparison stops at the first difference.
      *
      * @param root1 The root of the first tree
      * @param root2 The root of the second tree
      * @return If the first and second tree contains the same tokens
      */
     private static boolean isBranchesEqual(Node<Token> root1, Node<Token> root2) {
-        if (root1 == null && root2 == null) { //Base case
-            return true;
-        } else if (root1 == null || root2 == null) { //Trees are different side
+        if (root1 == null || root2 == null) { //Base case
+            return root1 == root2;
+        } else if (root1.getNumOfChildren() != root2.getNumOfChildren() || !ExpressionNode.isSameToken(root1.getContent(), root2.getContent())) {
             return false;
-        } else {
-            boolean equal = root1.getContent().getClass().equals(root2.getContent().getClass()) && root1.getContent().getType() == root2.getContent().getType()
-                    && (root1.getContent().getType() != -1 || ((Number) root1.getContent()).getValue() == ((Number) root2.getContent()).getValue());
-            if (equal && root1.getNumOfChildren() == root2.getNumOfChildren()) { //Same number of subbranches
-                if (root1.getNumOfChildren() == 1) {
-                    equal = equal && isBranchesEqual(root1.getChildren().get(0), root2.getChildren().get(0));
-                } else if (root1.getNumOfChildren() == 2) {
-                    equal = equal && ((isBranchesEqual(root1.getChildren().get(0), root2.getChildren().get(0)) && isBranchesEqual(root1.getChildren().get(1), root2.getChildren().get(1)))
-                            || (root1.getContent() instanceof Operator && (root1.getContent().getType() == Operator.ADD || root1.getContent().getType() == Operator.MULTIPLY)
-                            && (isBranchesEqual(root1.getChildren().get(1), root2.getChildren().get(0)) && isBranchesEqual(root1.getChildren().get(0), root2.getChildren().get(1)))));
-                }
-                return equal;
-            } else {
+        }
+        ArrayList<Node<Token>> children1 = root1.getChildren(), children2 = root2.getChildren();
+        if (children1.size() == 2) {
+            return (isBranchesEqual(children1.get(0), children2.get(0)) && isBranchesEqual(children1.get(1), children2.get(1)))
+                    || (root1.getContent() instanceof Operator && (root1.getContent().getType() == Operator.ADD || root1.getContent().getType() == Operator.MULTIPLY)
+                    && isBranchesEqual(children1.get(1), children2.get(0)) && isBranchesEqual(children1.get(0), children2.get(1)));
+        }
+        for (int i = 0; i < children1.size(); i++) {
+            if (!isBranchesEqual(children1.get(i), children2.get(i))) {
                 return false;
             }
         }
+        return true;
     }
 
     /**
@@ -599,13 +839,13 @@ public class JFok {
                     denom.remove(denom.size() - 1);
                 }
                 //And now joins the numerator and denom
-                newExp.add(BracketFactory.makeNumOpen());
+                newExp.add(BracketFactory.getShared(Bracket.NUM_OPEN));
                 newExp.addAll(num);
-                newExp.add(BracketFactory.makeNumClose());
-                newExp.add(OperatorFactory.makeFraction());
-                newExp.add(BracketFactory.makeDenomOpen());
+                newExp.add(BracketFactory.getShared(Bracket.NUM_CLOSE));
+                newExp.add(OperatorFactory.getShared(Operator.FRACTION));
+                newExp.add(BracketFactory.getShared(Bracket.DENOM_OPEN));
                 newExp.addAll(denom);
-                newExp.add(BracketFactory.makeDenomClose());
+                newExp.add(BracketFactory.getShared(Bracket.DENOM_CLOSE));
             } else {
                 newExp.add(t);
             }
@@ -620,32 +860,7 @@ public class JFok {
      * @return The root of the new expanded tree
      */
     private static Node<Token> simplify(Node<Token> root) {
-        if (root.getNumOfChildren() > 0) { //Not a leaf
-            Node<Token> n1 = root.getNumOfChildren() > 0 ? root.getChildren().get(0) : null;
-            Node<Token> n2 = root.getNumOfChildren() > 1 ? root.getChildren().get(1) : null;
-            //Applies rules to the subtrees first, if any are found
-            if ((n1 != null && n1.getNumOfChildren() != 0) || (n2 != null && n2.getNumOfChildren() != 0)) { //The children are not leaves
-                //Evaluates the subtrees first
-                n1 = simplify(n1);
-                if (n2 != null) {
-                    n2 = simplify(n2);
-                }
-                //Adds the new subtrees to the root
-                root.getChildren().clear();
-                root.addChild(n1);
-                if (n2 != null) {
-                    root.addChild(n2);
-                }
-                //Now applies rules to this branch
-                root = applySimplifyingRules(root);
-                return root;
-            } else { //Children are leaves; applies the rules
-                root = applySimplifyingRules(root);
-                return root;
-            }
-        } else { //Base case: the root is a leaf
-            return root;
-        }
+        return SIMPLIFIER.rewrite(root, getContext());
     }
 
     /**
@@ -655,55 +870,17 @@ public class JFok {
      * @return The root of the new expanded tree
      */
     private static Node<Token> jFok(Node<Token> root) {
-        if (root.getNumOfChildren() > 0) { //Not a leaf
-            Node<Token> n1 = root.getNumOfChildren() > 0 ? root.getChildren().get(0) : null;
-            Node<Token> n2 = root.getNumOfChildren() > 1 ? root.getChildren().get(1) : null;
-            //Applies rules to the subtrees first, if any are found
-            if ((n1 != null && n1.getNumOfChildren() != 0) || (n2 != null && n2.getNumOfChildren() != 0)) { //The children are not leaves
-                //Evaluates the subtrees first
-                n1 = jFok(n1);
-                if (n2 != null) {
-                    n2 = jFok(n2);
-                }
-                //Adds the new subtrees to the root
-                root.getChildren().clear();
-                root.addChild(n1);
-                if (n2 != null) {
-                    root.addChild(n2);
-                }
-                //Now applies rules to this branch
-                root = applyJFokRules(root);
-                return root;
-            } else { //Children are leaves; applies the rules
-                root = applyJFokRules(root);
-                return root;
-            }
-        } else { //Base case: the root is a leaf
-            return root;
-        }
+        return JFOKER.rewrite(root, getContext());
     }
 
     /**
-     * To be called by jFok() to apply the relevants rules to sub-expression.
+     * Applies the jFok rules to the given sub-expression, without going into its subtrees.
      *
      * @param node The sub-expression to apply the rules to
      * @return The new sub-expression
      */
     private static Node<Token> applyJFokRules(Node<Token> node) {
-        Command<Node<Token>, Node<Token>> command = new Command<Node<Token>, Node<Token>>() {
-            @Override
-            public Node<Token> execute(Node<Token> o) {
-                return jFok(o);
-            }
-        };
-        node = evaluateConstants(node, true, true);
-        node = removeNegativeExponents(node);
-        node = addSqrts(node);
-        node = removeMultiplicationsOfOne(node);
-        node = multiplyFractions(node, command);
-        node = processMultipleFractions(node, command);
-        node = removeExponentsOfOne(node);
-        return node;
+        return JFOKER.applyRules(node);
     }
 
     /**
@@ -754,7 +931,7 @@ public class JFok {
             Node<Token> child1 = node.getChildren().get(0);
             Node<Token> child2 = node.getChildren().get(1);
             if (getValue(child2) == 0.5f) { //E ^ 0.5
-                Node<Token> newRoot = new Node<Token>(FunctionFactory.makeSqrt());
+                Node<Token> newRoot = new Node<Token>(FunctionFactory.getShared(Function.SQRT));
                 newRoot.addChild(child1);
                 return newRoot;
             }
@@ -784,8 +961,8 @@ public class JFok {
         if (node.getContent() instanceof Operator && node.getContent().getType() == Operator.EXPONENT) {
             Node<Token> exp = node.getChildren().get(1);
             if (isNegative(exp)) {
-                node.getChildren().remove(exp);
-                Node<Token> newExp = new Node<Token>(OperatorFactory.makeMultiply());
+                node.delChild(exp);
+                Node<Token> newExp = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                 newExp.addChild(new Node<Token>(new Number(-1)));
                 newExp.addChild(exp);
                 node.addChild(newExp);
@@ -867,9 +1044,9 @@ public class JFok {
             if (o.getType() == Operator.ADD) {
                 //Now applies the appropriate rule
                 if (expression.getType() == Operator.ADD) { //(E + N1) + N2 -> E + (N1 + N2)
-                    root = new Node<Token>(OperatorFactory.makeAdd());
+                    root = new Node<Token>(OperatorFactory.getShared(Operator.ADD));
                     //Creates the new subtree (N1 + N2)
-                    Node<Token> addition = new Node<Token>(OperatorFactory.makeAdd());
+                    Node<Token> addition = new Node<Token>(OperatorFactory.getShared(Operator.ADD));
                     addition.addChild(new Node<Token>(n1));
                     addition.addChild(new Node<Token>(n2));
                     //Evaluates the expression
@@ -879,9 +1056,9 @@ public class JFok {
                     root.addChild(addition);
                     return root;
                 } else if (expression.getType() == Operator.SUBTRACT) { //(E - N1) + N2 -> E + (N2 - N1)
-                    root = new Node<Token>(OperatorFactory.makeAdd());
+                    root = new Node<Token>(OperatorFactory.getShared(Operator.ADD));
                     //Creates the new subtree (N1 + N2)
-                    Node<Token> subtract = new Node<Token>(OperatorFactory.makeSubtract());
+                    Node<Token> subtract = new Node<Token>(OperatorFactory.getShared(Operator.SUBTRACT));
                     subtract.addChild(new Node<Token>(n1));
                     subtract.addChild(new Node<Token>(n2));
                     //Evaluates the expression
@@ -896,9 +1073,9 @@ public class JFok {
             } else if (o.getType() == Operator.SUBTRACT) { //(E + N1) - N2 -> E + (N1 - N2)
                 //Now applies the appropriate rule
                 if (expression.getType() == Operator.ADD) { //(E + N1) - N2 -> E + (N1 - N2)
-                    root = new Node<Token>(OperatorFactory.makeAdd());
+                    root = new Node<Token>(OperatorFactory.getShared(Operator.ADD));
                     //Creates the new subtree (N1 + N2)
-                    Node<Token> subtract = new Node<Token>(OperatorFactory.makeSubtract());
+                    Node<Token> subtract = new Node<Token>(OperatorFactory.getShared(Operator.SUBTRACT));
                     subtract.addChild(new Node<Token>(n2));
                     subtract.addChild(new Node<Token>(n1));
                     //Evaluates the expression
@@ -908,9 +1085,9 @@ public class JFok {
                     root.addChild(subtract);
                     return root;
                 } else if (expression.getType() == Operator.SUBTRACT) { //(E - N1) - N2 -> E - (N2 + N1)
-                    root = new Node<Token>(OperatorFactory.makeSubtract());
+                    root = new Node<Token>(OperatorFactory.getShared(Operator.SUBTRACT));
                     //Creates the new subtree (N1 + N2)
-                    Node<Token> addition = new Node<Token>(OperatorFactory.makeAdd());
+                    Node<Token> addition = new Node<Token>(OperatorFactory.getShared(Operator.ADD));
                     addition.addChild(new Node<Token>(n1));
                     addition.addChild(new Node<Token>(n2));
                     //Evaluates the expression
@@ -949,6 +1126,13 @@ public class JFok {
             Token t2 = root.getChildren().get(1).getContent();
             if (t1 instanceof Number && t2 instanceof Number && (!(token.getType() == Operator.DIVIDE || token.getType() == Operator.FRACTION) || !exactValue)) { //Rule applies (deos not do divisions)
                 //Both numbers, rule can be applied
+                Rational left = Rational.exactValueOf((Number) t1), right = Rational.exactValueOf((Number) t2);
+                if (exactValue && left != null && right != null) { //Keeps it exact if possible
+                    Rational exact = ((Operator) token).operate(left, right);
+                    if (exact != null) {
+                        return new Node<Token>(exact);
+                    }
+                }
                 double result = ((Operator) token).operate(((Number) t1).getValue(), ((Number) t2).getValue());
                 return new Node<Token>(new Number(result));
             } else { //Rule deos not apply
@@ -1012,8 +1196,8 @@ public class JFok {
                             }
                         }
                         if (outside != 1) { //It would be redundant to multiply it by 1
-                            root = new Node<Token>(OperatorFactory.makeMultiply());
-                            Node<Token> squareRoot = new Node<Token>(FunctionFactory.makeSqrt());
+                            root = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
+                            Node<Token> squareRoot = new Node<Token>(FunctionFactory.getShared(Function.SQRT));
                             Node<Token> outsideNode = new Node<Token>(new Number(outside));
                             Node<Token> insideNode = new Node<Token>(new Number(inside));
                             squareRoot.addChild(insideNode);
@@ -1039,8 +1223,8 @@ public class JFok {
                         && child2.getContent().getType() == Function.SQRT) { //Two square roots under a multiplication; Rule can be applied
                     Node<Token> node1 = child1.getChildren().get(0);
                     Node<Token> node2 = child2.getChildren().get(0);
-                    root = new Node<Token>(FunctionFactory.makeSqrt());
-                    Node<Token> multiply = new Node<Token>(OperatorFactory.makeMultiply());
+                    root = new Node<Token>(FunctionFactory.getShared(Function.SQRT));
+                    Node<Token> multiply = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                     multiply.addChild(node1);
                     multiply.addChild(node2);
                     multiply = evaluateConstants(multiply, true, true);
@@ -1106,14 +1290,14 @@ public class JFok {
         if (root.getNumOfChildren() == 2) { //Tree not empty
             if (root.getContent() instanceof Operator) { //Beginning of a sub-expression
                 if (root.getChildren().get(0).getContent() instanceof Operator && ((Operator) root.getContent()).getPrecedence() > ((Operator) root.getChildren().get(0).getContent()).getPrecedence()) {
-                    toReturn.add(BracketFactory.makeOpenBracket());
+                    toReturn.add(BracketFactory.getShared(Bracket.OPEN));
                     toReturn.addAll(traverseTree(root.getChildren().get(0)));
-                    toReturn.add(BracketFactory.makeCloseBracket());
+                    toReturn.add(BracketFactory.getShared(Bracket.CLOSE));
                 } else if (root.getChildren().get(0).getContent() instanceof Operator && ((Operator) root.getContent()).getPrecedence() == ((Operator) root.getChildren().get(0).getContent()).getPrecedence()) {
                     if ((root.getContent().getType() == Operator.DIVIDE || root.getContent().getType() == Operator.FRACTION) && root.getChildren().get(0).getContent().getType() == Operator.MULTIPLY) {
-                        toReturn.add(BracketFactory.makeOpenBracket());
+                        toReturn.add(BracketFactory.getShared(Bracket.OPEN));
                         toReturn.addAll(traverseTree(root.getChildren().get(0)));
-                        toReturn.add(BracketFactory.makeCloseBracket());
+                        toReturn.add(BracketFactory.getShared(Bracket.CLOSE));
                     } else {
                         toReturn.addAll(traverseTree(root.getChildren().get(0)));
                     }
@@ -1123,39 +1307,39 @@ public class JFok {
                 toReturn.add(root.getContent());
                 if (root.getChildren().get(1).getContent() instanceof Operator && ((Operator) root.getContent()).getPrecedence() > ((Operator) root.getChildren().get(1).getContent()).getPrecedence()) {
                     if (root.getContent().getType() == Operator.EXPONENT) {
-                        toReturn.add(BracketFactory.makeSuperscriptOpen());
+                        toReturn.add(BracketFactory.getShared(Bracket.SUPERSCRIPT_OPEN));
                         toReturn.addAll(traverseTree(root.getChildren().get(1)));
-                        toReturn.add(BracketFactory.makeSuperscriptClose());
+                        toReturn.add(BracketFactory.getShared(Bracket.SUPERSCRIPT_CLOSE));
                     } else {
-                        toReturn.add(BracketFactory.makeOpenBracket());
+                        toReturn.add(BracketFactory.getShared(Bracket.OPEN));
                         toReturn.addAll(traverseTree(root.getChildren().get(1)));
-                        toReturn.add(BracketFactory.makeCloseBracket());
+                        toReturn.add(BracketFactory.getShared(Bracket.CLOSE));
                     }
                 } else if (root.getChildren().get(1).getContent() instanceof Operator && ((Operator) root.getContent()).getPrecedence() == ((Operator) root.getChildren().get(1).getContent()).getPrecedence()) {
                     if ((root.getContent().getType() == Operator.DIVIDE || root.getContent().getType() == Operator.FRACTION) && root.getChildren().get(1).getContent().getType() == Operator.MULTIPLY) {
                         if (root.getContent().getType() == Operator.EXPONENT) {
-                            toReturn.add(BracketFactory.makeSuperscriptOpen());
+                            toReturn.add(BracketFactory.getShared(Bracket.SUPERSCRIPT_OPEN));
                             toReturn.addAll(traverseTree(root.getChildren().get(1)));
-                            toReturn.add(BracketFactory.makeSuperscriptClose());
+                            toReturn.add(BracketFactory.getShared(Bracket.SUPERSCRIPT_CLOSE));
                         } else {
-                            toReturn.add(BracketFactory.makeOpenBracket());
+                            toReturn.add(BracketFactory.getShared(Bracket.OPEN));
                             toReturn.addAll(traverseTree(root.getChildren().get(1)));
-                            toReturn.add(BracketFactory.makeCloseBracket());
+                            toReturn.add(BracketFactory.getShared(Bracket.CLOSE));
                         }
                     } else {
                         if (root.getContent().getType() == Operator.EXPONENT) {
-                            toReturn.add(BracketFactory.makeSuperscriptOpen());
+                            toReturn.add(BracketFactory.getShared(Bracket.SUPERSCRIPT_OPEN));
                             toReturn.addAll(traverseTree(root.getChildren().get(1)));
-                            toReturn.add(BracketFactory.makeSuperscriptClose());
+                            toReturn.add(BracketFactory.getShared(Bracket.SUPERSCRIPT_CLOSE));
                         } else {
                             toReturn.addAll(traverseTree(root.getChildren().get(1)));
                         }
                     }
                 } else {
                     if (root.getContent().getType() == Operator.EXPONENT) {
-                        toReturn.add(BracketFactory.makeSuperscriptOpen());
+                        toReturn.add(BracketFactory.getShared(Bracket.SUPERSCRIPT_OPEN));
                         toReturn.addAll(traverseTree(root.getChildren().get(1)));
-                        toReturn.add(BracketFactory.makeSuperscriptClose());
+                        toReturn.add(BracketFactory.getShared(Bracket.SUPERSCRIPT_CLOSE));
                     } else {
                         toReturn.addAll(traverseTree(root.getChildren().get(1)));
                     }
@@ -1164,9 +1348,9 @@ public class JFok {
             return toReturn;
         } else if (root.getNumOfChildren() == 1) { //Function
             toReturn.add(root.getContent());
-            toReturn.add(BracketFactory.makeOpenBracket());
+            toReturn.add(BracketFactory.getShared(Bracket.OPEN));
             toReturn.addAll(traverseTree(root.getChildren().get(0)));
-            toReturn.add(BracketFactory.makeCloseBracket());
+            toReturn.add(BracketFactory.getShared(Bracket.CLOSE));
             return toReturn;
         } else if (root.getNumOfChildren() == 0) {
             toReturn.add(root.getContent());
@@ -1197,9 +1381,9 @@ public class JFok {
             }
         } else if (root.getContent() instanceof Operator && ((Operator) root.getContent()).isAntiCommutative()) {
             if (root.getContent().getType() == Operator.SUBTRACT) {
-                newRoot = new Node<Token>(OperatorFactory.makeAdd());
+                newRoot = new Node<Token>(OperatorFactory.getShared(Operator.ADD));
                 newRoot.addChild(convToMultiBranch(root.getChildren().get(0)));
-                Node<Token> temp = new Node<Token>(OperatorFactory.makeMultiply());
+                Node<Token> temp = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                 temp.addChild(new Node<Token>(new Number(-1)));
                 temp.addChild(convToMultiBranch(root.getChildren().get(1)));
                 if (temp.getChildren().get(1).getContent() instanceof Number) {
@@ -1210,7 +1394,7 @@ public class JFok {
                     Node<Token> temp1_0 = temp1.getChildren().get(0);
                     if (temp1_0.getContent() instanceof Number) {
                         Node<Token> temp2 = new Node<Token>(new Number(-1 * ((Number) temp1_0.getContent()).getValue()));
-                        temp = new Node<Token>(OperatorFactory.makeMultiply());
+                        temp = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                         temp.addChild(temp2);
                         temp.addChild(temp1.getChildren().get(1));
                         if (temp.getChildren().get(0).getContent() instanceof Number
@@ -1315,10 +1499,10 @@ public class JFok {
                 Number absVal = new Number(Math.abs(((Number) expression.get(i)).getValue()));
                 if (before.getType() == Operator.ADD) { //E + -N -> E - N
                     expression.set(i, absVal);
-                    expression.set(i - 1, OperatorFactory.makeSubtract());
+                    expression.set(i - 1, OperatorFactory.getShared(Operator.SUBTRACT));
                 } else if (before.getType() == Operator.SUBTRACT) { //E - -N -> E + N
                     expression.set(i, absVal);
-                    expression.set(i - 1, OperatorFactory.makeAdd());
+                    expression.set(i - 1, OperatorFactory.getShared(Operator.ADD));
                 } else if (before.getType() == Operator.MULTIPLY && beforePrevious != null && beforePrevious instanceof Number
                         && ((Number) beforePrevious).getValue() < 0) { // -N * -N -> N * N
                     Number absVal2 = new Number(Math.abs(((Number) beforePrevious).getValue()));
@@ -1333,10 +1517,10 @@ public class JFok {
                 Token beforePrevious = i > 1 ? expression.get(i - 2) : null; //Before the previous
                 if (before.getType() == Operator.ADD) { //E + -N -> E - N
                     ((Variable) t).setNegative(false);
-                    expression.set(i - 1, OperatorFactory.makeSubtract());
+                    expression.set(i - 1, OperatorFactory.getShared(Operator.SUBTRACT));
                 } else if (before.getType() == Operator.SUBTRACT) { //E - -N -> E + N
                     ((Variable) t).setNegative(false);
-                    expression.set(i - 1, OperatorFactory.makeAdd());
+                    expression.set(i - 1, OperatorFactory.getShared(Operator.ADD));
                 } else if (before.getType() == Operator.MULTIPLY && beforePrevious != null && beforePrevious instanceof Number
                         && ((Number) beforePrevious).getValue() < 0) { // -V * -N -> V * N
                     Number absVal = new Number(Math.abs(((Number) beforePrevious).getValue()));
@@ -1366,14 +1550,19 @@ public class JFok {
                 Node<Token> num = root.getChildren().get(0);
                 Node<Token> denom = root.getChildren().get(1);
                 Node<Token> temp;
-                newRoot = new Node<Token>(OperatorFactory.makeDivide());
+                newRoot = new Node<Token>(OperatorFactory.getShared(Operator.DIVIDE));
                 if (num.getContent() instanceof Number && denom.getContent() instanceof Number) {
-                    if (((Number) num.getContent()).getValue() % 1 == 0 && ((Number) denom.getContent()).getValue() % 1 == 0) {//checks to make sure num and denom are integers
+                    Rational numerator = Rational.exactValueOf((Number) num.getContent());
+                    Rational denominator = Rational.exactValueOf((Number) denom.getContent());
+                    if (numerator != null && denominator != null && numerator.isInteger() && denominator.isInteger()
+                            && denominator.signum() != 0) {//checks to make sure num and denom are integers
+                        Rational fraction = numerator.divide(denominator); //In lowest terms
+                        num = new Node<Token>(Rational.valueOf(fraction.getNumerator(), BigInteger.ONE));
+                        denom = new Node<Token>(Rational.valueOf(fraction.getDenominator(), BigInteger.ONE));
+                    } else if (((Number) num.getContent()).getValue() % 1 == 0 && ((Number) denom.getContent()).getValue() % 1 == 0) {
                         double gcd = gcd(((Number) num.getContent()).getValue(), ((Number) denom.getContent()).getValue());
-                        double numerator = ((Number) num.getContent()).getValue() / gcd;
-                        double denominator = ((Number) denom.getContent()).getValue() / gcd;
-                        num = new Node<Token>(new Number(numerator));
-                        denom = new Node<Token>(new Number(denominator));
+                        num = new Node<Token>(new Number(((Number) num.getContent()).getValue() / gcd));
+                        denom = new Node<Token>(new Number(((Number) denom.getContent()).getValue() / gcd));
                     }
                 } else if (num.getContent() instanceof Operator && num.getContent().getType() == Operator.MULTIPLY && denom.getContent() instanceof Number) {
                     double gcd;
@@ -1407,11 +1596,11 @@ public class JFok {
                          num.addChild(temp.getChildren().get(i));
                          }*/
                     } else if (childNum == 0) {
-                        num = new Node<Token>(OperatorFactory.makeMultiply());
+                        num = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                         num.addChild(new Node<Token>(new Number(numerator)));
                         num.addChild(temp.getChildren().get(1));
                     } else if (childNum == 1) {
-                        num = new Node<Token>(OperatorFactory.makeMultiply());
+                        num = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                         num.addChild(temp.getChildren().get(0));
                         num.addChild(new Node<Token>(new Number(numerator)));
                     }
@@ -1452,11 +1641,11 @@ public class JFok {
                          num.addChild(temp.getChildren().get(i));
                          }*/
                     } else if (childNum == 0) {
-                        denom = new Node<Token>(OperatorFactory.makeMultiply());
+                        denom = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                         denom.addChild(new Node<Token>(new Number(denominator)));
                         denom.addChild(temp.getChildren().get(1));
                     } else if (childNum == 1) {
-                        denom = new Node<Token>(OperatorFactory.makeMultiply());
+                        denom = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                         denom.addChild(temp.getChildren().get(0));
                         denom.addChild(new Node<Token>(new Number(denominator)));
                     }
@@ -1527,14 +1716,14 @@ public class JFok {
         if (root.getNumOfChildren() == 2) { //Tree not empty
             if (root.getContent() instanceof Operator && (root.getContent().getType() == Operator.DIVIDE || root.getContent().getType() == Operator.FRACTION)) { //main operation is division
                 if (root.getChildren().get(1).getContent() instanceof Operator && (root.getChildren().get(1).getContent().getType() == Operator.DIVIDE || root.getChildren().get(1).getContent().getType() == Operator.FRACTION)) {//divisor(denominator) is a fraction
-                    newRoot = new Node<Token>(OperatorFactory.makeMultiply());
+                    newRoot = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                     newRoot.addChild(root.getChildren().get(0));
                     newRoot.addChild(reciprocal(root.getChildren().get(1)));
                     newRoot = recursive.execute(newRoot);
                 } else if (root.getChildren().get(0).getContent() instanceof Operator && ((root.getChildren().get(0).getContent().getType() == Operator.DIVIDE || root.getChildren().get(0).getContent().getType() == Operator.FRACTION))) {//dividend(numerator) is a fraction
-                    newRoot = new Node<Token>(OperatorFactory.makeDivide());
+                    newRoot = new Node<Token>(OperatorFactory.getShared(Operator.DIVIDE));
                     Node<Token> oldDividend = root.getChildren().get(0);
-                    Node<Token> newDivisor = new Node<Token>(OperatorFactory.makeMultiply());
+                    Node<Token> newDivisor = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                     newDivisor.addChild(oldDividend.getChildren().get(1));
                     newDivisor.addChild(root.getChildren().get(1));
                     newRoot.addChild(oldDividend.getChildren().get(0));
@@ -1560,7 +1749,7 @@ public class JFok {
      * @return The root of the new tree
      */
     private static Node<Token> reciprocal(Node<Token> root) {
-        Node<Token> newRoot = new Node<Token>(OperatorFactory.makeDivide());
+        Node<Token> newRoot = new Node<Token>(OperatorFactory.getShared(Operator.DIVIDE));
         if (root.getContent() instanceof Operator && (root.getContent().getType() == Operator.DIVIDE || root.getContent().getType() == Operator.FRACTION)) {
             newRoot.addChild(root.getChildren().get(1));
             newRoot.addChild(root.getChildren().get(0));
@@ -1594,9 +1783,9 @@ public class JFok {
                 Node<Token> d1 = child1.getChildren().get(1);
                 Node<Token> d2 = child2.getChildren().get(1);
 
-                Node<Token> newRoot = new Node<Token>(OperatorFactory.makeFraction());
-                Node<Token> newNum = new Node<Token>(OperatorFactory.makeMultiply());
-                Node<Token> newDenom = new Node<Token>(OperatorFactory.makeMultiply());
+                Node<Token> newRoot = new Node<Token>(OperatorFactory.getShared(Operator.FRACTION));
+                Node<Token> newNum = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
+                Node<Token> newDenom = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
 
                 newNum.addChild(n1);
                 newNum.addChild(n2);
@@ -1615,8 +1804,8 @@ public class JFok {
                 Node<Token> d = child1.getChildren().get(1);
                 Node<Token> e = child2;
 
-                Node<Token> newRoot = new Node<Token>(OperatorFactory.makeFraction());
-                Node<Token> newNum = new Node<Token>(OperatorFactory.makeMultiply());
+                Node<Token> newRoot = new Node<Token>(OperatorFactory.getShared(Operator.FRACTION));
+                Node<Token> newNum = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
 
                 newNum.addChild(n);
                 newNum.addChild(e);
@@ -1632,8 +1821,8 @@ public class JFok {
                 Node<Token> d = child2.getChildren().get(1);
                 Node<Token> e = child1;
 
-                Node<Token> newRoot = new Node<Token>(OperatorFactory.makeFraction());
-                Node<Token> newNum = new Node<Token>(OperatorFactory.makeMultiply());
+                Node<Token> newRoot = new Node<Token>(OperatorFactory.getShared(Operator.FRACTION));
+                Node<Token> newNum = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
 
                 newNum.addChild(n);
                 newNum.addChild(e);
@@ -1659,15 +1848,15 @@ public class JFok {
      * @return The new root of the new tree
      */
     private static Node<Token> multiplyTerms(Node<Token> root) {//TODO:Add support for negatives and functions
-        Node<Token> newRoot = new Node<Token>(OperatorFactory.makeAdd());
+        Node<Token> newRoot = new Node<Token>(OperatorFactory.getShared(Operator.ADD));
         if (root.getContent() instanceof Operator && (root.getContent().getType() == Operator.DIVIDE || root.getContent().getType() == Operator.FRACTION)) {
             if (root.getChildren().get(0).getNumOfChildren() == 2) {
                 Token child = root.getChildren().get(1).getContent();
                 if (child instanceof Number) {
                     //Rewrites E1 / E2 to E1 * 1/ E2
-                    Node<Token> multiply = new Node<Token>(OperatorFactory.makeMultiply());
+                    Node<Token> multiply = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                     multiply.addChild(new Node<>(child));
-                    Node<Token> divide = new Node<Token>(OperatorFactory.makeDivide());
+                    Node<Token> divide = new Node<Token>(OperatorFactory.getShared(Operator.DIVIDE));
                     divide.addChild(new Node<Token>(new Number(1)));
                     divide.addChild(root.getChildren().get(1));
                     multiply.addChild(divide);
@@ -1680,10 +1869,10 @@ public class JFok {
                     && root.getChildren().get(1).getContent() instanceof Operator && (root.getChildren().get(1).getContent().getType() == Operator.ADD
                     || root.getChildren().get(1).getContent().getType() == Operator.SUBTRACT)) { //Ensures that one child is a single number and the other is a polynomial
                 Node<Token> temp = root.getChildren().get(1);
-                Node<Token> n1 = new Node<Token>(OperatorFactory.makeMultiply());
+                Node<Token> n1 = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                 n1.addChild(root.getChildren().get(0));
                 n1.addChild(temp.getChildren().get(0));
-                Node<Token> n2 = new Node<Token>(OperatorFactory.makeMultiply());
+                Node<Token> n2 = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                 n2.addChild(root.getChildren().get(0));
                 n2.addChild(temp.getChildren().get(1));
                 newRoot.addChild(n1);
@@ -1694,10 +1883,10 @@ public class JFok {
                     && root.getChildren().get(0).getContent() instanceof Operator && (root.getChildren().get(0).getContent().getType() == Operator.ADD
                     || root.getChildren().get(0).getContent().getType() == Operator.SUBTRACT)) { //Ensures that one child is a single number and the other is a polynomial) {
                 Node<Token> temp = root.getChildren().get(0);
-                Node<Token> n1 = new Node<Token>(OperatorFactory.makeMultiply());
+                Node<Token> n1 = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                 n1.addChild(temp.getChildren().get(0));
                 n1.addChild(root.getChildren().get(1));
-                Node<Token> n2 = new Node<Token>(OperatorFactory.makeMultiply());
+                Node<Token> n2 = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                 n2.addChild(temp.getChildren().get(1));
                 n2.addChild(root.getChildren().get(1));
                 newRoot.addChild(n1);
@@ -1740,8 +1929,8 @@ public class JFok {
                             && t2 instanceof Operator && (t2.getType() == Operator.ADD || t2.getType() == Operator.SUBTRACT)) { //((T1A +- T1B) + (T2A +- T2B))
                         Node<Token> n = new Node<>(head.getContent());
                         //Rewrites ((T1 +- T2) O (T3 +- T4)) * (E) -> (T1 +- T2) * (E) O (T3 +- T4) * (E) (Distributive property)
-                        Node<Token> multiply1 = new Node<Token>(OperatorFactory.makeMultiply());
-                        Node<Token> multiply2 = new Node<Token>(OperatorFactory.makeMultiply());
+                        Node<Token> multiply1 = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
+                        Node<Token> multiply2 = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                         multiply1.addChild(expression);
                         multiply1.addChild(child1);
                         multiply2.addChild(expression);
@@ -1752,14 +1941,14 @@ public class JFok {
                         //Replaces newHead with n
                         if (newHead.getParent() != null) {
                             Node parent = newHead.getParent();
-                            parent.getChildren().remove(newHead);
+                            parent.delChild(newHead);
                             parent.addChild(n);
                         } else {
                             newExpression = n;
                         }
                     } else if (t1 instanceof Operator && (t1.getType() == Operator.ADD || t1.getType() == Operator.SUBTRACT)) { // (T1A +- T1B) +- T2
                         //Makes the subtree T2 * E
-                        Node<Token> multiply = new Node<Token>(OperatorFactory.makeMultiply());
+                        Node<Token> multiply = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                         multiply.addChild(expression);
                         multiply.addChild(child2);
                         head = child1;
@@ -1769,7 +1958,7 @@ public class JFok {
                         newHead = futureHead;
                     } else if (t2 instanceof Operator && (t2.getType() == Operator.ADD || t2.getType() == Operator.SUBTRACT)) { // (T2A +- T2B) +- T1
                         //Makes the subtree T1 * E
-                        Node<Token> multiply = new Node<Token>(OperatorFactory.makeMultiply());
+                        Node<Token> multiply = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                         multiply.addChild(expression);
                         multiply.addChild(child1);
                         head = child2;
@@ -1778,8 +1967,8 @@ public class JFok {
                         newHead.addChild(futureHead);
                         newHead = futureHead;
                     } else {
-                        Node<Token> multiply1 = new Node<Token>(OperatorFactory.makeMultiply());
-                        Node<Token> multiply2 = new Node<Token>(OperatorFactory.makeMultiply());
+                        Node<Token> multiply1 = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
+                        Node<Token> multiply2 = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                         multiply1.addChild(child1);
                         multiply1.addChild(expression);
                         multiply2.addChild(child2);
@@ -1816,7 +2005,7 @@ public class JFok {
                         //Removes the 1 Token and deos not add the * Token to the new expression
                     } else if (((Number) before).getValue() == -1) {
                         newExpression.remove(before); //Replaces -1 * with -
-                        newExpression.add(DigitFactory.makeNegative());
+                        newExpression.add(DigitFactory.getShared(DigitFactory.NEGATIVE));
                     } else {
                         newExpression.add(current);
                     }
@@ -1830,7 +2019,7 @@ public class JFok {
                                 || newExpression.get(j - 1).getType() == Bracket.NUM_OPEN || newExpression.get(j - 1).getType() == Bracket.SUPERSCRIPT_OPEN)))) {
                             j--;
                         }
-                        newExpression.add(j, DigitFactory.makeNegative()); //Adds a negative in front
+                        newExpression.add(j, DigitFactory.getShared(DigitFactory.NEGATIVE)); //Adds a negative in front
                         i++; //Skips adding the * and the -1
                     } else {
                         newExpression.add(current);
@@ -1869,7 +2058,7 @@ public class JFok {
                                 || newExpression.get(j - 1).getType() == Bracket.NUM_OPEN || newExpression.get(j - 1).getType() == Bracket.SUPERSCRIPT_OPEN)))) {
                             j--;
                         }
-                        newExpression.add(j, DigitFactory.makeNegative()); //Adds a negative in front
+                        newExpression.add(j, DigitFactory.getShared(DigitFactory.NEGATIVE)); //Adds a negative in front
                         i++; //Skips adding the * and the -1
                     } else {
                         newExpression.add(current);
@@ -1896,7 +2085,7 @@ public class JFok {
         Node<Token> temp = new Node<>(root.getContent());
         Node<Token> first;
         for (int i = 0; i < root.getNumOfChildren(); i++) {
-            first = root.getChildren().get(i).copy();
+            first = root.getChildren().get(i); //Only compared, so it is not copied
             for (int j = 0; j < root.getNumOfChildren(); j++) {
                 if (areLikeTerms(first, root.getChildren().get(j))) {
                     temp.addChild(root.getChildren().get(j));
@@ -1905,7 +2094,7 @@ public class JFok {
                 }
             }
             newRoot.addChild(temp);
-            temp = new Node<Token>(OperatorFactory.makeAdd());
+            temp = new Node<Token>(OperatorFactory.getShared(Operator.ADD));
         }
         if (newRoot.getNumOfChildren() == 1) {
             return newRoot.getChildren().get(0);
@@ -1926,20 +2115,20 @@ public class JFok {
                 && term2.getContent() instanceof Operator && term2.getContent().getType() == Operator.MULTIPLY) {
             for (int i = 0; i < term1.getNumOfChildren(); i++) {
                 for (int j = 0; j < term2.getNumOfChildren(); j++) {
-                    if (traverseTree(term1.getChildren().get(i)).equals(traverseTree(term2.getChildren().get(j)))) {
+                    if (isBranchesEqual(term1.getChildren().get(i), term2.getChildren().get(j))) {
                         return true;
                     }
                 }
             }
         } else if (term1.getContent() instanceof Operator && term1.getContent().getType() == Operator.MULTIPLY) {
             for (int i = 0; i < term1.getNumOfChildren(); i++) {
-                if (traverseTree(term1.getChildren().get(i)).equals(traverseTree(term2))) {
+                if (isBranchesEqual(term1.getChildren().get(i), term2)) {
                     return true;
                 }
             }
         } else if (term2.getContent() instanceof Operator && term2.getContent().getType() == Operator.MULTIPLY) {
             for (int i = 0; i < term2.getNumOfChildren(); i++) {
-                if (traverseTree(term2.getChildren().get(i)).equals(traverseTree(term1))) {
+                if (isBranchesEqual(term2.getChildren().get(i), term1)) {
                     return true;
                 }
             }
@@ -1960,15 +2149,15 @@ public class JFok {
     private static Node<Token> add2LikeTerms(Node<Token> term1, Node<Token> term2) {
         Node<Token> newRoot = null;
         if (term1.getContent() instanceof Operator && term1.getContent().getType() == Operator.MULTIPLY) {
-            newRoot = new Node<Token>(OperatorFactory.makeMultiply());
+            newRoot = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
             int e1Pos = -1, e2Pos = -1;
             Node<Token> temp1 = null;
             Node<Token> temp2 = null;
-            Node<Token> temp = new Node<Token>(OperatorFactory.makeAdd());
+            Node<Token> temp = new Node<Token>(OperatorFactory.getShared(Operator.ADD));
             Node<Token> exp = new Node<Token>(new Number(1));
             for (int i = 0; i < term1.getNumOfChildren(); i++) {
                 for (int j = 0; j < term2.getNumOfChildren(); j++) {
-                    if (traverseTree(term1.getChildren().get(i)).equals(traverseTree(term2.getChildren().get(j))) && i != j) {
+                    if (isBranchesEqual(term1.getChildren().get(i), term2.getChildren().get(j)) && i != j) {
                         exp = term1.getChildren().get(i);
                         e1Pos = i;
                         e2Pos = j;
@@ -1982,13 +2171,13 @@ public class JFok {
             }
             for (int i = 0; i < term1.getNumOfChildren(); i++) {
                 if (i != e1Pos) {
-                    temp1 = new Node<Token>(OperatorFactory.makeMultiply());
+                    temp1 = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                     temp1.addChild(term1.getChildren().get(i));
                 }
             }
             for (int i = 0; i < term2.getNumOfChildren(); i++) {
                 if (i != e2Pos) {
-                    temp2 = new Node<Token>(OperatorFactory.makeMultiply());
+                    temp2 = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                     temp2.addChild(term2.getChildren().get(i));
                 }
             }
@@ -2055,12 +2244,12 @@ public class JFok {
                 Node<Token> denom1 = child1.getChildren().get(1);
                 Node<Token> denom2 = child2.getChildren().get(1);
 
-                Node<Token> newFrac = new Node<Token>(OperatorFactory.makeFraction());
+                Node<Token> newFrac = new Node<Token>(OperatorFactory.getShared(Operator.FRACTION));
                 Node<Token> newNum = new Node<Token>(o.getContent());
-                Node<Token> newDenom = new Node<Token>(OperatorFactory.makeMultiply());
+                Node<Token> newDenom = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
 
-                Node<Token> mult1 = new Node<Token>(OperatorFactory.makeMultiply());
-                Node<Token> mult2 = new Node<Token>(OperatorFactory.makeMultiply());
+                Node<Token> mult1 = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
+                Node<Token> mult2 = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                 mult1.addChild(num1);
                 mult1.addChild(denom2);
                 mult1 = simplify(mult1);
@@ -2086,9 +2275,9 @@ public class JFok {
                 Node<Token> num = frac.getChildren().get(0);
                 Node<Token> denom = frac.getChildren().get(1);
 
-                Node<Token> newFrac = new Node<Token>(OperatorFactory.makeFraction());
+                Node<Token> newFrac = new Node<Token>(OperatorFactory.getShared(Operator.FRACTION));
                 Node<Token> newNum = new Node<>(o.getContent());
-                Node<Token> mult = new Node<Token>(OperatorFactory.makeMultiply());
+                Node<Token> mult = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
 
                 mult.addChild(expression);
                 mult.addChild(denom);
@@ -2108,9 +2297,9 @@ public class JFok {
                 Node<Token> num = frac.getChildren().get(0);
                 Node<Token> denom = frac.getChildren().get(1);
 
-                Node<Token> newFrac = new Node<Token>(OperatorFactory.makeFraction());
+                Node<Token> newFrac = new Node<Token>(OperatorFactory.getShared(Operator.FRACTION));
                 Node<Token> newNum = new Node<>(o.getContent());
-                Node<Token> mult = new Node<Token>(OperatorFactory.makeMultiply());
+                Node<Token> mult = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
 
                 mult.addChild(expression);
                 mult.addChild(denom);
@@ -2151,7 +2340,7 @@ public class JFok {
                 if (v1.getType() == v2.getType()) { //Checks to make sure it's the same type
                     if (o.getType() == Operator.MULTIPLY) {
                         //Applies rule V * V -> V ^ 2
-                        Node<Token> newRoot = new Node<Token>(OperatorFactory.makeExponent());
+                        Node<Token> newRoot = new Node<Token>(OperatorFactory.getShared(Operator.EXPONENT));
                         newRoot.addChild(new Node<Token>(v1));
                         newRoot.addChild(new Node<Token>(new Number(2)));
                         return newRoot;
@@ -2175,8 +2364,8 @@ public class JFok {
                 if (v1 != null && v2 != null && v1.getType() == v2.getType()) { //Rule applies
                     if (o.getType() == Operator.DIVIDE || o.getType() == Operator.FRACTION) {
                         //Applies rule (V ^ E1) / (V ^ E2) -> V ^ (E1 - E2)
-                        Node<Token> head = new Node<Token>(OperatorFactory.makeExponent());
-                        Node<Token> subtract = new Node<Token>(OperatorFactory.makeSubtract());
+                        Node<Token> head = new Node<Token>(OperatorFactory.getShared(Operator.EXPONENT));
+                        Node<Token> subtract = new Node<Token>(OperatorFactory.getShared(Operator.SUBTRACT));
                         subtract.addChild(node1);
                         subtract.addChild(node2);
                         head.addChild(new Node<Token>(v1));
@@ -2184,8 +2373,8 @@ public class JFok {
                         return head;
                     } else if (o.getType() == Operator.MULTIPLY) {
                         //Applies rule (V ^ E1) * (V ^ E2) -> V ^ (E1 + E2)
-                        Node<Token> head = new Node<Token>(OperatorFactory.makeExponent());
-                        Node<Token> add = new Node<Token>(OperatorFactory.makeAdd());
+                        Node<Token> head = new Node<Token>(OperatorFactory.getShared(Operator.EXPONENT));
+                        Node<Token> add = new Node<Token>(OperatorFactory.getShared(Operator.ADD));
                         add.addChild(node1);
                         add.addChild(node2);
                         head.addChild(new Node<Token>(v1));
@@ -2205,9 +2394,9 @@ public class JFok {
                     Node<Token> node = exponent.getChildren().get(1);
                     if (o.getType() == Operator.DIVIDE || o.getType() == Operator.FRACTION) {
                         //Applies rule V / V ^ E -> V ^ (1 - E)
-                        Node<Token> head = new Node<Token>(OperatorFactory.makeExponent());
+                        Node<Token> head = new Node<Token>(OperatorFactory.getShared(Operator.EXPONENT));
                         head.addChild(new Node<Token>(v));
-                        Node<Token> subtract = new Node<Token>(OperatorFactory.makeSubtract());
+                        Node<Token> subtract = new Node<Token>(OperatorFactory.getShared(Operator.SUBTRACT));
                         subtract.addChild(new Node<Token>(new Number(1)));
                         subtract.addChild(node);
                         head.addChild(subtract);
@@ -2215,9 +2404,9 @@ public class JFok {
                         return head;
                     } else if (o.getType() == Operator.MULTIPLY) {
                         //Applies rule V * V ^ E -> V ^ (1 + E)
-                        Node<Token> head = new Node<Token>(OperatorFactory.makeExponent());
+                        Node<Token> head = new Node<Token>(OperatorFactory.getShared(Operator.EXPONENT));
                         head.addChild(new Node<Token>(v));
-                        Node<Token> add = new Node<Token>(OperatorFactory.makeAdd());
+                        Node<Token> add = new Node<Token>(OperatorFactory.getShared(Operator.ADD));
                         add.addChild(new Node<Token>(new Number(1)));
                         add.addChild(node);
                         head.addChild(add);
@@ -2237,9 +2426,9 @@ public class JFok {
                     Node<Token> node = exponent.getChildren().get(1);
                     if (o.getType() == Operator.DIVIDE || o.getType() == Operator.FRACTION) {
                         //Applies rule V / V ^ E -> V ^ (1 - E)
-                        Node<Token> head = new Node<Token>(OperatorFactory.makeExponent());
+                        Node<Token> head = new Node<Token>(OperatorFactory.getShared(Operator.EXPONENT));
                         head.addChild(new Node<Token>(v));
-                        Node<Token> subtract = new Node<Token>(OperatorFactory.makeSubtract());
+                        Node<Token> subtract = new Node<Token>(OperatorFactory.getShared(Operator.SUBTRACT));
                         subtract.addChild(new Node<Token>(new Number(1)));
                         subtract.addChild(node);
                         head.addChild(subtract);
@@ -2247,9 +2436,9 @@ public class JFok {
                         return head;
                     } else if (o.getType() == Operator.MULTIPLY) {
                         //Applies rule V * V ^ E -> V ^ (1 + E)
-                        Node<Token> head = new Node<Token>(OperatorFactory.makeExponent());
+                        Node<Token> head = new Node<Token>(OperatorFactory.getShared(Operator.EXPONENT));
                         head.addChild(new Node<Token>(v));
-                        Node<Token> add = new Node<Token>(OperatorFactory.makeAdd());
+                        Node<Token> add = new Node<Token>(OperatorFactory.getShared(Operator.ADD));
                         add.addChild(new Node<Token>(new Number(1)));
                         add.addChild(node);
                         head.addChild(add);
@@ -2289,18 +2478,18 @@ public class JFok {
                 throw new IllegalArgumentException("Power must be an integer");
             }
             if (n < 0) {
-                Node<Token> head = new Node<Token>(OperatorFactory.makeDivide());
+                Node<Token> head = new Node<Token>(OperatorFactory.getShared(Operator.DIVIDE));
                 head.addChild(new Node<Token>(new Number(1)));
                 n *= -1;
                 if (n == 1) {
                     head.addChild(expression);
                 } else { //n > 1
                     n -= 2;
-                    Node<Token> head2 = new Node<Token>(OperatorFactory.makeMultiply());
+                    Node<Token> head2 = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                     head2.addChild(expression); //NOTE: No need to clone
                     head2.addChild(expression);
                     while (n > 0) {
-                        Node<Token> newHead = new Node<Token>(OperatorFactory.makeMultiply());
+                        Node<Token> newHead = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                         newHead.addChild(expression);
                         newHead.addChild(head2);
                         head2 = newHead;
@@ -2315,11 +2504,11 @@ public class JFok {
                 return expression; //Simply removes the ^ 1
             } else { //n > 2
                 n -= 2;
-                Node<Token> head = new Node<Token>(OperatorFactory.makeMultiply());
+                Node<Token> head = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                 head.addChild(expression); //NOTE: No need to clone
                 head.addChild(expression);
                 while (n > 0) {
-                    Node<Token> newHead = new Node<Token>(OperatorFactory.makeMultiply());
+                    Node<Token> newHead = new Node<Token>(OperatorFactory.getShared(Operator.MULTIPLY));
                     newHead.addChild(expression);
                     newHead.addChild(head);
                     head = newHead;
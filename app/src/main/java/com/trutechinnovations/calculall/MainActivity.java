@@ -49,6 +49,7 @@ public class MainActivity extends FragmentActivity implements ViewPager.OnPageCh
     public static final int AD_RATE = 2; //Ads will show 1 in 2 activity opens
     private static final String AD_ID = "3ae32e9f72e2402cb01bbbaf1d6ba1f4";
     private static final String TOKENS_FILENAME = "tokens";
+    private static final String CACHE_FILENAME = "symja_cache";
     private static final int VIRBRATE_DURATION = 17;
     //Display Objects
     protected DisplayView display;
@@ -80,6 +81,15 @@ public class MainActivity extends FragmentActivity implements ViewPager.OnPageCh
         functionExpr = new ArrayList<>();
         vectorExpr = new ArrayList<>();
         matrixExpr = new ArrayList<>();
+        //Loads the saved calculus results
+        if (MathUtilities.getCache().size() == 0) {
+            try {
+                FileInputStream stream = openFileInput(CACHE_FILENAME);
+                MathUtilities.getCache().load(stream);
+                stream.close();
+            } catch (IOException ignored) {
+            }
+        }
     }
 
     /**
@@ -92,9 +102,15 @@ public class MainActivity extends FragmentActivity implements ViewPager.OnPageCh
         autocalculateOn = pref.getBoolean(getString(R.string.autocalculate), SettingsActivity.AUTOCALCULATE_ON);
         fontSize = pref.getInt(getString(R.string.font_size), SettingsActivity.DEFAULT_FONT_SIZE);
         int roundTo = pref.getInt(getString(R.string.round_to), SettingsActivity.DEFAULT_ROUND);
+        int precision = pref.getInt(getString(R.string.precision), SettingsActivity.DEFAULT_PRECISION);
+        boolean exactEigen = pref.getBoolean(getString(R.string.exact_eigen), SettingsActivity.DEFAULT_EXACT_EIGEN);
 
         //Sets the decimal rounding
         Number.roundTo = roundTo;
+        //Sets the high precision mode
+        PreciseEvaluator.getInstance().setDigits(precision);
+        //Sets if the eigenvectors are found symbolically
+        MatrixUtils.exactEigenvectors = exactEigen;
         //Sets the font sizes
         display.setFontSize(fontSize);
 
@@ -117,6 +133,16 @@ public class MainActivity extends FragmentActivity implements ViewPager.OnPageCh
         } catch (IOException e) {
             e.printStackTrace();
         }
+        //Writes any calculations still waiting to be saved to history
+        HistoryLog.getInstance().flush();
+        //Saves the calculus results so that they survive restarts
+        try {
+            FileOutputStream outStream = openFileOutput(CACHE_FILENAME, Context.MODE_PRIVATE);
+            MathUtilities.getCache().save(outStream);
+            outStream.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
         super.onPause();
     }
 
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2016 TruTech Innovations Inc - All Rights Reserved
+ */
+
+package com.trutechinnovations.calculall;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Schedules the heavy calculus computations (derivatives, integrals, expanding, factoring and
+ * roots) that are done by Symja. Jobs are run one at a time on a single worker thread, since the
+ * Symja evaluator is shared; submitting a new job cancels the previous one rather than queueing
+ * behind it. Every job has a deadline, and cancelling a job (or passing its deadline) stops the
+ * Symja evaluation itself instead of just abandoning the result.
+ *
+ * @author Alston Lin
+ * @version 3.0
+ */
+public class MathScheduler {
+
+    public static final int PENDING = 0, RUNNING = 1, FINISHED = 2, CANCELLED = 3, TIMED_OUT = 4; //Job states
+    private static final int STACK_SIZE = 500000; //1MB STACK SIZE
+    private static final MathScheduler INSTANCE = new MathScheduler();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            ThreadGroup group = new ThreadGroup("threadGroup");
+            return new Thread(group, r, "Calculus Thread", STACK_SIZE);
+        }
+    });
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private Job<?, ?> current; //The most recently submitted job
+    private int pending = 0, finished = 0, cancelled = 0, timedOut = 0;
+
+    /**
+     * Allows for the Singleton pattern so there would be only one instance.
+     */
+    private MathScheduler() {
+    }
+
+    /**
+     * @return The singleton instance
+     */
+    public static MathScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Schedules the given task, cancelling any job that has not finished yet. The handlers are
+     * called on the UI thread, and are not called at all if the job has been cancelled.
+     *
+     * @param task          The computation to do
+     * @param param         The parameter given to the task
+     * @param timeout       The maximum time (in milliseconds) the task may take
+     * @param resultHandler Called with the result of the task if it finished
+     * @param errorHandler  Called if the task threw an Exception, or with a TimeoutException if it took too long
+     * @param <E>           The type of the result
+     * @param <F>           The type of the parameter
+     * @return The scheduled job
+     */
+    public synchronized <E, F> Job<E, F> submit(Command<E, F> task, F param, long timeout,
+                                                Command<Void, E> resultHandler, Command<Void, Exception> errorHandler) {
+        if (current != null) { //Stale job; replaced by this one
+            current.cancel();
+        }
+        final Job<E, F> job = new Job<>(task, param, resultHandler, errorHandler);
+        current = job;
+        pending++;
+        job.future = worker.submit(new Runnable() {
+            @Override
+            public void run() {
+                android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_MORE_FAVORABLE); //Higher priority
+                job.run();
+            }
+        });
+        job.deadline = timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                job.stop(TIMED_OUT);
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+        return job;
+    }
+
+    /**
+     * Cancels the most recently submitted job, if it has not finished yet.
+     */
+    public synchronized void cancel() {
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    /**
+     * @return The number of jobs waiting to be run
+     */
+    public synchronized int getQueueDepth() {
+        return pending;
+    }
+
+    /**
+     * @return How long (in milliseconds) the job currently being computed has been running for, or 0 if there is none
+     */
+    public synchronized long getRunningTime() {
+        if (current == null || current.state != RUNNING) {
+            return 0;
+        }
+        return System.currentTimeMillis() - current.startTime;
+    }
+
+    /**
+     * @return The number of jobs that have finished (successfully or with an error)
+     */
+    public synchronized int getFinishedCount() {
+        return finished;
+    }
+
+    /**
+     * @return The number of jobs that have been cancelled
+     */
+    public synchronized int getCancelledCount() {
+        return cancelled;
+    }
+
+    /**
+     * @return The number of jobs that have been stopped for going past their deadline
+     */
+    public synchronized int getTimedOutCount() {
+        return timedOut;
+    }
+
+    /**
+     * A computation that has been scheduled.
+     *
+     * @param <E> The type of the result
+     * @param <F> The type of the parameter
+     */
+    public class Job<E, F> {
+        private final Command<E, F> task;
+        private final F param;
+        private final Command<Void, E> resultHandler;
+        private final Command<Void, Exception> errorHandler;
+        private Future<?> future;
+        private Future<?> deadline;
+        private int state = PENDING;
+        private long startTime;
+
+        private Job(Command<E, F> task, F param, Command<Void, E> resultHandler, Command<Void, Exception> errorHandler) {
+            this.task = task;
+            this.param = param;
+            this.resultHandler = resultHandler;
+            this.errorHandler = errorHandler;
+        }
+
+        /**
+         * Runs the task on the worker thread and posts the outcome to the UI thread.
+         */
+        private void run() {
+            synchronized (MathScheduler.this) {
+                if (state != PENDING) { //Cancelled before it started
+                    return;
+                }
+                pending--;
+                state = RUNNING;
+                startTime = System.currentTimeMillis();
+            }
+            E result = null;
+            Exception error = null;
+            try {
+                result = task.execute(param);
+            } catch (Exception e) {
+                error = e;
+            } catch (StackOverflowError e) {
+                error = new IllegalArgumentException("Not enough processing power to compute!");
+            }
+            synchronized (MathScheduler.this) {
+                if (state != RUNNING) { //Stopped during the computation; Symja may be left in a bad state
+                    MathUtilities.resetEvaluator();
+                    return;
+                }
+                state = FINISHED;
+                finished++;
+                deadline.cancel(false);
+            }
+            final E finalResult = result;
+            final Exception finalError = error;
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (isCancelled()) {
+                        return;
+                    }
+                    if (finalError == null) {
+                        resultHandler.execute(finalResult);
+                    } else {
+                        errorHandler.execute(finalError);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Cancels this job if it has not finished yet; the handlers will not be called.
+         */
+        public void cancel() {
+            stop(CANCELLED);
+        }
+
+        /**
+         * Stops this job, along with the Symja evaluation if it is running.
+         *
+         * @param newState Either CANCELLED or TIMED_OUT
+         */
+        private void stop(int newState) {
+            synchronized (MathScheduler.this) {
+                if (state == PENDING) {
+                    pending--;
+                } else if (state == RUNNING) {
+                    MathUtilities.stopEvaluation();
+                } else { //Already over
+                    return;
+                }
+                state = newState;
+                if (newState == TIMED_OUT) {
+                    timedOut++;
+                } else {
+                    cancelled++;
+                }
+                future.cancel(true);
+                deadline.cancel(false);
+                if (current == this) {
+                    current = null;
+                }
+            }
+            if (newState == TIMED_OUT) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        errorHandler.execute(new TimeoutException());
+                    }
+                });
+            }
+        }
+
+        /**
+         * @return The state of this job (see class constants of MathScheduler)
+         */
+        public int getState() {
+            synchronized (MathScheduler.this) {
+                return state;
+            }
+        }
+
+        /**
+         * @return If this job has been cancelled (not including timing out)
+         */
+        public boolean isCancelled() {
+            return getState() == CANCELLED;
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.matheclipse.core.interfaces.IExpr;
 import org.matheclipse.parser.client.SyntaxError;
 
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Utilities specifically for calculus related functions.
@@ -18,7 +19,67 @@ import java.util.ArrayList;
  * @version 3.0
  */
 public class MathUtilities {
-    private static EvalUtilities util = new EvalUtilities(false, true);
+    private static final int CACHE_SIZE = 64;
+    private static final long CACHE_AGE = 7L * 24 * 60 * 60 * 1000; //One week
+    private static final ResultCache cache = new ResultCache(CACHE_SIZE, CACHE_AGE);
+    private static final AtomicInteger stops = new AtomicInteger(); //Amount of evaluations that have been stopped
+    private static volatile EvalUtilities util = new EvalUtilities(false, true);
+
+    /**
+     * @return The cache of the results of queries sent to Symja
+     */
+    public static ResultCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Requests the Symja evaluation currently running (on any thread) to stop.
+     */
+    public static void stopEvaluation() {
+        stops.incrementAndGet();
+        util.stopRequest();
+    }
+
+    /**
+     * Replaces the Symja evaluator with a new one; used after an evaluation has been stopped so
+     * that no state is carried over to the next one.
+     */
+    public static void resetEvaluator() {
+        util = new EvalUtilities(false, true);
+    }
+
+    /**
+     * Uses the Symja library to evaluate the given query, or returns the result of the same query
+     * from the cache if it has been evaluated before.
+     *
+     * @param query The query to evaluate (ex. diff(x^2,x))
+     * @return The result of the query as a String
+     */
+    private static String evaluate(String query) {
+        return evaluate(query, null);
+    }
+
+    /**
+     * Uses the Symja library to evaluate the given query, or returns the result of the same query
+     * from the cache if it has been evaluated before. The result is only cached if it is complete;
+     * it is not if the evaluation was stopped while it ran, or if Symja could not finish it.
+     *
+     * @param query      The query to evaluate (ex. Solve(x^2==0,x))
+     * @param unfinished Text that is in the result when Symja could not finish it (ex. Solve), or
+     *                   null if every result is complete
+     * @return The result of the query as a String
+     */
+    private static String evaluate(String query, String unfinished) {
+        String result = cache.get(query);
+        if (result == null) {
+            int stopsBefore = stops.get();
+            result = util.evaluate(query).toString();
+            if (stops.get() == stopsBefore && (unfinished == null || !result.contains(unfinished))) {
+                cache.put(query, result);
+            }
+        }
+        return result;
+    }
 
     /**
      * Differentiates the given function in ArrayList form.
@@ -53,7 +114,7 @@ public class MathUtilities {
             integral = replaceAppellF1(integral);
             integral = JFok.jFokExpression(integral);
             //Constant of Integration
-            integral.add(OperatorFactory.makeAdd());
+            integral.add(OperatorFactory.getShared(Operator.ADD));
             integral.add(VariableFactory.makeConstant());
             return integral;
         } catch (SyntaxError e) { //Malformed expression
@@ -91,21 +152,21 @@ public class MathUtilities {
                 function.remove(function.size() - 1); //Last close bracket
                 if (Utility.machinePrintExpression(function).equals("2.0,1.0/2.0,1.0/2.0,3.0,x,-x")) {
                     //AppellF1(2,1/2,1/2,3/x,-x) = -2sqrt(1-x^2)/x^2
-                    newExpr.add(DigitFactory.makeNegative());
-                    newExpr.add(DigitFactory.makeTwo());
-                    newExpr.add(OperatorFactory.makeMultiply());
-                    newExpr.add(FunctionFactory.makeSqrt());
-                    newExpr.add(BracketFactory.makeOpenBracket());
-                    newExpr.add(DigitFactory.makeOne());
-                    newExpr.add(OperatorFactory.makeSubtract());
+                    newExpr.add(DigitFactory.getShared(DigitFactory.NEGATIVE));
+                    newExpr.add(DigitFactory.getShared(2));
+                    newExpr.add(OperatorFactory.getShared(Operator.MULTIPLY));
+                    newExpr.add(FunctionFactory.getShared(Function.SQRT));
+                    newExpr.add(BracketFactory.getShared(Bracket.OPEN));
+                    newExpr.add(DigitFactory.getShared(1));
+                    newExpr.add(OperatorFactory.getShared(Operator.SUBTRACT));
                     newExpr.add(VariableFactory.makeX());
-                    newExpr.add(OperatorFactory.makeExponent());
-                    newExpr.add(DigitFactory.makeTwo());
-                    newExpr.add(BracketFactory.makeCloseBracket());
-                    newExpr.add(OperatorFactory.makeDivide());
+                    newExpr.add(OperatorFactory.getShared(Operator.EXPONENT));
+                    newExpr.add(DigitFactory.getShared(2));
+                    newExpr.add(BracketFactory.getShared(Bracket.CLOSE));
+                    newExpr.add(OperatorFactory.getShared(Operator.DIVIDE));
                     newExpr.add(VariableFactory.makeX());
-                    newExpr.add(OperatorFactory.makeExponent());
-                    newExpr.add(DigitFactory.makeTwo());
+                    newExpr.add(OperatorFactory.getShared(Operator.EXPONENT));
+                    newExpr.add(DigitFactory.getShared(2));
                 }
             } else {
                 newExpr.add(t);
@@ -122,9 +183,8 @@ public class MathUtilities {
      */
     public static String integrateStr(String function) {
         String str = "Factor(integrate(" + function + ",x))";
-        IExpr integral = util.evaluate(str);
-        String integralStr = integral.toString();
-        if (integral.toString().contains("Integrate")) { //Could not integrate into an elementary function
+        String integralStr = evaluate(str, "Integrate");
+        if (integralStr.contains("Integrate")) { //Could not integrate into an elementary function
             throw new UnsupportedOperationException();
         }
         if (integralStr.contains("Factor")) { //Cannot factor further
@@ -162,7 +222,7 @@ public class MathUtilities {
             } else if (Character.isDigit(c) || c == '.') { //Initial Digit of a number
                 //Special case: AppellF1
                 if (c == '1' && temp.equals("AppellF")) {
-                    tokens.add(FunctionFactory.makeAppellF1());
+                    tokens.add(FunctionFactory.getShared(Function.APPELLF1));
                     temp = "";
                     handled = true;
                 } else {
@@ -190,83 +250,83 @@ public class MathUtilities {
                         //Looks for combinations of characters for functions
                         switch (temp) {
                             case "Sqrt":
-                                tokens.add(FunctionFactory.makeSqrt());
+                                tokens.add(FunctionFactory.getShared(Function.SQRT));
                                 temp = "";
                                 break;
                             case "Sin":
-                                tokens.add(FunctionFactory.makeSin());
+                                tokens.add(FunctionFactory.getShared(Function.SIN));
                                 temp = "";
                                 break;
                             case "Cos":
-                                tokens.add(FunctionFactory.makeCos());
+                                tokens.add(FunctionFactory.getShared(Function.COS));
                                 temp = "";
                                 break;
                             case "Tan":
-                                tokens.add(FunctionFactory.makeTan());
+                                tokens.add(FunctionFactory.getShared(Function.TAN));
                                 temp = "";
                                 break;
                             case "Csc":
-                                tokens.add(FunctionFactory.makeCsc());
+                                tokens.add(FunctionFactory.getShared(Function.CSC));
                                 temp = "";
                                 break;
                             case "Sec":
-                                tokens.add(FunctionFactory.makeSec());
+                                tokens.add(FunctionFactory.getShared(Function.SEC));
                                 temp = "";
                                 break;
                             case "Cot":
-                                tokens.add(FunctionFactory.makeCot());
+                                tokens.add(FunctionFactory.getShared(Function.COT));
                                 temp = "";
                                 break;
                             case "Erf":
-                                tokens.add(FunctionFactory.makeErf());
+                                tokens.add(FunctionFactory.getShared(Function.ERF));
                                 temp = "";
                                 break;
                             case "Erfi":
-                                tokens.add(FunctionFactory.makeErfi());
+                                tokens.add(FunctionFactory.getShared(Function.ERFI));
                                 temp = "";
                                 break;
                             case "Gamma":
-                                tokens.add(FunctionFactory.makeGamma());
+                                tokens.add(FunctionFactory.getShared(Function.GAMMA));
                                 temp = "";
                                 break;
                             case "ArcSin":
-                                tokens.add(FunctionFactory.makeASin());
+                                tokens.add(FunctionFactory.getShared(Function.ARCSIN));
                                 temp = "";
                                 break;
                             case "ArcCos":
-                                tokens.add(FunctionFactory.makeACos());
+                                tokens.add(FunctionFactory.getShared(Function.ARCCOS));
                                 temp = "";
                                 break;
                             case "ArcTan":
-                                tokens.add(FunctionFactory.makeATan());
+                                tokens.add(FunctionFactory.getShared(Function.ARCTAN));
                                 temp = "";
                                 break;
                             case "Log":
-                                tokens.add(FunctionFactory.makeLn());
+                                tokens.add(FunctionFactory.getShared(Function.LN));
                                 temp = "";
                                 break;
                             case "Sinh":
-                                tokens.add(FunctionFactory.makeSinh());
+                                tokens.add(FunctionFactory.getShared(Function.SINH));
                                 temp = "";
                                 break;
                             case "Cosh":
-                                tokens.add(FunctionFactory.makeCosh());
+                                tokens.add(FunctionFactory.getShared(Function.COSH));
                                 temp = "";
                                 break;
                             case "Tanh":
-                                tokens.add(FunctionFactory.makeTanh());
+                                tokens.add(FunctionFactory.getShared(Function.TANH));
                                 temp = "";
                                 break;
                             case "ArcSinh":
-                                tokens.add(FunctionFactory.makeASinh());
+                                tokens.add(FunctionFactory.getShared(Function.ARCSINH));
                                 temp = "";
                                 break;
                             case "ArcCosh":
-                                tokens.add(FunctionFactory.makeACosh());
+                                tokens.add(FunctionFactory.getShared(Function.ARCCOSH));
                                 temp = "";
                                 break;
                             case "ArcTanh":
-                                tokens.add(FunctionFactory.makeATanh());
+                                tokens.add(FunctionFactory.getShared(Function.ARCTANH));
                                 temp = "";
                         }
                     }
@@ -277,19 +337,19 @@ public class MathUtilities {
             //FILTERS OPERATORS
             if (!handled) {
                 if (c == '+') {
-                    tokens.add(OperatorFactory.makeAdd());
+                    tokens.add(OperatorFactory.getShared(Operator.ADD));
                     handled = true;
                 } else if (c == '-') {
-                    tokens.add(OperatorFactory.makeSubtract());
+                    tokens.add(OperatorFactory.getShared(Operator.SUBTRACT));
                     handled = true;
                 } else if (c == '*') {
-                    tokens.add(OperatorFactory.makeMultiply());
+                    tokens.add(OperatorFactory.getShared(Operator.MULTIPLY));
                     handled = true;
                 } else if (c == '/') {
-                    tokens.add(OperatorFactory.makeDivide());
+                    tokens.add(OperatorFactory.getShared(Operator.DIVIDE));
                     handled = true;
                 } else if (c == '^') {
-                    tokens.add(OperatorFactory.makeExponent());
+                    tokens.add(OperatorFactory.getShared(Operator.EXPONENT));
                     handled = true;
                 }
             }
@@ -297,9 +357,9 @@ public class MathUtilities {
             //FILTERS BRACKETS
             if (!handled) {
                 if (c == '(') {
-                    tokens.add(BracketFactory.makeOpenBracket());
+                    tokens.add(BracketFactory.getShared(Bracket.OPEN));
                 } else if (c == ')') {
-                    tokens.add(BracketFactory.makeCloseBracket());
+                    tokens.add(BracketFactory.getShared(Bracket.CLOSE));
                 } else if (c == ',') {
                     tokens.add(PlaceholderFactory.makeComma());
                 } else {
@@ -341,8 +401,7 @@ public class MathUtilities {
      * @return The derivative
      */
     public static String differentiateStr(String function) {
-        IExpr derivative = util.evaluate("diff(" + function + ",x)");
-        return derivative.toString();
+        return evaluate("diff(" + function + ",x)");
     }
 
     /**
@@ -372,8 +431,7 @@ public class MathUtilities {
      * @return The derivative
      */
     public static String simplifyStr(String function) {
-        IExpr simplified = util.evaluate("Simplify(" + function + ")");
-        return simplified.toString();
+        return evaluate("Simplify(" + function + ")");
     }
 
     /**
@@ -385,7 +443,7 @@ public class MathUtilities {
     public static ArrayList<Token> expand(ArrayList<Token> expression) {
         String simplifyStr = "Expand(" + Utility.machinePrintExpression(Utility.setupExpression(expression)) + ")";
         try {
-            ArrayList<Token> simplified = convertStringToTokens(util.evaluate(simplifyStr).toString());
+            ArrayList<Token> simplified = convertStringToTokens(evaluate(simplifyStr));
             simplified = JFok.jFokExpression(simplified);
             return simplified;
         } catch (SyntaxError e) {
@@ -402,7 +460,7 @@ public class MathUtilities {
     public static ArrayList<Token> factor(ArrayList<Token> expression) {
         String simplifyStr = "Factor(" + Utility.machinePrintExpression(Utility.setupExpression(expression)) + ")";
         try {
-            String simplifiedStr = util.evaluate(simplifyStr).toString();
+            String simplifiedStr = evaluate(simplifyStr);
             if (simplifiedStr.contains("Factor")) { //Cannot factor further
                 simplifiedStr = simplifiedStr.substring(7, simplifiedStr.length() - 1);
             }
@@ -424,8 +482,7 @@ public class MathUtilities {
         String solveStr = "Solve(" + Utility.machinePrintExpression(Utility.setupExpression(expression)) + "==0,x)";
         try {
             //Uses the library to get the result as a String
-            IExpr roots = util.evaluate(solveStr);
-            String rootsStr = roots.toString();
+            String rootsStr = evaluate(solveStr, "Solve");
             rootsStr = rootsStr.replace("\n", "");
             if (rootsStr.contains("Solve")) {
                 throw new UnsupportedOperationException("Cannot find the root");
@@ -450,9 +507,15 @@ public class MathUtilities {
                 rootsList.add(convertStringToTokens(temp)); //For the last root
             }
             //Validates the roots (makes sure that it is actually a root)
+            CompiledExpression function;
+            try {
+                function = CompiledExpression.compile(expression);
+            } catch (RuntimeException e) { //Malformed expression; it has no value at any root
+                return new ArrayList<>();
+            }
             for (int i = 0; i < rootsList.size(); i++) {
                 ArrayList<Token> root = rootsList.get(i);
-                float value = (float) Utility.valueAt(expression, Utility.evaluateExpression(Utility.convertToReversePolish(Utility.setupExpression(root))));
+                float value = (float) function.valueAt(Utility.evaluateExpression(Utility.convertToReversePolish(Utility.setupExpression(root))));
                 final float ERROR_MARGIN = 1e-6f;
                 if (!(value > -ERROR_MARGIN && value < ERROR_MARGIN)) {
                     rootsList.remove(root);
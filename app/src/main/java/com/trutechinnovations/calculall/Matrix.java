@@ -12,7 +12,11 @@ import java.util.Arrays;
 
 public class Matrix extends Token {
 
+    private static final long serialVersionUID = 3367280327739855631L; //The same as before it was set, so old history can still be read
     private ArrayList<Token>[][] entries;
+    private transient int version; //Changed whenever the entries are changed
+    private transient double[][] values; //The evaluated entries, if they have been evaluated
+    private transient int valuesVersion; //The version of the entries that were evaluated
 
     public Matrix(ArrayList<Token>[][] entries) {
         super(null);
@@ -39,6 +43,7 @@ public class Matrix extends Token {
      * @param numOfCols The new number of columns of the Matrix
      */
     public void changeSize(int numOfRows, int numOfCols) {
+        version++;
         ArrayList<Token>[][] temp = entries;
         entries = new ArrayList[numOfRows][numOfCols];
         //Populates the entries
@@ -63,23 +68,73 @@ public class Matrix extends Token {
      * @param entry The entry to set
      */
     public void setEntry(int x, int y, ArrayList<Token> entry) {
+        version++;
         entries[x][y] = entry;
     }
 
+    /**
+     * @return The entries of this Matrix; they must not be changed in place, as the evaluated
+     * entries would not be updated (use setEntry() instead)
+     */
     public ArrayList<Token>[][] getEntries() {
         return entries;
     }
 
+    /**
+     * Evaluates every entry of this Matrix. The values are kept until the entries are changed
+     * (through setEntry(), changeSize() or fractionalize()), unless they depend on a user-defined
+     * variable, which could be changed at any time.
+     *
+     * @return The value of each entry; a new array each time, which may be changed freely
+     * @throws IllegalArgumentException If an entry is empty or invalid
+     */
     public double[][] getEntriesAsDbls() {
+        double[][] output = values;
+        if (output == null || valuesVersion != version) {
+            output = evaluateEntries();
+        }
+        double[][] copy = new double[output.length][];
+        for (int i = 0; i < output.length; i++) {
+            copy[i] = output[i].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Evaluates every entry of this Matrix, keeping the values if they can be reused.
+     *
+     * @return The value of each entry
+     */
+    private double[][] evaluateEntries() {
         double[][] output = new double[getNumOfRows()][getNumOfCols()];
-        for (int i = 0; i < getNumOfRows(); i++) {
-            for (int j = 0; j < getNumOfCols(); j++) {
-                output[i][j] = Utility.process(getEntry(i, j));
+        boolean constant = true; //If no entry has a user-defined variable
+        for (int i = 0; i < output.length; i++) {
+            for (int j = 0; j < output[i].length; j++) {
+                ArrayList<Token> entry = entries[i][j];
+                if (entry.isEmpty()) {
+                    throw new IllegalArgumentException("Parsing failed, entry is empty");
+                }
+                for (Token t : entry) {
+                    if (t instanceof Variable && t.getType() != Variable.PI && t.getType() != Variable.E) {
+                        constant = false;
+                    }
+                }
+                output[i][j] = Utility.evaluateExpression(ReversePolishParser.parse(entry));
             }
         }
+        if (constant) {
+            values = output;
+            valuesVersion = version;
+        }
         return output;
     }
 
+    /**
+     * @param i Row number
+     * @param j Column number
+     * @return The entry at the given row and column; it must not be changed in place, as the
+     * evaluated entries would not be updated (use setEntry() instead)
+     */
     public ArrayList<Token> getEntry(int i, int j) {
         if (i >= 0 && i < entries.length && j >= 0 && j < entries[0].length) {
             return entries[i][j];
@@ -149,6 +204,7 @@ public class Matrix extends Token {
      * Converts decimal entries into fractions if practical.
      */
     public void fractionalize() {
+        version++;
         for (int i = 0; i < entries.length; i++) {
             for (int j = 0; j < entries[i].length; j++) {
                 ArrayList<Token> entry = entries[i][j];
@@ -10,6 +10,7 @@ public abstract class MatrixFunction extends Token {
 
     public static final int REF = 1, RREF = 2, DET = 3, TRANSPOSE = 4, INVERSE = 5, DIAG = 6,
             EIGENVECT = 7, EIGENVAL = 8, TRACE = 9, RANK = 10, LU = 11;
+    private static final long serialVersionUID = -2951109814855139639L; //The same as before it was set, so old history can still be read
 
     /**
      * Should not be used outside of a factory; to create a type of function,
@@ -29,7 +30,7 @@ public abstract class MatrixFunction extends Token {
      * @param input The input that is given for the function
      * @return The output of the performed function
      */
-    public abstract double[][] perform(double[][] input);
+    public abstract DenseMatrix perform(DenseMatrix input);
 
     /**
      * @return The type of Function this is, as defined by the class constants
@@ -12,8 +12,10 @@ public class MatrixFunctionFactory {
 
     public static MatrixFunction makeTranspose() {
         return new MatrixFunction("trans", MatrixFunction.TRANSPOSE) {
+            private static final long serialVersionUID = -4930889293649966075L;
+
             @Override
-            public double[][] perform(double[][] input) {
+            public DenseMatrix perform(DenseMatrix input) {
                 return MatrixUtils.transpose(input);
             }
         };
@@ -21,29 +23,35 @@ public class MatrixFunctionFactory {
 
     public static MatrixFunction makeREF() {
         return new MatrixFunction("REF", MatrixFunction.REF) {
+            private static final long serialVersionUID = -8301031117216269567L;
+
             @Override
-            public double[][] perform(double[][] input) {
-                return MatrixUtils.toREF(input);
+            public DenseMatrix perform(DenseMatrix input) {
+                return DenseMatrix.of(MatrixUtils.toREF(input.getData()));
             }
         };
     }
 
     public static MatrixFunction makeRREF() {
         return new MatrixFunction("RREF", MatrixFunction.RREF) {
+            private static final long serialVersionUID = 1106745009375703868L;
+
             @Override
-            public double[][] perform(double[][] input) {
-                return MatrixUtils.toRREF(input);
+            public DenseMatrix perform(DenseMatrix input) {
+                return DenseMatrix.of(MatrixUtils.toRREF(input.getData()));
             }
         };
     }
 
     public static MatrixFunction makeDeterminant() {
         return new MatrixFunction("det", MatrixFunction.DET) {
+            private static final long serialVersionUID = 4799373506461715866L;
+
             @Override
-            public double[][] perform(double[][] input) {
-                if (input.length == input[0].length) {
-                    double[][] output = new double[1][1];
-                    output[0][0] = MatrixUtils.findDeterminant(input);
+            public DenseMatrix perform(DenseMatrix input) {
+                if (input.isSquare()) {
+                    DenseMatrix output = new DenseMatrix(1, 1);
+                    output.setEntry(0, 0, MatrixUtils.findDeterminant(input.getData()));
                     return output;
                 } else {
                     throw new IllegalArgumentException("Determinant is only defined for square matrices");
@@ -54,13 +62,15 @@ public class MatrixFunctionFactory {
 
     public static MatrixFunction makeTrace() {
         return new MatrixFunction("tr", MatrixFunction.TRACE) {
+            private static final long serialVersionUID = 1825602409095510101L;
+
             @Override
-            public double[][] perform(double[][] input) {
-                if (input.length != input[0].length) {
+            public DenseMatrix perform(DenseMatrix input) {
+                if (!input.isSquare()) {
                     throw new IllegalArgumentException("Trace is only defined for square matrices");
                 } else {
-                    double[][] trace = new double[1][1];
-                    trace[0][0] = MatrixUtils.trace(input);
+                    DenseMatrix trace = new DenseMatrix(1, 1);
+                    trace.setEntry(0, 0, MatrixUtils.trace(input));
                     return trace;
                 }
             }
@@ -69,10 +79,12 @@ public class MatrixFunctionFactory {
 
     public static MatrixFunction makeRank() {
         return new MatrixFunction("rank", MatrixFunction.RANK) {
+            private static final long serialVersionUID = 4940380662738970835L;
+
             @Override
-            public double[][] perform(double[][] input) {
-                double[][] output = new double[1][1];
-                output[0][0] = MatrixUtils.rank(input);
+            public DenseMatrix perform(DenseMatrix input) {
+                DenseMatrix output = new DenseMatrix(1, 1);
+                output.setEntry(0, 0, MatrixUtils.rank(input));
                 return output;
             }
         };
@@ -80,40 +92,46 @@ public class MatrixFunctionFactory {
 
     public static MatrixFunction makeInverse() {
         return new MatrixFunction("inv", MatrixFunction.INVERSE) {
+            private static final long serialVersionUID = 2701281311439665028L;
+
             @Override
-            public double[][] perform(double[][] input) {
-                if (input.length != input[0].length) {
+            public DenseMatrix perform(DenseMatrix input) {
+                if (!input.isSquare()) {
                     throw new IllegalArgumentException("Matrix must be n*n to be invertible");
                 }
-                return MatrixUtils.findInverse(input);
+                return DenseMatrix.of(MatrixUtils.findInverse(input.getData()));
             }
         };
     }
 
     public static MatrixFunction makeLU() {
         return new MatrixFunction("LU", MatrixFunction.LU) {
+            private static final long serialVersionUID = 4331923980412049173L;
+
             @Override
-            public double[][] perform(double[][] input) {
-                if (input.length != input[0].length) {
+            public DenseMatrix perform(DenseMatrix input) {
+                if (!input.isSquare()) {
                     throw new IllegalArgumentException("Matrix must be n*n to be LU factorizable");
                 }
                 Random r = new Random();
-                double[][][] m = MatrixUtils.getLUDecomposition(input);
-                return m[r.nextInt(m.length)];
+                double[][][] m = MatrixUtils.getLUDecomposition(input.getData());
+                return DenseMatrix.of(m[r.nextInt(m.length)]);
             }
         };
     }
 
     public static MatrixFunction makeDiag() {
         return new MatrixFunction("diag", MatrixFunction.DIAG) {
+            private static final long serialVersionUID = 2999154119445977698L;
+
             @Override
-            public double[][] perform(double[][] input) {
-                if (input.length != input[0].length) {
+            public DenseMatrix perform(DenseMatrix input) {
+                if (!input.isSquare()) {
                     throw new IllegalArgumentException("Matrix must be n*n to be diagonalizable");
                 }
                 Random r = new Random();
-                double[][][] m = MatrixUtils.getEigenDecomposition(input);
-                return m[r.nextInt(m.length)];
+                double[][][] m = MatrixUtils.getEigenDecomposition(input.getData());
+                return DenseMatrix.of(m[r.nextInt(m.length)]);
             }
         };
     }
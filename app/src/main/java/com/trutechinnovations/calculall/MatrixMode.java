@@ -446,7 +446,7 @@ public class MatrixMode extends FunctionMode {
         setupElementButtons(layout);
         //Sets up the tokens already in the element
         storedTokens = tokens;
-        tokens = m.getEntry(rowNum, colNum); //Switches pointers (temporarily) to a new set of tokens
+        tokens = new ArrayList<>(m.getEntry(rowNum, colNum)); //Switches (temporarily) to a copy of the entry; the Matrix only changes through setEntry() in clickDone()
         //Clears tokens if the only token is a Number of zero
         if (tokens.size() == 1 && tokens.get(0) instanceof Number && ((Number) tokens.get(0)).getValue() == 0) {
             tokens.clear();
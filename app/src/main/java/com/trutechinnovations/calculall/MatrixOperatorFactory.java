@@ -17,10 +17,10 @@ public class MatrixOperatorFactory {
         return new MatrixOperator("+", MatrixOperator.ADD, 2, true, 1, true) {
             @Override
             public Object operate(Object left, Object right) {
-                if (left instanceof double[][] && right instanceof double[][]) {
-                    double[][] leftD = (double[][]) left;
-                    double[][] rightD = (double[][]) right;
-                    if (leftD.length == rightD.length && leftD[0].length == rightD[0].length) {
+                if (left instanceof DenseMatrix && right instanceof DenseMatrix) {
+                    DenseMatrix leftD = (DenseMatrix) left;
+                    DenseMatrix rightD = (DenseMatrix) right;
+                    if (leftD.getRowDimension() == rightD.getRowDimension() && leftD.getColumnDimension() == rightD.getColumnDimension()) {
                         return MatrixUtils.add(leftD, rightD);
                     } else {
                         throw new IllegalArgumentException("Matrices are not the same size");
@@ -38,10 +38,10 @@ public class MatrixOperatorFactory {
         return new MatrixOperator("-", MatrixOperator.SUBTRACT, 2, true, 1, true) {
             @Override
             public Object operate(Object left, Object right) {
-                if (left instanceof double[][] && right instanceof double[][]) {
-                    double[][] leftD = (double[][]) left;
-                    double[][] rightD = (double[][]) right;
-                    if (leftD.length == rightD.length && leftD[0].length == rightD[0].length) {
+                if (left instanceof DenseMatrix && right instanceof DenseMatrix) {
+                    DenseMatrix leftD = (DenseMatrix) left;
+                    DenseMatrix rightD = (DenseMatrix) right;
+                    if (leftD.getRowDimension() == rightD.getRowDimension() && leftD.getColumnDimension() == rightD.getColumnDimension()) {
                         return MatrixUtils.subtract(leftD, rightD);
                     } else {
                         throw new IllegalArgumentException("Matrices are not the same size");
@@ -59,16 +59,16 @@ public class MatrixOperatorFactory {
         return new MatrixOperator("·", MatrixOperator.MULTIPLY, 2, true, 1, true) {
             @Override
             public Object operate(Object left, Object right) {
-                if (left instanceof double[][] && right instanceof double[][]) {//matrix-matrix multiplication
+                if (left instanceof DenseMatrix && right instanceof DenseMatrix) {//matrix-matrix multiplication
                     try {
-                        return MatrixUtils.multiply((double[][]) left, (double[][]) right);
+                        return MatrixUtils.multiply((DenseMatrix) left, (DenseMatrix) right);
                     } catch (Exception e) {
                         throw e;
                     }
-                } else if (left instanceof Number && right instanceof double[][]) {//scalar multiplication
-                    return MatrixUtils.scalarMultiply((double[][]) right, ((Number) left).getValue());
-                } else if (right instanceof Number && left instanceof double[][]) {//scalar multiplication
-                    return MatrixUtils.scalarMultiply((double[][]) left, ((Number) right).getValue());
+                } else if (left instanceof Number && right instanceof DenseMatrix) {//scalar multiplication
+                    return MatrixUtils.scalarMultiply((DenseMatrix) right, ((Number) left).getValue());
+                } else if (right instanceof Number && left instanceof DenseMatrix) {//scalar multiplication
+                    return MatrixUtils.scalarMultiply((DenseMatrix) left, ((Number) right).getValue());
                 } else if (left instanceof Number && right instanceof Number) {
                     return new Number(OperatorFactory.makeMultiply().operate(((Number) left).getValue(), ((Number) right).getValue()));
                 } else {
@@ -82,16 +82,16 @@ public class MatrixOperatorFactory {
         return new MatrixOperator("/", MatrixOperator.DIVIDE, 2, true, 1, true) {
             @Override
             public Object operate(Object left, Object right) {
-                if (left instanceof double[][] && right instanceof double[][]) {//matrix-matrix multiplication
+                if (left instanceof DenseMatrix && right instanceof DenseMatrix) {//matrix-matrix multiplication
                     try {
-                        return MatrixUtils.multiply((double[][]) left, MatrixUtils.findInverse((double[][]) right));
+                        return MatrixUtils.multiply((DenseMatrix) left, DenseMatrix.of(MatrixUtils.findInverse(((DenseMatrix) right).getData())));
                     } catch (Exception e) {
                         throw e;
                     }
-                } else if (left instanceof Number && right instanceof double[][]) {//scalar multiplication + inversion
-                    return MatrixUtils.scalarMultiply(MatrixUtils.findInverse((double[][]) right), ((Number) left).getValue());
-                } else if (right instanceof Number && left instanceof double[][]) {//scalar multiplication
-                    return MatrixUtils.scalarMultiply((double[][]) left, 1 / (((Number) right).getValue()));
+                } else if (left instanceof Number && right instanceof DenseMatrix) {//scalar multiplication + inversion
+                    return MatrixUtils.scalarMultiply(DenseMatrix.of(MatrixUtils.findInverse(((DenseMatrix) right).getData())), ((Number) left).getValue());
+                } else if (right instanceof Number && left instanceof DenseMatrix) {//scalar multiplication
+                    return MatrixUtils.scalarMultiply((DenseMatrix) left, 1 / (((Number) right).getValue()));
                 } else if (left instanceof Number && right instanceof Number) {
                     return new Number(OperatorFactory.makeDivide().operate(((Number) left).getValue(), ((Number) right).getValue()));
                 } else {
@@ -105,9 +105,9 @@ public class MatrixOperatorFactory {
         return new MatrixOperator("^", MatrixOperator.EXPONENT, 2, true, 1, true) {
             @Override
             public Object operate(Object left, Object right) {
-                if (left instanceof double[][] && right instanceof Number) {
+                if (left instanceof DenseMatrix && right instanceof Number) {
                     try {
-                        return MatrixUtils.exponentiate((double[][]) left, ((Number) right).getValue());
+                        return MatrixUtils.exponentiate((DenseMatrix) left, ((Number) right).getValue());
                     } catch (Exception e) {
                         throw e;
                     }
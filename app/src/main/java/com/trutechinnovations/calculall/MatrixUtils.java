@@ -4,7 +4,6 @@
 
 package com.trutechinnovations.calculall;
 
-import org.apache.commons.math3.linear.Array2DRowRealMatrix;
 import org.apache.commons.math3.linear.CholeskyDecomposition;
 import org.apache.commons.math3.linear.EigenDecomposition;
 import org.apache.commons.math3.linear.LUDecomposition;
@@ -13,16 +12,20 @@ import org.apache.commons.math3.linear.NonSquareMatrixException;
 import org.apache.commons.math3.linear.NonSymmetricMatrixException;
 import org.apache.commons.math3.linear.QRDecomposition;
 import org.apache.commons.math3.linear.RRQRDecomposition;
+import org.apache.commons.math3.linear.RealMatrix;
 import org.apache.commons.math3.linear.SingularValueDecomposition;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Contains the Matrix Utilities (row reduction algorithms, matrix entry simplifier, etc.)
@@ -31,8 +34,13 @@ import java.util.Stack;
  * @version 3.0
  */
 public class MatrixUtils {
-    private static final int SWAP = 1, ADD = 2, SCALE = 3;
+    static final int SWAP = 1, ADD = 2, SCALE = 3;
+    private static final int EXPANSION_LIMIT = 4; //Largest size that still uses cofactor expansion
+    private static final int BLOCK_SIZE = 64; //Rows and columns of each block multiplied at a time; 64 × 64 doubles is 32KB
+    private static final long PARALLEL_THRESHOLD = 1L << 21; //Multiplications needed before a product is split between threads
+    private static final int PARALLEL_THREADS = Runtime.getRuntime().availableProcessors();
     public static String easterEgg = "";
+    public static boolean exactEigenvectors = false; //If the eigenvectors are found symbolically by Symja
 
     private static Command<Double, double[]> addCommand = new Command<Double, double[]>() {
         @Override
@@ -58,7 +66,7 @@ public class MatrixUtils {
      */
     public static double[][] applyCommand(double[][] a, double[][] b, Command<Double, double[]> command) {
         if (a.length == b.length && a[0].length == b[0].length) {
-            double[][] result = new double[a.length][b.length];
+            double[][] result = new double[a.length][a[0].length];
             for (int i = 0; i < a.length; i++) {
                 for (int j = 0; j < a[i].length; j++) {
                     double[] data = new double[2];
@@ -81,6 +89,33 @@ public class MatrixUtils {
         return applyCommand(a, b, subtractCommand);
     }
 
+    /**
+     * @param a The first matrix
+     * @param b The second matrix, the same size as the first
+     * @return The sum of the matrices
+     */
+    public static DenseMatrix add(DenseMatrix a, DenseMatrix b) {
+        return a.copy().addInPlace(b, 1);
+    }
+
+    /**
+     * @param a The first matrix
+     * @param b The second matrix, the same size as the first
+     * @return The first matrix subtracted by the second
+     */
+    public static DenseMatrix subtract(DenseMatrix a, DenseMatrix b) {
+        return a.copy().addInPlace(b, -1);
+    }
+
+    /**
+     * @param a The matrix
+     * @return A view of the transpose of the matrix; nothing is copied, as matrices being evaluated
+     * are never changed in place
+     */
+    public static DenseMatrix transpose(DenseMatrix a) {
+        return a.transposeView();
+    }
+
     public static double[][] transpose(double[][] a) {
         double[][] result = new double[a[0].length][a.length];
         for (int i = 0; i < a.length; i++) {
@@ -96,18 +131,152 @@ public class MatrixUtils {
             throw new IllegalArgumentException("Number of columns of left matrix is not " +
                     "equal to the number of rows of right matrix");
         } else {
-            double[][] matrix = new double[a.length][b[0].length];
-            double tempEntry = 0;
-            for (int i = 0; i < a.length; i++) {
-                for (int j = 0; j < b[0].length; j++) {
-                    tempEntry = dotProduct(getRow(a, i), getColumn(b, j));
-                    matrix[i][j] = tempEntry;
+            int n = a.length, m = b.length, p = b[0].length;
+            return toArray(multiply(flatten(a), flatten(b), n, m, p), n, p);
+        }
+    }
+
+    /**
+     * @param a The left matrix
+     * @param b The right matrix
+     * @return The product of the matrices
+     */
+    public static DenseMatrix multiply(DenseMatrix a, DenseMatrix b) {
+        if (a.getColumnDimension() != b.getRowDimension()) {
+            throw new IllegalArgumentException("Number of columns of left matrix is not " +
+                    "equal to the number of rows of right matrix");
+        }
+        return (DenseMatrix) a.multiply(b);
+    }
+
+    /**
+     * Multiplies two matrices stored as flat arrays in row-major order (the entry at row i and
+     * column j of an r × c matrix is at index i × c + j). Each entry is summed in the same order as
+     * a dot product of a row and a column, so the result is exactly the same, but the right matrix
+     * is read along its rows (in blocks that stay in the cache) and nothing is allocated other than
+     * the result. Large products are split up by rows between multiple threads.
+     *
+     * @param a The left matrix, n × m
+     * @param b The right matrix, m × p
+     * @param n The number of rows of the left matrix
+     * @param m The number of columns of the left matrix (and rows of the right matrix)
+     * @param p The number of columns of the right matrix
+     * @return The product, n × p
+     */
+    public static double[] multiply(double[] a, double[] b, int n, int m, int p) {
+        double[] c = new double[n * p];
+        int threads = Math.min(n, PARALLEL_THREADS);
+        if (threads < 2 || (long) n * m * p < PARALLEL_THRESHOLD) {
+            multiplyRows(a, b, c, m, p, 0, n);
+        } else {
+            multiplyParallel(a, b, c, n, m, p, threads);
+        }
+        return c;
+    }
+
+    /**
+     * Finds rows fromRow to toRow (exclusive) of the product of the flat matrices a and b.
+     *
+     * @param a       The left matrix, with m columns
+     * @param b       The right matrix, m × p
+     * @param c       The product, which must be all zeroes in the given rows
+     * @param m       The number of columns of the left matrix
+     * @param p       The number of columns of the right matrix
+     * @param fromRow The first row to find
+     * @param toRow   The row after the last row to find
+     */
+    private static void multiplyRows(double[] a, double[] b, double[] c, int m, int p, int fromRow, int toRow) {
+        for (int kBlock = 0; kBlock < m; kBlock += BLOCK_SIZE) {
+            int kEnd = Math.min(kBlock + BLOCK_SIZE, m);
+            for (int jBlock = 0; jBlock < p; jBlock += BLOCK_SIZE) {
+                int jEnd = Math.min(jBlock + BLOCK_SIZE, p);
+                for (int i = fromRow; i < toRow; i++) {
+                    int rowA = i * m, rowC = i * p;
+                    for (int k = kBlock; k < kEnd; k++) {
+                        double entry = a[rowA + k];
+                        int rowB = k * p;
+                        for (int j = jBlock; j < jEnd; j++) {
+                            c[rowC + j] += entry * b[rowB + j];
+                        }
+                    }
                 }
             }
-            return matrix;
         }
     }
 
+    /**
+     * Multiplies the flat matrices with the rows of the product split evenly between threads.
+     *
+     * @param a       The left matrix, n × m
+     * @param b       The right matrix, m × p
+     * @param c       The product, n × p, which must be all zeroes
+     * @param n       The number of rows of the left matrix
+     * @param m       The number of columns of the left matrix
+     * @param p       The number of columns of the right matrix
+     * @param threads The number of threads to split the rows between
+     */
+    private static void multiplyParallel(final double[] a, final double[] b, final double[] c, int n, final int m, final int p, int threads) {
+        ArrayList<Future<?>> parts = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            final int fromRow = n * t / threads, toRow = n * (t + 1) / threads;
+            parts.add(MultiplyPool.POOL.submit(new Runnable() {
+                @Override
+                public void run() {
+                    multiplyRows(a, b, c, m, p, fromRow, toRow);
+                }
+            }));
+        }
+        try {
+            for (Future<?> part : parts) {
+                part.get();
+            }
+        } catch (InterruptedException e) {
+            for (Future<?> part : parts) {
+                part.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while multiplying");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @param a A matrix
+     * @return The matrix as a flat array in row-major order
+     */
+    public static double[] flatten(double[][] a) {
+        int rows = a.length, cols = a[0].length;
+        double[] flat = new double[rows * cols];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(a[i], 0, flat, i * cols, cols);
+        }
+        return flat;
+    }
+
+    /**
+     * @param flat A matrix as a flat array in row-major order
+     * @param rows The number of rows of the matrix
+     * @param cols The number of columns of the matrix
+     * @return The matrix as an array of rows
+     */
+    public static double[][] toArray(double[] flat, int rows, int cols) {
+        double[][] a = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(flat, i * cols, a[i], 0, cols);
+        }
+        return a;
+    }
+
+    /**
+     * @param a The matrix
+     * @param b The scalar
+     * @return The matrix multiplied by the scalar
+     */
+    public static DenseMatrix scalarMultiply(DenseMatrix a, double b) {
+        return a.copy().scaleInPlace(b);
+    }
+
     public static double[][] scalarMultiply(double[][] a, double b) {
         double[][] matrix = new double[a.length][a[0].length];
         double tempEntry = 0;
@@ -119,20 +288,6 @@ public class MatrixUtils {
         return matrix;
     }
 
-    private static double[][] trimZeroRows(double[][] a) {
-        ArrayList<double[]> rows = new ArrayList<>();
-        for (int i = 0; i < a.length; i++) {
-            if (!onlyZeroes(getRow(a, i))) {
-                rows.add(a[i]);
-            }
-        }
-        double[][] output = new double[rows.size()][a[0].length];
-        for (int i = 0; i < output.length; i++) {
-            output[i] = rows.get(i);
-        }
-        return output;
-    }
-
     private static int[] getPivotColIndices(double[][] ref) {
         ArrayList<Integer> pivs = new ArrayList<>();
         for (int i = 0; i < ref.length; i++) {
@@ -147,21 +302,6 @@ public class MatrixUtils {
         return output;
     }
 
-    private static int[] getFreeColIndices(double[][] ref) {
-        int[] pivots = getPivotColIndices(ref);
-        ArrayList<Integer> free = new ArrayList<>();
-        for (int i = 0; i < ref[0].length; i++) {
-            if (!Arrays.asList(pivots).contains(i)) {
-                free.add(i);
-            }
-        }
-        int[] output = new int[free.size()];
-        for (int i = 0; i < output.length; i++) {
-            output[i] = free.get(i);
-        }
-        return output;
-    }
-
     private static double[][] columnBind(double[][] a, double[] b) {
         if (a.length != b.length) {
             throw new IllegalArgumentException("Length mismatch: columnBind");
@@ -226,54 +366,6 @@ public class MatrixUtils {
         return rowBind(m, b);
     }
 
-    private static double[][] rowMerge(double[][] a, double[][] b, int[] a_pos, int[] b_pos) {
-        double[][] output = new double[0][];
-        for (int i = 0; i < output.length; i++) {
-            if (Arrays.asList(a_pos).contains(i)) {
-                if (output.length != 0) {
-                    output = rowBind(output, a[i]);
-                } else {
-                    output[0] = a[i];
-                }
-            } else if (Arrays.asList(b_pos).contains(i)) {
-                if (output.length != 0) {
-                    output = rowBind(output, b[i]);
-                } else {
-                    output[0] = b[i];
-                }
-            }
-        }
-        return output;
-    }
-
-    private static double[][] setCol(double[][] a, double[] b, int col) {
-        if (a.length != b.length) {
-            throw new IllegalArgumentException("Length mismatch: setCol");
-        }
-        if (col < 0 || col > a[0].length) {
-            throw new IllegalArgumentException("Column Index out of bounds");
-        }
-        double[][] output = a.clone();
-        for (int i = 0; i < a.length; i++) {
-            output[i][col] = b[i];
-        }
-        return output;
-    }
-
-    private static double[][] getNullSpaceMatrix(double[][] a) {
-        double[][] m = trimZeroRows(toRREF(a));
-        int[] pivots = getPivotColIndices(a);
-        int[] free = getFreeColIndices(a);
-
-        double[][] f = new double[m.length][free.length];
-        for (int col = 0; col < free.length; col++) {
-            f = setCol(f, getColumn(m, free[col]), col);
-        }
-        f = scalarMultiply(f, -1);
-        double[][] i = makeIdentity(free.length);
-        return rowMerge(f, i, free, pivots);
-    }
-
     /**
      * Computes the matrix that corresponds to the given eigenvalue for the given matrix. Uses
      * the formal A - lambda I
@@ -322,13 +414,7 @@ public class MatrixUtils {
         if (matrix.length != matrix[0].length) {
             throw new IllegalArgumentException("Non square matrices to not have eigenvalues");
         }
-        EigenDecomposition ed = new EigenDecomposition(new Array2DRowRealMatrix(matrix));
-        if (ed.hasComplexEigenvalues()) {
-            throw new UnsupportedOperationException("Matrices with complex eigenvalues are not supported");
-        }
-        double[] temp = dedupe(roundInfinitesimals(ed.getRealEigenvalues()));
-        Arrays.sort(temp);
-        return temp;
+        return EigenSolver.getEigenValues(matrix);
     }
 
     private static double min(double[] a) { //NOTE: THIS IS NON-ZERO
@@ -393,7 +479,8 @@ public class MatrixUtils {
     }
 
     /**
-     * Finds the Eigenvectors of the given matrix.
+     * Finds the Eigenvectors of the given matrix, numerically (see EigenSolver) unless
+     * exactEigenvectors is set, in which case Symja is tried first.
      *
      * @param matrix The matrix to find the eigenvectors
      * @return The resulting eigenvectors
@@ -402,38 +489,34 @@ public class MatrixUtils {
         if (matrix.length != matrix[0].length) {
             throw new IllegalArgumentException("Non square matrices do not have eigenvectors");
         }
-        ArrayList<Vector> output;
-        output = MathUtilities.getEigenVectors(matrix);
-        if (output.isEmpty()) {
-            if (isDiagonal(matrix)) {
-                for (int i = 0; i < matrix.length; i++) {
-                    double[] temp = new double[matrix.length];
-                    temp[i] = 1;
-                    output.add(new Vector(temp));
-                }
-            } else {
-                EigenDecomposition ed = new EigenDecomposition(new Array2DRowRealMatrix(matrix));
-                Set<Vector> eigenVectors = new HashSet<>();
-                for (int i = 0; i < matrix.length; i++) {
-                    double[] temp = cleanupVector(roundInfinitesimals(ed.getEigenvector(i).toArray()));
+        ArrayList<Vector> output = new ArrayList<>(matrix.length);
+        if (exactEigenvectors) {
+            output = MathUtilities.getEigenVectors(matrix);
+            if (!output.isEmpty()) {
+                for (int i = 0; i < output.size(); i++) {
+                    double[] temp = cleanupVector(roundInfinitesimals(output.get(i).getValues()));
                     if (!(Double.isInfinite(temp[0]) || Double.isNaN(temp[0]))) { //Checks if it is a valid vector
-                        eigenVectors.add(new Vector(temp));
+                        output.set(i, new Vector(temp));
                     }
                 }
-                Vector[] vectArray = eigenVectors.toArray(new Vector[eigenVectors.size()]);
-                output.addAll(Arrays.asList(vectArray));
-                output = dedupeEigenvects(sortVectors(output));
+                return dedupeEigenvects(sortVectors(output));
             }
-        } else {
-            for (int i = 0; i < output.size(); i++) {
-                double[] temp = cleanupVector(roundInfinitesimals(output.get(i).getValues()));
-                if (!(Double.isInfinite(temp[0]) || Double.isNaN(temp[0]))) { //Checks if it is a valid vector
-                    output.set(i, new Vector(temp));
-                }
+        }
+        if (isDiagonal(matrix)) {
+            for (int i = 0; i < matrix.length; i++) {
+                double[] temp = new double[matrix.length];
+                temp[i] = 1;
+                output.add(new Vector(temp));
             }
-            output = dedupeEigenvects(sortVectors(output));
+            return output;
         }
-        return output;
+        for (double[] v : EigenSolver.getEigenVectors(matrix)) {
+            double[] temp = cleanupVector(roundInfinitesimals(v));
+            if (!(Double.isInfinite(temp[0]) || Double.isNaN(temp[0]))) { //Checks if it is a valid vector
+                output.add(new Vector(temp));
+            }
+        }
+        return dedupeEigenvects(sortVectors(output));
     }
 
     private static ArrayList<Vector> dedupeEigenvects(ArrayList<Vector> ev) {
@@ -460,73 +543,17 @@ public class MatrixUtils {
      * @return A list of vectors containing the basis of the eigen space
      */
     public static ArrayList<Vector> getEigenBasis(double[][] a, double eigenVal) {
-        double[][] eigenMatrix = toRREF(getEigenMatrix(a, eigenVal));
-        if (findDeterminant(eigenMatrix) != 0) {
+        ArrayList<double[]> basis = EigenSolver.getNullSpace(getEigenMatrix(a, eigenVal));
+        if (basis.isEmpty()) {
             throw new IllegalArgumentException("Invalid eigenvalue");
         }
-        ArrayList<Vector> solution = new ArrayList<>(nullity(eigenMatrix));
-        double[][] basisMatrix = getNullSpaceMatrix(eigenMatrix);
-        for (int j = 0; j < basisMatrix[0].length; j++) {
-            solution.add(new Vector(roundInfinitesimals(getColumn(basisMatrix, j))));
+        ArrayList<Vector> solution = new ArrayList<>(basis.size());
+        for (double[] v : basis) {
+            solution.add(new Vector(roundInfinitesimals(v)));
         }
         return solution;
     }
 
-    private static HashMap<Double, Integer> getGeometricMultiplicities(double[][] matrix, Double[] eigenVals) {
-        Set<Double> deduped = new HashSet<Double>(Arrays.asList(eigenVals));
-        HashMap<Double, Integer> output = new HashMap<>(deduped.size());
-        for (Double val : deduped) {
-            int geomMult = getEigenBasis(matrix, val).size();
-            output.put(val, geomMult);
-        }
-        return output;
-    }
-
-    private static HashMap<Double, Integer> getAlgebraicMultiplicities(Double[] eigenVals) {
-        Set<Double> deduped = new HashSet<Double>(Arrays.asList(eigenVals));
-        HashMap<Double, Integer> output = new HashMap<>(deduped.size());
-        for (Double val : deduped) {
-            int algMult = 0;
-            for (int i = 0; i < eigenVals.length; i++) {
-                if (eigenVals[i].equals(val)) {
-                    algMult++;
-                }
-            }
-            output.put(val, algMult);
-        }
-        return output;
-    }
-
-    private static boolean isDiagonalizable(double[][] matrix, Double[] eigenVals) {
-        Set<Double> deduped = new HashSet<Double>(Arrays.asList(eigenVals));
-        HashMap<Double, Integer> gm = getGeometricMultiplicities(matrix, eigenVals);
-        HashMap<Double, Integer> am = getAlgebraicMultiplicities(eigenVals);
-        for (Double val : deduped) {
-            if (gm.get(val) != am.get(val)) {
-                return false;
-            }
-        }
-        return true;
-    }
-
-    private static Double[] wrapDblArray(double[] doubles) {
-        final int length = doubles.length;
-        final Double[] output = new Double[length];
-        for (int i = 0; i < length; i++) {
-            output[i] = doubles[i];
-        }
-        return output;
-    }
-
-    private static double[] unwrapDblArray(Double[] doubles) {
-        final int length = doubles.length;
-        final double[] output = new double[length];
-        for (int i = 0; i < length; i++) {
-            output[i] = doubles[i];
-        }
-        return output;
-    }
-
     private static double[][] getP(ArrayList<Vector> eigenVects) {
         double[][] temp = new double[eigenVects.size()][];
         for (int i = 0; i < temp.length; i++) {
@@ -536,7 +563,7 @@ public class MatrixUtils {
     }
 
     public static double[][][] getEigenDecomposition(double[][] a) {
-        EigenDecomposition ed = new EigenDecomposition(new Array2DRowRealMatrix(a));
+        EigenDecomposition ed = new EigenDecomposition(DenseMatrix.of(a));
         if (ed.hasComplexEigenvalues()) {
             throw new IllegalArgumentException("Diagonalization of matrices with complex eigenvalues is not supported");
         }
@@ -559,15 +586,35 @@ public class MatrixUtils {
     }
 
     public static double[][] exponentiate(double[][] a, double b) {
+        return exponentiate(DenseMatrix.of(a), b).getData();
+    }
+
+    /**
+     * @param a The matrix, which must be square
+     * @param b The power, which must be an integer
+     * @return The matrix raised to the power
+     */
+    public static DenseMatrix exponentiate(DenseMatrix a, double b) {
         if (b % 1 != 0) {
             throw new IllegalArgumentException("Matrices can only be raised to integer powers");
         }
-        if (a.length == a[0].length) {
-            double[][] c = a.clone();
-            for (int i = 1; i < b; i++) {
-                c = multiply(c, a);
+        if (a.isSquare()) {
+            if (b <= 1) {
+                return a.copy();
             }
-            return c;
+            //Exponentiation by squaring, on the flat arrays so that nothing is converted in between
+            int n = a.getRowDimension();
+            double[] square = a.getFlatData();
+            double[] result = null;
+            for (long power = (long) b; power > 0; power >>= 1) {
+                if ((power & 1) == 1) {
+                    result = result == null ? square.clone() : multiply(result, square, n, n, n);
+                }
+                if (power > 1) {
+                    square = multiply(square, square, n, n, n);
+                }
+            }
+            return new DenseMatrix(result, n, n);
         } else {
             throw new IllegalArgumentException("Only square matrices can be raised to a power");
         }
@@ -692,7 +739,7 @@ public class MatrixUtils {
         return newMatrix;
     }
 
-    private static double[][] applyStep(double[][] a, double[] step) {
+    static double[][] applyStep(double[][] a, double[] step) {
         if (step[0] == SWAP) {
             return swapRows(a, (int) step[1], (int) step[2]);
         } else if (step[0] == ADD) {
@@ -715,18 +762,13 @@ public class MatrixUtils {
      * @return A Matrix with the given steps applied to the original Matrix
      */
     private static double[][] applySteps(double[][] a, double[][] steps) {
-        if (steps.length == 0) {
-            return a;
-        } else if (steps.length == 1) {
-            return applyStep(a, steps[0]);
-        } else if (steps.length > 1) {
-            return applySteps(applyStep(a, steps[0]), Arrays.copyOfRange(steps, 1, steps.length));
-        } else {
-            throw new IllegalArgumentException("Invalid steps");
+        for (double[] step : steps) {
+            a = applyStep(a, step);
         }
+        return a;
     }
 
-    private static Token tokenizeStep(double[] step) {
+    static Token tokenizeStep(double[] step) {
         Token output;
         if (step[0] == SWAP) {
             //output = new StringToken("Swap Rows " + (int) (step[1] + 1) + " and " + (int) (step[2] + 1));
@@ -754,45 +796,16 @@ public class MatrixUtils {
         return output;
     }
 
-    private static Token[] tokenizeSteps(double[][] steps) {
-        ArrayList<Token> output = new ArrayList<>();
-        for (int i = 0; i < steps.length; i++) {
-            if (!(steps[i][0] == ADD && roundInfinitesimal(steps[i][3]) == 0)) {
-                output.add(tokenizeStep(steps[i]));
-            }
-        }
-        return output.toArray(new Token[output.size()]);
-    }
-
-    private static double[][][] getIntermediateMatrices(double[][] a, double[][] steps) {
-        double[][][] output = new double[steps.length + 1][][];
-        output[0] = a;
-        for (int i = 0; i < steps.length; i++) {
-            output[i + 1] = applyStep(deepCopyDblMatrix(output[i]), steps[i]);
-        }
-        return output;
-    }
-
-    public static ArrayList<Token[]> knitSteps(double[][] a, double[][] steps) {
-        double[][][] intMatrices = getIntermediateMatrices(a, steps);
-        Matrix[] intMatrixTokens = new Matrix[intMatrices.length];
-        for (int i = 0; i < intMatrices.length; i++) {
-            intMatrixTokens[i] = new Matrix(intMatrices[i]);
-            intMatrixTokens[i].fractionalize();
-        }
-        Token[] stepTokens = tokenizeSteps(steps);
-        ArrayList<Token[]> output = new ArrayList<>();
-        for (int i = 0; i < intMatrices.length; i++) {
-            Token[] temp = new Token[2];
-            temp[0] = intMatrixTokens[i];
-            if (i < stepTokens.length) {
-                temp[1] = stepTokens[i];
-            } else {
-                temp[1] = new StringToken("And we're done!");
-            }
-            output.add(temp);
-        }
-        return output;
+    /**
+     * Pairs each matrix in the row reduction of the given matrix with the step that follows it.
+     * The matrices are only made when each pair is first needed (see ReductionSteps).
+     *
+     * @param a     The matrix before it is reduced
+     * @param steps The row operations that reduce it
+     * @return The pairs of each matrix and step, ending with the reduced matrix
+     */
+    public static List<Token[]> knitSteps(double[][] a, double[][] steps) {
+        return new ReductionSteps(a, steps);
     }
 
     private static double[][] deepCopyDblMatrix(double[][] input) {
@@ -1071,7 +1084,25 @@ public class MatrixUtils {
     }
 
     public static double[][] roundInfinitesimals(double[][] input) {
-        double[][] temp = deepCopyDblMatrix(input);
+        return roundInPlace(deepCopyDblMatrix(input));
+    }
+
+    /**
+     * @param m A matrix, such as a factor from a decomposition
+     * @return The entries of the matrix with the infinitesimals rounded off; the array that
+     * getData() copies into is rounded in place instead of being copied again
+     */
+    private static double[][] roundedData(RealMatrix m) {
+        return roundInPlace(m.getData());
+    }
+
+    /**
+     * Rounds off the infinitesimals of the given matrix in place.
+     *
+     * @param temp The matrix to round
+     * @return The same matrix
+     */
+    private static double[][] roundInPlace(double[][] temp) {
         for (int i = 0; i < temp.length; i++) {
             for (int j = 0; j < temp[0].length; j++) {
                 if (Math.log10(Math.abs(temp[i][j])) <= -15) {
@@ -1107,7 +1138,15 @@ public class MatrixUtils {
     }
 
     public static int rank(double[][] a) {
-        RRQRDecomposition rrqr = new RRQRDecomposition(new Array2DRowRealMatrix(a));
+        return rank(DenseMatrix.of(a));
+    }
+
+    /**
+     * @param a The matrix
+     * @return The rank of the matrix
+     */
+    public static int rank(RealMatrix a) {
+        RRQRDecomposition rrqr = new RRQRDecomposition(a);
         return rrqr.getRank(1e-15);
     }
 
@@ -1117,6 +1156,14 @@ public class MatrixUtils {
 
     //Easter egg:
     //TRACE ON! - if a is an identity matrix :P
+    public static double trace(RealMatrix a) {
+        double tr = 0d;
+        for (int i = 0; i < a.getRowDimension(); i++) {
+            tr += a.getEntry(i, i);
+        }
+        return tr;
+    }
+
     public static double trace(double[][] a) {
         double tr = 0d;
         for (int i = 0; i < a.length; i++) {
@@ -1126,14 +1173,17 @@ public class MatrixUtils {
     }
 
     /**
-     * Finds the determinant of the given matrix using a cofactor expansion of row 0.
+     * Finds the determinant of the given matrix. Small matrices use a cofactor expansion of row 0
+     * (which keeps the result exact for entries such as fractions); larger ones use a LU factorization.
      *
      * @param a The matrix
      * @return The determinant of the matrix
      */
     public static double findDeterminant(double[][] a) {
         final int ROW = 0;
-        if (a.length > 2) {
+        if (a.length > EXPANSION_LIMIT) {
+            return findDeterminantLU(a);
+        } else if (a.length > 2) {
             double det = 0;
             for (int j = 0; j < a[ROW].length; j++) {
                 double entry = a[ROW][j];
@@ -1151,6 +1201,24 @@ public class MatrixUtils {
 
     }
 
+    /**
+     * Finds the determinant of the given matrix as the product of the pivots of its LU factorization.
+     *
+     * @param a The matrix
+     * @return The determinant of the matrix
+     */
+    private static double findDeterminantLU(double[][] a) {
+        if (a.length != a[0].length) {
+            throw new IllegalArgumentException("Invalid matrix size");
+        }
+        double[][] lu = deepCopyDblMatrix(a);
+        double det = factorLU(lu, new int[a.length]);
+        for (int i = 0; i < lu.length && det != 0; i++) {
+            det *= lu[i][i];
+        }
+        return det;
+    }
+
     /**
      * Finds the cofactor of a specific entry of the given matrix.
      *
@@ -1160,7 +1228,7 @@ public class MatrixUtils {
      * @return The cofactor value
      */
     public static double findCofactor(double[][] matrix, int i, int j) {
-        return Math.pow(-1, i + j) * findDeterminant(minorMatrix(matrix, i, j));
+        return ((i + j) % 2 == 0 ? 1 : -1) * findDeterminant(minorMatrix(matrix, i, j));
     }
 
     /**
@@ -1170,6 +1238,9 @@ public class MatrixUtils {
      * @return The cofactor matrix of the matrix
      */
     public static double[][] getCofactorMatrix(double[][] matrix) {
+        if (matrix.length > EXPANSION_LIMIT) {
+            return transpose(getAdjugateMatrix(matrix));
+        }
         double[][] cofactorMatrix = new double[matrix.length][matrix[0].length];
         for (int i = 0; i < matrix.length; i++) {
             for (int j = 0; j < matrix[0].length; j++) {
@@ -1187,16 +1258,47 @@ public class MatrixUtils {
      * @return The adjugate matrix
      */
     public static double[][] getAdjugateMatrix(double[][] matrix) {
+        if (matrix.length > EXPANSION_LIMIT) {
+            double[][] lu = deepCopyDblMatrix(matrix);
+            int[] pivots = new int[matrix.length];
+            double det = factorLU(lu, pivots);
+            if (det != 0) { //adj(A) = det(A) * inverse(A)
+                for (int i = 0; i < lu.length; i++) {
+                    det *= lu[i][i];
+                }
+                return scalarMultiply(invertLU(lu, pivots), det);
+            }
+            //Singular; falls back to finding each cofactor (each minor's determinant still uses LU)
+            double[][] adjugate = new double[matrix.length][matrix.length];
+            for (int i = 0; i < matrix.length; i++) {
+                for (int j = 0; j < matrix.length; j++) {
+                    adjugate[j][i] = findCofactor(matrix, i, j);
+                }
+            }
+            return adjugate;
+        }
         return transpose(getCofactorMatrix(matrix));
     }
 
     /**
-     * Finds the inverse matrix by using the adjoint method.
+     * Finds the inverse matrix by using the adjoint method for small matrices, and LU
+     * factorization for larger ones.
      *
      * @param matrix The matrix to find the inverse
      * @return The inverse matrix
      */
     public static double[][] findInverse(double[][] matrix) {
+        if (matrix.length > EXPANSION_LIMIT) {
+            if (matrix.length != matrix[0].length) {
+                throw new IllegalArgumentException("Invalid matrix size");
+            }
+            double[][] lu = deepCopyDblMatrix(matrix);
+            int[] pivots = new int[matrix.length];
+            if (factorLU(lu, pivots) == 0) { //Uninvertible Matrix
+                throw new IllegalArgumentException("The matrix is non-invertible!");
+            }
+            return invertLU(lu, pivots);
+        }
         double[][] adjoint = getAdjugateMatrix(matrix);
         double determinant = findDeterminant(matrix);
         if (determinant == 0) { //Uninvertible Matrix
@@ -1210,6 +1312,99 @@ public class MatrixUtils {
         return adjoint;
     }
 
+    /**
+     * Factors the given square matrix in place into PA = LU using Gaussian Elimination with partial
+     * pivoting. Afterwards, U is stored on and above the diagonal and L (whose diagonal is all 1s)
+     * below it.
+     *
+     * @param lu     The matrix to factor; overwritten with the factors
+     * @param pivots Filled with the permutation; row i of LU is row pivots[i] of the original matrix
+     * @return The sign of the permutation (1 or -1), or 0 if the matrix is singular
+     */
+    private static int factorLU(double[][] lu, int[] pivots) {
+        int n = lu.length;
+        int sign = 1;
+        for (int i = 0; i < n; i++) {
+            pivots[i] = i;
+        }
+        for (int k = 0; k < n; k++) {
+            //Finds the largest pivot in the column
+            int pivot = k;
+            double max = Math.abs(lu[k][k]);
+            for (int i = k + 1; i < n; i++) {
+                double value = Math.abs(lu[i][k]);
+                if (value > max) {
+                    max = value;
+                    pivot = i;
+                }
+            }
+            if (max == 0) {
+                return 0;
+            }
+            if (pivot != k) {
+                double[] tempRow = lu[pivot];
+                lu[pivot] = lu[k];
+                lu[k] = tempRow;
+                int tempIndex = pivots[pivot];
+                pivots[pivot] = pivots[k];
+                pivots[k] = tempIndex;
+                sign = -sign;
+            }
+            //Eliminates the entries below the pivot
+            double[] pivotRow = lu[k];
+            for (int i = k + 1; i < n; i++) {
+                double[] row = lu[i];
+                double multiplier = row[k] / pivotRow[k];
+                row[k] = multiplier;
+                for (int j = k + 1; j < n; j++) {
+                    row[j] -= multiplier * pivotRow[j];
+                }
+            }
+        }
+        return sign;
+    }
+
+    /**
+     * Finds the inverse of a matrix from its (non-singular) LU factorization by solving for each
+     * column of the identity matrix.
+     *
+     * @param lu     The factors, as given by factorLU()
+     * @param pivots The permutation, as given by factorLU()
+     * @return The inverse of the original matrix
+     */
+    private static double[][] invertLU(double[][] lu, int[] pivots) {
+        int n = lu.length;
+        double[][] inverse = new double[n][n];
+        double[] column = new double[n];
+        for (int j = 0; j < n; j++) {
+            for (int i = 0; i < n; i++) {
+                column[i] = pivots[i] == j ? 1 : 0;
+            }
+            //Forward substitution (Ly = Pe)
+            for (int i = 1; i < n; i++) {
+                double[] row = lu[i];
+                double sum = column[i];
+                for (int k = 0; k < i; k++) {
+                    sum -= row[k] * column[k];
+                }
+                column[i] = sum;
+            }
+            //Back substitution (Ux = y)
+            for (int i = n - 1; i >= 0; i--) {
+                double[] row = lu[i];
+                double sum = column[i];
+                for (int k = i + 1; k < n; k++) {
+                    sum -= row[k] * column[k];
+                }
+                column[i] = sum / row[i];
+            }
+            for (int i = 0; i < n; i++) {
+                inverse[i][j] = column[i];
+            }
+        }
+        return inverse;
+    }
+
     private static double[][] minorMatrix(double[][] input, int row, int column) {
         int rowIndex = 0;
         int colIndex = 0;
@@ -1235,11 +1430,11 @@ public class MatrixUtils {
         if (findDeterminant(a) == 0) {
             throw new IllegalArgumentException("LUP factorization is not yet supported for singular/noninvertible matrices");
         }
-        LUDecomposition lu = new LUDecomposition(new Array2DRowRealMatrix(a));
+        LUDecomposition lu = new LUDecomposition(DenseMatrix.of(a));
         double[][][] output = new double[3][][];
-        output[0] = roundInfinitesimals(lu.getU().getData());
-        output[1] = roundInfinitesimals(lu.getL().getData());
-        output[2] = roundInfinitesimals(lu.getP().getData());
+        output[0] = roundedData(lu.getU());
+        output[1] = roundedData(lu.getL());
+        output[2] = roundedData(lu.getP());
         return output;
     }
 
@@ -1291,28 +1486,28 @@ public class MatrixUtils {
     }
 
     public static double[][][] getQRDecomposition(double[][] a) {
-        QRDecomposition qr = new QRDecomposition(new Array2DRowRealMatrix(a));
+        QRDecomposition qr = new QRDecomposition(DenseMatrix.of(a));
         double[][][] output = new double[2][][];
-        output[0] = roundInfinitesimals(qr.getQ().getData());
-        output[1] = roundInfinitesimals(qr.getR().getData());
+        output[0] = roundedData(qr.getQ());
+        output[1] = roundedData(qr.getR());
         return output;
     }
 
     public static double[][][] getRRQRDecomposition(double[][] a) {
-        RRQRDecomposition rrqr = new RRQRDecomposition(new Array2DRowRealMatrix(a));
+        RRQRDecomposition rrqr = new RRQRDecomposition(DenseMatrix.of(a));
         double[][][] output = new double[3][][];
-        output[0] = roundInfinitesimals(rrqr.getQ().getData());
-        output[1] = roundInfinitesimals(rrqr.getR().getData());
-        output[2] = roundInfinitesimals(rrqr.getP().getData());
+        output[0] = roundedData(rrqr.getQ());
+        output[1] = roundedData(rrqr.getR());
+        output[2] = roundedData(rrqr.getP());
         return output;
     }
 
     public static double[][][] getCholeskyDecomposition(double[][] a) {
         try {
-            CholeskyDecomposition ch = new CholeskyDecomposition(new Array2DRowRealMatrix(a));
+            CholeskyDecomposition ch = new CholeskyDecomposition(DenseMatrix.of(a));
             double[][][] output = new double[2][][];
-            output[0] = roundInfinitesimals(ch.getL().getData());
-            output[1] = roundInfinitesimals(ch.getLT().getData());
+            output[0] = roundedData(ch.getL());
+            output[1] = roundedData(ch.getLT());
             return output;
         } catch (NonSquareMatrixException e) {
             throw new IllegalArgumentException("Matrix is not square");
@@ -1324,11 +1519,11 @@ public class MatrixUtils {
     }
 
     public static double[][][] getSVDecomposition(double[][] a) {
-        SingularValueDecomposition svd = new SingularValueDecomposition(new Array2DRowRealMatrix(a));
+        SingularValueDecomposition svd = new SingularValueDecomposition(DenseMatrix.of(a));
         double[][][] output = new double[3][][];
-        output[0] = roundInfinitesimals(svd.getU().getData());
-        output[1] = roundInfinitesimals(svd.getS().getData());
-        output[2] = roundInfinitesimals(svd.getVT().getData());
+        output[0] = roundedData(svd.getU());
+        output[1] = roundedData(svd.getS());
+        output[2] = roundedData(svd.getVT());
         return output;
     }
 
@@ -1340,23 +1535,11 @@ public class MatrixUtils {
      * Evaluates every entry of the given matrix.
      *
      * @param matrix The unsimplified matrix
-     * @return A array of doubles containing the value of each entry
+     * @return A array of doubles containing the value of each entry; the matrix keeps the values
+     * until its entries are changed
      */
     public static double[][] evaluateMatrixEntries(Matrix matrix) {
-        double[][] result = new double[matrix.getNumOfRows()][matrix.getNumOfCols()];
-        for (int i = 0; i < matrix.getNumOfRows(); i++) {
-            for (int j = 0; j < matrix.getNumOfCols(); j++) {
-                ArrayList<Token> entry = Utility.condenseDigits(Utility.addMissingBrackets(Utility.subVariables(matrix.getEntry(i, j))));
-                if (entry.size() == 0) {
-                    throw new IllegalArgumentException("Parsing failed, entry is empty");
-                } else {
-                    entry = Utility.setupExpression(entry);
-                    entry = Utility.convertToReversePolish(entry);
-                    result[i][j] = Utility.evaluateExpression(entry);
-                }
-            }
-        }
-        return result;
+        return matrix.getEntriesAsDbls();
     }
 
     /**
@@ -1402,7 +1585,7 @@ public class MatrixUtils {
                         b.getType() == Bracket.OPEN) { //Ex. 3(2 + 1) or X(1+X)
                     newExpression.add(MatrixOperatorFactory.makeMatrixMultiply());
                 } else if (last instanceof MatrixOperator && last.getType() == Operator.SUBTRACT && beforeLastIsOperator) { //Ex. E + -(X + 1) -> E + -1 * (X + 1)
-                    newExpression.remove(last);
+                    newExpression.remove(newExpression.size() - 1); //By index, as shared Tokens may appear earlier too
                     newExpression.add(new Number(-1));
                     newExpression.add(MatrixOperatorFactory.makeMatrixMultiply());
                 }
@@ -1418,7 +1601,7 @@ public class MatrixUtils {
                     newExpression.add(MatrixOperatorFactory.makeMatrixMultiply());
                 } else if (lastIsSubtract &&
                         (beforeLastIsOperator || beforeLastIsOpenBracket || newExpression.size() <= 1)) { //Ex. E * -X -> E * -1 * X
-                    newExpression.remove(last);
+                    newExpression.remove(newExpression.size() - 1);
                     if (t instanceof Number || t instanceof Matrix) {
                         negative = true;
                     } else {
@@ -1520,7 +1703,7 @@ public class MatrixUtils {
         for (Token token : tokens) {
             if (token instanceof Matrix || token instanceof Number) { //Adds all Matrices directly to the stack
                 if (token instanceof Matrix) {
-                    stack.push(evaluateMatrixEntries((Matrix) token));
+                    stack.push(DenseMatrix.of(evaluateMatrixEntries((Matrix) token)));
                 } else {
                     stack.push(token);
                 }
@@ -1533,10 +1716,10 @@ public class MatrixUtils {
                 if (stack.peek() instanceof Number) {
                     throw new IllegalArgumentException(token.getSymbol() + " can only be applied to Matrices");
                 }
-                double[][] top = (double[][]) stack.pop(); //Function performs on the first matrix
+                DenseMatrix top = (DenseMatrix) stack.pop(); //Function performs on the first matrix
                 if (token.getType() == MatrixFunction.TRACE) {
-                    double[][] id = makeIdentity(top.length);
-                    if (Arrays.deepEquals(top, id)) {
+                    DenseMatrix id = DenseMatrix.identity(top.getRowDimension());
+                    if (top.equals(id)) {
                         easterEgg = "";
                         easterEgg = "Trace...ON!";
                     } else {
@@ -1556,13 +1739,13 @@ public class MatrixUtils {
             Object o = stack.pop();
             if (o instanceof Token) {
                 return (Token) o;
-            } else if (o instanceof double[][]) {
-                double[][] numbers = (double[][]) o;
-                ArrayList<Token>[][] matrixEntries = new ArrayList[numbers.length][numbers[0].length];
-                for (int i = 0; i < numbers.length; i++) {
-                    for (int j = 0; j < numbers[i].length; j++) {
+            } else if (o instanceof DenseMatrix) {
+                DenseMatrix numbers = (DenseMatrix) o;
+                ArrayList<Token>[][] matrixEntries = new ArrayList[numbers.getRowDimension()][numbers.getColumnDimension()];
+                for (int i = 0; i < matrixEntries.length; i++) {
+                    for (int j = 0; j < matrixEntries[i].length; j++) {
                         matrixEntries[i][j] = new ArrayList<>();
-                        matrixEntries[i][j].add(new Number(numbers[i][j]));
+                        matrixEntries[i][j].add(new Number(numbers.getEntry(i, j)));
                     }
                 }
                 Matrix matrix = new Matrix(matrixEntries);
@@ -1571,7 +1754,7 @@ public class MatrixUtils {
                 }
                 return matrix;
             } else {
-                throw new IllegalStateException("Object that is not a Token nor a double[][] popped from Stack!");
+                throw new IllegalStateException("Object that is not a Token nor a DenseMatrix popped from Stack!");
             }
         }
     }
@@ -1627,4 +1810,17 @@ public class MatrixUtils {
             }
         }
     }
+
+    /**
+     * The threads used to multiply large matrices; only created the first time they are needed.
+     */
+    private static class MultiplyPool {
+        private static final ExecutorService POOL = Executors.newFixedThreadPool(PARALLEL_THREADS, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Matrix Thread");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
 }
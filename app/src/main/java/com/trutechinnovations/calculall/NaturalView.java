@@ -443,8 +443,8 @@ public abstract class NaturalView extends View {
             //Finds the max height in the numerator
             ArrayList<Token> numerator = getNumerator(expression, i);
             float maxHeight = Float.NEGATIVE_INFINITY;
-            for (Token t : numerator) {
-                float height = heights.get(expression.indexOf(t));
+            for (int j = i - 1 - numerator.size(); j < i - 1; j++) { //The numerator ends right before the NUM_CLOSE
+                float height = heights.get(j);
                 if (height > maxHeight) {
                     maxHeight = height;
                 }
@@ -636,8 +636,8 @@ public abstract class NaturalView extends View {
                 //Finds the max height in the numerator
                 ArrayList<Token> numerator = getNumerator(expression, i);
                 float maxHeight = Float.NEGATIVE_INFINITY;
-                for (Token t : numerator) {
-                    float height = heights.get(expression.indexOf(t));
+                for (int j = i - 1 - numerator.size(); j < i - 1; j++) { //The numerator ends right before the NUM_CLOSE
+                    float height = heights.get(j);
                     if (height > maxHeight) {
                         maxHeight = height;
                     }
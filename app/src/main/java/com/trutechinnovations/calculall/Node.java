@@ -1,6 +1,7 @@
 package com.trutechinnovations.calculall;
 
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Used as an unit within a tree.
@@ -10,6 +11,7 @@ import java.util.ArrayList;
  */
 public class Node<E> {
 
+    private static final AtomicLong CHANGES = new AtomicLong(); //Number of times any Node has had its children changed
     private ArrayList<Node<E>> children;
     private E content;
     private Node parent;
@@ -30,6 +32,7 @@ public class Node<E> {
      * @param child the child Node
      */
     public void addChild(Node<E> child) {
+        CHANGES.incrementAndGet();
         children.add(child);
         child.parent = this;
     }
@@ -51,9 +54,30 @@ public class Node<E> {
      * @param n the index of the child Node to be deleted
      */
     public void delChild(int n) {
+        CHANGES.incrementAndGet();
         children.remove(n);
     }
 
+    /**
+     * Deletes the given child
+     *
+     * @param child the child Node to be deleted
+     */
+    public void delChild(Node<E> child) {
+        CHANGES.incrementAndGet();
+        children.remove(child);
+    }
+
+    /**
+     * Used to tell cheaply if a tree may have been changed in place, by comparing the number
+     * from before and after; it also counts changes to any other tree, on any thread.
+     *
+     * @return The number of times any Node has had a child added or deleted
+     */
+    public static long getNumOfChanges() {
+        return CHANGES.get();
+    }
+
     /**
      * Creates a copy this node
      */
@@ -66,7 +90,8 @@ public class Node<E> {
     }
 
     /**
-     * @return The children of this Node
+     * @return The children of this Node; these should only be changed through addChild() and
+     * delChild(), so that the change is counted (see getNumOfChanges())
      */
     public ArrayList<Node<E>> getChildren() {
         return children;
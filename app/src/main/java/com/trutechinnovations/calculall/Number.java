@@ -38,6 +38,14 @@ public class Number extends Token implements Serializable {
         }
         //Rounds
         value = Utility.round(value, roundTo);
+        return format(value);
+    }
+
+    /**
+     * @param value The (already rounded) value
+     * @return The value as it is shown on the display, without any trailing zeroes
+     */
+    protected static String format(double value) {
         String s = Double.toString(value);
         s = !s.contains(".") ? s : (s.indexOf("E") > 0 ? s.substring(0, s.indexOf("E")).replaceAll("0*$", "")
                 .replaceAll("\\.$", "").concat(s.substring(s.indexOf("E"))) : s.replaceAll("0*$", "")
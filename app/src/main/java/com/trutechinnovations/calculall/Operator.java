@@ -13,6 +13,7 @@ public abstract class Operator extends Token implements Serializable, OrderCompa
     public static final int ADD = 1, SUBTRACT = 2, MULTIPLY = 3, DIVIDE = 4, EXPONENT = 5, PERMUTATION = 6,
             COMBINATION = 7, FACTORIAL = 8, VARROOT = 9, FRACTION = 10;
     public static final int ADD_SUBTRACT = 2, MULTIPLY_DIVIDE = 3, EXPONENT_PRECEDENCE = 5; //Precedences
+    private static final long serialVersionUID = -4346934444424131254L; //The same as before it was set, so old history can still be read
     private int precedence;
     private boolean leftAssociative, commutative, anticommutative, associative;
 
@@ -45,6 +46,35 @@ public abstract class Operator extends Token implements Serializable, OrderCompa
      */
     public abstract double operate(double left, double right) throws NumberTooLargeException;
 
+    /**
+     * Performs the operation exactly with the given surrounding values, if the result is rational.
+     *
+     * @param left  The value left of the operation
+     * @param right The value right of the operation
+     * @return The exact result of the operation, or null if it cannot be found exactly
+     */
+    public Rational operate(Rational left, Rational right) {
+        switch (type) {
+            case ADD:
+                return left.add(right);
+            case SUBTRACT:
+                return left.subtract(right);
+            case MULTIPLY:
+                return left.multiply(right);
+            case DIVIDE:
+            case FRACTION:
+                return right.signum() == 0 ? null : left.divide(right);
+            case EXPONENT:
+                if (right.isInteger() && right.getNumerator().bitLength() < 31) { //Leaves out Integer.MIN_VALUE, which cannot be negated
+                    return left.pow(right.getNumerator().intValue());
+                } else {
+                    return null;
+                }
+            default: //The rest (such as roots and factorials) are done with doubles
+                return null;
+        }
+    }
+
     /**
      * @return The type of operation this is (see class constants for possible values)
      */
@@ -8,6 +8,26 @@ package com.trutechinnovations.calculall;
  */
 public class OperatorFactory {
 
+    private static final Operator[] SHARED = new Operator[Operator.FRACTION + 1];
+
+    static {
+        for (Operator o : new Operator[]{makeAdd(), makeSubtract(), makeMultiply(), makeDivide(), makeFraction(),
+                makeExponent(), makeFactorial(), makeVariableRoot(), makePermutation(), makeCombination()}) {
+            SHARED[o.getType()] = Token.share(o);
+        }
+    }
+
+    /**
+     * Gets the shared Operator of the given type, which can be used in place of a new one in
+     * expressions that are never edited (ex. results).
+     *
+     * @param type The type of Operator (see the Operator class constants)
+     * @return The shared Operator
+     */
+    public static Operator getShared(int type) {
+        return SHARED[type];
+    }
+
     public static Operator makeAdd() {
         return new Operator("+", Operator.ADD, Operator.ADD_SUBTRACT, true, 1, true) {
             @Override
@@ -80,7 +100,7 @@ public class OperatorFactory {
                 if (left % 1 != 0) { // Makes sure this is an integer
                     throw new IllegalArgumentException();
                 }
-                return Utility.factorial((int) left);
+                return Combinatorics.factorial(left);
             }
         };
     }
@@ -101,22 +121,7 @@ public class OperatorFactory {
         return new Operator("P", Operator.PERMUTATION, Operator.EXPONENT_PRECEDENCE, false, 0, false) {
             @Override
             public double operate(double left, double right) {
-                if (left % 1 != 0 || right % 1 != 0) {
-                    throw new IllegalArgumentException("Arguments must be integers");
-                } else if (right > left) {
-                    throw new IllegalArgumentException("n must be greater than or equal to r");
-                } else {
-                    try {
-                        if (right == left) {
-                            return Utility.factorial((int) left);
-                        } else {
-                            double unrounded = Utility.factorial((int) left) / Utility.factorial((int) (left - right));
-                            return Math.round(unrounded); //Can only give integer ansswers; fixes floating point errors
-                        }
-                    } catch (StackOverflowError e) {
-                        throw new IllegalArgumentException("The calculation is to large to compute.");
-                    }
-                }
+                return Combinatorics.permutation(left, right);
             }
         };
     }
@@ -124,23 +129,8 @@ public class OperatorFactory {
     public static Operator makeCombination() {
         return new Operator("C", Operator.COMBINATION, Operator.EXPONENT_PRECEDENCE, false, 0, false) {
             @Override
-            public double operate(double left, double right) throws NumberTooLargeException {
-                if (left % 1 != 0 || right % 1 != 0) {
-                    throw new IllegalArgumentException("Arguments must be integers");
-                } else {
-                    if (right > left) {
-                        throw new IllegalArgumentException("n must be greater than or equal to r");
-                    } else if (right == left) {
-                        return 1;
-                    } else {
-                        try {
-                            double unrounded = Utility.factorial((int) left) / (Utility.factorial((int) right) * Utility.factorial((int) (left - right)));
-                            return Math.round(unrounded);
-                        } catch (StackOverflowError e) {
-                            throw new IllegalArgumentException("The calculation is to large to compute.");
-                        }
-                    }
-                }
+            public double operate(double left, double right) {
+                return Combinatorics.combination(left, right);
             }
         };
     }
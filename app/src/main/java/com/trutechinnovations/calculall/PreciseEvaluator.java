@@ -0,0 +1,448 @@
+/*
+ * Copyright (c) 2016 TruTech Innovations Inc - All Rights Reserved
+ */
+
+package com.trutechinnovations.calculall;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Stack;
+
+/**
+ * Evaluates expressions with BigDecimals to a number of significant digits chosen by the user,
+ * for when doubles are not enough. It is off by default. When it is on, expressions are still
+ * evaluated with doubles first, and are only evaluated again with BigDecimals if that overflows,
+ * underflows or loses precision (ex. 2^64 + 1, 1e20 + 1 - 1e20 or 200!).
+ * <p>
+ * Addition, subtraction, multiplication, division, powers, roots, factorials, permutations,
+ * combinations, square roots and logarithms are found to the full precision. The other
+ * Functions are found with doubles. Numbers typed in are read as doubles, so only their first
+ * 15 or so digits count.
+ *
+ * @author Alston Lin
+ * @version 3.0
+ */
+public class PreciseEvaluator {
+
+    public static final int OFF = 0;
+    private static final PreciseEvaluator INSTANCE = new PreciseEvaluator();
+    private static final int GUARD_DIGITS = 10; //Extra digits carried through the calculation
+    private static final double MAX_EXACT = 9007199254740992d; //2^53; integers larger than this are not exact as doubles
+    private static final double MAX_CANCELLATION = 67108864d; //2^26; more than half of the bits of the result were cancelled out
+    private static final int MAX_FACTORIAL = 10000;
+    private static final double MAX_EXP = 1e8; //exp() of anything larger would not fit in a BigDecimal
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+    private static final String IMAGINARY = "The answer involves Imaginary numbers (currently not supported)";
+    private volatile int digits = OFF;
+
+    /**
+     * Allows for the Singleton pattern so there would be only one instance.
+     */
+    private PreciseEvaluator() {
+    }
+
+    /**
+     * @return The singleton instance
+     */
+    public static PreciseEvaluator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param digits The number of significant digits of the results, or OFF to only use doubles
+     */
+    public void setDigits(int digits) {
+        this.digits = digits;
+    }
+
+    /**
+     * @return The number of significant digits of the results, or OFF if only doubles are used
+     */
+    public int getDigits() {
+        return digits;
+    }
+
+    /**
+     * Processes the expression like Utility.process(), switching over to high precision if it is
+     * on and the doubles are not enough.
+     *
+     * @param tokens The expression to process
+     * @return The value of the expression; a PreciseNumber if it was found with high precision
+     * @throws IllegalArgumentException If the user has input a invalid expression
+     */
+    public Number process(ArrayList<Token> tokens) {
+        int precision = digits; //In case it is changed during the calculation
+        if (precision == OFF) {
+            return new Number(Utility.process(tokens));
+        }
+        ArrayList<Token> reversePolish = ReversePolishParser.parse(tokens);
+        try {
+            return new Number(evaluate(reversePolish));
+        } catch (NumberTooLargeException | PrecisionLostException e) {
+            MathContext mc = new MathContext(precision + GUARD_DIGITS);
+            BigDecimal result = evaluate(reversePolish, mc);
+            return new PreciseNumber(result.round(new MathContext(precision)), precision);
+        }
+    }
+
+    /**
+     * Evaluates the expression with doubles, the same way as Utility.evaluateExpression().
+     *
+     * @param reversePolish The expression in reverse polish
+     * @return The value of the expression
+     * @throws PrecisionLostException If the doubles could not hold the result precisely
+     */
+    private static double evaluate(ArrayList<Token> reversePolish) {
+        Stack<Double> stack = new Stack<>();
+        for (Token token : reversePolish) {
+            if (token instanceof Number) {
+                if (token instanceof PreciseNumber && ((PreciseNumber) token).isMorePreciseThanDouble()) { //Ex. a previous answer
+                    throw new PrecisionLostException();
+                }
+                stack.push(((Number) token).getValue());
+            } else if (token instanceof Operator) {
+                double right = stack.pop();
+                double left = stack.pop();
+                double result = ((Operator) token).operate(left, right);
+                checkOperation(token.getType(), left, right, result);
+                stack.push(result);
+            } else if (token instanceof Function) {
+                double input = stack.pop();
+                double result = ((Function) token).perform(input);
+                if (Double.isInfinite(result) && !Double.isInfinite(input)) {
+                    throw new PrecisionLostException();
+                }
+                stack.push(result);
+            } else { //This should never be reached
+                throw new IllegalArgumentException();
+            }
+        }
+        if (stack.size() == 0) {
+            throw new IllegalArgumentException("Input is empty");
+        } else if (stack.size() != 1) {
+            throw new IllegalArgumentException("Illegal Expression"); //There should only be 1 token left on the stack
+        }
+        return stack.pop();
+    }
+
+    /**
+     * Checks if the result of an operation done with doubles has overflowed, underflowed or lost
+     * precision.
+     *
+     * @param type   The type of Operator
+     * @param left   The value left of the operation
+     * @param right  The value right of the operation
+     * @param result The result of the operation
+     * @throws PrecisionLostException If the result is not precise
+     */
+    private static void checkOperation(int type, double left, double right, double result) {
+        if (Double.isInfinite(left) || Double.isInfinite(right) || Double.isNaN(result)) { //Not caused by this operation
+            return;
+        }
+        boolean integers = left % 1 == 0 && right % 1 == 0;
+        if (Double.isInfinite(result)) { //Overflow
+            throw new PrecisionLostException();
+        } else if (result != 0 && Math.abs(result) < Double.MIN_NORMAL) { //Underflow
+            throw new PrecisionLostException();
+        } else if (result == 0 && left != 0 && (type == Operator.MULTIPLY || type == Operator.EXPONENT
+                || ((type == Operator.DIVIDE || type == Operator.FRACTION) && !Double.isInfinite(right)))) { //Underflow to 0
+            throw new PrecisionLostException();
+        } else if ((type == Operator.ADD || type == Operator.SUBTRACT) && result != 0
+                && Math.max(Math.abs(left), Math.abs(right)) > Math.abs(result) * MAX_CANCELLATION) { //Cancellation
+            throw new PrecisionLostException();
+        } else if (integers && Math.abs(result) > MAX_EXACT && type != Operator.DIVIDE && type != Operator.FRACTION
+                && type != Operator.VARROOT) { //An integer with more digits than a double can hold
+            throw new PrecisionLostException();
+        }
+    }
+
+    /**
+     * Evaluates the expression with BigDecimals.
+     *
+     * @param reversePolish The expression in reverse polish
+     * @param mc            The precision to use
+     * @return The value of the expression
+     */
+    private static BigDecimal evaluate(ArrayList<Token> reversePolish, MathContext mc) {
+        Stack<BigDecimal> stack = new Stack<>();
+        for (Token token : reversePolish) {
+            if (token instanceof PreciseNumber) {
+                stack.push(((PreciseNumber) token).getPreciseValue());
+            } else if (token instanceof Rational) {
+                Rational r = (Rational) token;
+                stack.push(new BigDecimal(r.getNumerator()).divide(new BigDecimal(r.getDenominator()), mc));
+            } else if (token instanceof Number) {
+                stack.push(BigDecimal.valueOf(((Number) token).getValue())); //The shortest decimal that gives the double
+            } else if (token instanceof Operator) {
+                BigDecimal right = stack.pop();
+                BigDecimal left = stack.pop();
+                stack.push(operate((Operator) token, left, right, mc));
+            } else if (token instanceof Function) {
+                stack.push(perform((Function) token, stack.pop(), mc));
+            } else { //This should never be reached
+                throw new IllegalArgumentException();
+            }
+        }
+        if (stack.size() != 1) {
+            throw new IllegalArgumentException("Illegal Expression");
+        }
+        return stack.pop();
+    }
+
+    /**
+     * Performs the operation with BigDecimals.
+     *
+     * @param operator The Operator
+     * @param left     The value left of the operation
+     * @param right    The value right of the operation
+     * @param mc       The precision to use
+     * @return The result of the operation
+     */
+    private static BigDecimal operate(Operator operator, BigDecimal left, BigDecimal right, MathContext mc) {
+        switch (operator.getType()) {
+            case Operator.ADD:
+                return left.add(right, mc);
+            case Operator.SUBTRACT:
+                return left.subtract(right, mc);
+            case Operator.MULTIPLY:
+                return left.multiply(right, mc);
+            case Operator.DIVIDE:
+            case Operator.FRACTION:
+                if (right.signum() == 0) {
+                    throw new ArithmeticException("Division by zero");
+                }
+                return left.divide(right, mc);
+            case Operator.EXPONENT:
+                return pow(left, right, mc);
+            case Operator.VARROOT:
+                if (left.signum() == 0) {
+                    throw new IllegalArgumentException("Cannot have 0 as the base for a variable root!");
+                } else if (right.signum() < 0 && isInteger(left) && left.toBigInteger().testBit(0)) { //Odd root of a negative
+                    return pow(right.negate(), BigDecimal.ONE.divide(left, mc), mc).negate();
+                }
+                return pow(right, BigDecimal.ONE.divide(left, mc), mc);
+            case Operator.FACTORIAL:
+                if (!isInteger(left) || left.signum() < 0) {
+                    throw new IllegalArgumentException();
+                }
+                return new BigDecimal(product(1, toInt(left))).round(mc);
+            case Operator.PERMUTATION:
+            case Operator.COMBINATION:
+                if (!isInteger(left) || !isInteger(right)) {
+                    throw new IllegalArgumentException("Arguments must be integers");
+                } else if (right.compareTo(left) > 0) {
+                    throw new IllegalArgumentException("n must be greater than or equal to r");
+                }
+                int n = toInt(left), r = toInt(right);
+                BigInteger permutations = product(n - r + 1, n); //n! / (n - r)!
+                if (operator.getType() == Operator.COMBINATION) {
+                    permutations = permutations.divide(product(1, r));
+                }
+                return new BigDecimal(permutations).round(mc);
+            default:
+                return BigDecimal.valueOf(operator.operate(left.doubleValue(), right.doubleValue()));
+        }
+    }
+
+    /**
+     * Performs the Function with BigDecimals if it can be done precisely, or with doubles if not.
+     *
+     * @param function The Function
+     * @param input    The input of the Function
+     * @param mc       The precision to use
+     * @return The result of the Function
+     */
+    private static BigDecimal perform(Function function, BigDecimal input, MathContext mc) {
+        switch (function.getType()) {
+            case Function.SQRT:
+                if (input.signum() < 0) {
+                    throw new IllegalArgumentException(IMAGINARY);
+                }
+                return sqrt(input, mc);
+            case Function.LN:
+                return ln(input, mc);
+            case Function.LOG10:
+                return ln(input, mc).divide(ln(BigDecimal.TEN, mc), mc);
+            default:
+                double result = function.perform(input.doubleValue());
+                if (Double.isInfinite(result) || Double.isNaN(result)) {
+                    throw new NumberTooLargeException();
+                }
+                return BigDecimal.valueOf(result);
+        }
+    }
+
+    /**
+     * @param base     The base
+     * @param exponent The exponent
+     * @param mc       The precision to use
+     * @return base ^ exponent
+     */
+    private static BigDecimal pow(BigDecimal base, BigDecimal exponent, MathContext mc) {
+        if (isInteger(exponent) && exponent.abs().compareTo(BigDecimal.valueOf(999999999)) <= 0) {
+            if (base.signum() == 0 && exponent.signum() < 0) {
+                throw new ArithmeticException("Division by zero");
+            }
+            return base.pow(exponent.intValue(), mc);
+        } else if (base.signum() < 0) {
+            throw new IllegalArgumentException(IMAGINARY);
+        } else if (base.signum() == 0) {
+            if (exponent.signum() < 0) {
+                throw new ArithmeticException("Division by zero");
+            }
+            return BigDecimal.ZERO;
+        }
+        return exp(exponent.multiply(ln(base, mc), mc), mc);
+    }
+
+    /**
+     * Finds the square root with Newton's method.
+     *
+     * @param x  The non-negative value
+     * @param mc The precision to use
+     * @return The square root of x
+     */
+    private static BigDecimal sqrt(BigDecimal x, MathContext mc) {
+        if (x.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        //Starts from the double square root of x, which is moved into the range of doubles first
+        int half = (x.precision() - x.scale() - 1) / 2;
+        BigDecimal guess = BigDecimal.valueOf(Math.sqrt(x.movePointLeft(2 * half).doubleValue())).movePointRight(half);
+        MathContext work = new MathContext(mc.getPrecision() + 2);
+        for (int i = 0; i < 64; i++) { //Each step doubles the correct digits, so this is always enough
+            BigDecimal next = guess.add(x.divide(guess, work)).divide(TWO, work);
+            if (next.compareTo(guess) == 0) {
+                break;
+            }
+            guess = next;
+        }
+        return guess.round(mc);
+    }
+
+    /**
+     * Finds the natural logarithm by splitting x into m × 2^k, where m is between 1 and 2.
+     *
+     * @param x  The positive value
+     * @param mc The precision to use
+     * @return ln(x)
+     */
+    private static BigDecimal ln(BigDecimal x, MathContext mc) {
+        if (x.signum() <= 0) {
+            throw new ArithmeticException("Math Error");
+        }
+        MathContext work = new MathContext(mc.getPrecision() + GUARD_DIGITS);
+        //Estimates the power of 2 without going through doubles, which x may be too large for
+        int exponent = x.precision() - x.scale() - 1;
+        double log2 = (exponent * Math.log(10) + Math.log(x.movePointLeft(exponent).doubleValue())) / Math.log(2);
+        int k = (int) Math.floor(log2);
+        BigDecimal m = k >= 0 ? x.divide(TWO.pow(k), work) : x.multiply(TWO.pow(-k), work);
+        while (m.compareTo(TWO) >= 0) {
+            m = m.divide(TWO, work);
+            k++;
+        }
+        while (m.compareTo(BigDecimal.ONE) < 0) {
+            m = m.multiply(TWO, work);
+            k--;
+        }
+        BigDecimal result = lnSeries(m, work);
+        if (k != 0) {
+            result = result.add(lnSeries(TWO, work).multiply(BigDecimal.valueOf(k), work), work);
+        }
+        return result.round(mc);
+    }
+
+    /**
+     * Finds ln(m) = 2 × artanh((m - 1) / (m + 1)) with its Taylor series, which converges
+     * quickly for m between 1 and 2.
+     *
+     * @param m  The value, between 1 and 2
+     * @param mc The precision to use
+     * @return ln(m)
+     */
+    private static BigDecimal lnSeries(BigDecimal m, MathContext mc) {
+        BigDecimal z = m.subtract(BigDecimal.ONE).divide(m.add(BigDecimal.ONE), mc);
+        BigDecimal z2 = z.multiply(z, mc);
+        BigDecimal power = z;
+        BigDecimal sum = BigDecimal.ZERO;
+        BigDecimal epsilon = BigDecimal.ONE.movePointLeft(mc.getPrecision() + 1);
+        for (int n = 1; power.abs().compareTo(epsilon) > 0; n += 2) {
+            sum = sum.add(power.divide(BigDecimal.valueOf(n), mc), mc);
+            power = power.multiply(z2, mc);
+        }
+        return sum.multiply(TWO, mc);
+    }
+
+    /**
+     * Finds e^x by halving x until its Taylor series converges quickly, and then squaring the
+     * result back.
+     *
+     * @param x  The exponent
+     * @param mc The precision to use
+     * @return e^x
+     */
+    private static BigDecimal exp(BigDecimal x, MathContext mc) {
+        if (x.abs().compareTo(BigDecimal.valueOf(MAX_EXP)) > 0) {
+            throw new NumberTooLargeException();
+        }
+        int halvings = Math.max(0, (int) Math.ceil(Math.log(Math.abs(x.doubleValue()) + 1) / Math.log(2)) + 1);
+        MathContext work = new MathContext(mc.getPrecision() + GUARD_DIGITS + halvings / 3);
+        BigDecimal r = x.divide(TWO.pow(halvings), work);
+        BigDecimal term = BigDecimal.ONE;
+        BigDecimal sum = BigDecimal.ONE;
+        BigDecimal epsilon = BigDecimal.ONE.movePointLeft(work.getPrecision() + 1);
+        for (int n = 1; term.abs().compareTo(epsilon) > 0; n++) {
+            term = term.multiply(r, work).divide(BigDecimal.valueOf(n), work);
+            sum = sum.add(term, work);
+        }
+        for (int i = 0; i < halvings; i++) {
+            sum = sum.multiply(sum, work);
+        }
+        return sum.round(mc);
+    }
+
+    /**
+     * @param from The first factor
+     * @param to   The last factor
+     * @return The product of all the integers from the first to the last factor (1 if there are none)
+     */
+    private static BigInteger product(int from, int to) {
+        if (to > MAX_FACTORIAL) {
+            throw new NumberTooLargeException();
+        }
+        BigInteger result = BigInteger.ONE;
+        for (int i = Math.max(from, 1); i <= to; i++) {
+            result = result.multiply(BigInteger.valueOf(i));
+        }
+        return result;
+    }
+
+    /**
+     * @param x The value
+     * @return If the value is an integer
+     */
+    private static boolean isInteger(BigDecimal x) {
+        return x.signum() == 0 || x.stripTrailingZeros().scale() <= 0;
+    }
+
+    /**
+     * @param x The integer value
+     * @return The value as an int
+     * @throws NumberTooLargeException If it does not fit in an int
+     */
+    private static int toInt(BigDecimal x) {
+        try {
+            return x.intValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberTooLargeException();
+        }
+    }
+
+    /**
+     * Thrown when doubles cannot hold the result of an expression precisely.
+     */
+    private static class PrecisionLostException extends RuntimeException {
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2016 TruTech Innovations Inc - All Rights Reserved
+ */
+
+package com.trutechinnovations.calculall;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * A Number found by the high precision evaluation, which keeps every digit that was calculated
+ * (even if it is too large or too precise for a double). Anything that only uses Numbers sees its
+ * closest double value.
+ *
+ * @author Alston Lin
+ * @version 3.0
+ */
+public class PreciseNumber extends Number implements Serializable {
+
+    private static final long serialVersionUID = 752647225;
+    private final BigDecimal precise;
+    private final int digits;
+
+    /**
+     * Creates a new precise number.
+     *
+     * @param precise The value, already rounded
+     * @param digits  The number of significant digits it was rounded to
+     */
+    public PreciseNumber(BigDecimal precise, int digits) {
+        super(precise.doubleValue());
+        this.precise = precise;
+        this.digits = digits;
+    }
+
+    /**
+     * @return The value, with all of its digits
+     */
+    public BigDecimal getPreciseValue() {
+        return precise;
+    }
+
+    /**
+     * @return If the double value of this is not exactly the same number
+     */
+    public boolean isMorePreciseThanDouble() {
+        double value = getValue();
+        return Double.isInfinite(value) || new BigDecimal(value).compareTo(precise) != 0;
+    }
+
+    /**
+     * Shows every digit, in scientific notation if the number is too large or too small to be
+     * shown that way.
+     */
+    @Override
+    public String getSymbol() {
+        BigDecimal value = precise.stripTrailingZeros();
+        if (value.signum() == 0) {
+            return "0";
+        }
+        int exponent = value.precision() - value.scale() - 1; //Power of ten of the first digit
+        if (exponent >= -5 && exponent < digits) {
+            return value.toPlainString();
+        } else {
+            return value.movePointLeft(exponent).toPlainString() + "E" + exponent;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2016 TruTech Innovations Inc - All Rights Reserved
+ */
+
+package com.trutechinnovations.calculall;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the autocalculate previews in the background so that typing is never held up by a
+ * slow expression. Each request waits a short time first and is dropped if another request comes
+ * in while it is waiting (debouncing), so a burst of keystrokes is only calculated once. Every
+ * request is given a version, and its result is only shown if no newer request (or cancel) has
+ * been made since, so a slow preview can never overwrite a newer one.
+ * <p>
+ * All methods should be called from the UI thread.
+ *
+ * @author Alston Lin
+ * @version 3.0
+ */
+public class PreviewService {
+
+    private static final long DEBOUNCE_DELAY = 100; //Time (in milliseconds) to wait for more input before calculating
+    private static final PreviewService INSTANCE = new PreviewService();
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Preview Thread");
+            thread.setPriority(Thread.NORM_PRIORITY - 1); //Below the UI thread
+            return thread;
+        }
+    });
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private volatile int version = 0; //Version of the newest request
+    private ScheduledFuture<?> scheduled;
+    private long lastLatency = 0, totalLatency = 0, maxLatency = 0;
+    private int numPreviews = 0;
+
+    /**
+     * Allows for the Singleton pattern so there would be only one instance.
+     */
+    private PreviewService() {
+    }
+
+    /**
+     * @return The singleton instance
+     */
+    public static PreviewService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Requests a preview of the given expression, replacing any request that has not been shown yet.
+     *
+     * @param task    Finds the preview of the expression; runs on a background thread, and an
+     *                Exception means that there is no preview
+     * @param tokens  The expression (a copy is taken, so it may be changed after)
+     * @param display Shows the preview; called on the UI thread, with an empty list if there is no preview
+     */
+    public void request(final Command<ArrayList<Token>, ArrayList<Token>> task, ArrayList<Token> tokens,
+                        final Command<Void, ArrayList<Token>> display) {
+        final int requestVersion = ++version;
+        final long requestTime = SystemClock.uptimeMillis();
+        final ArrayList<Token> snapshot = new ArrayList<>(tokens);
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        scheduled = worker.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (requestVersion != version) { //Replaced while waiting
+                    return;
+                }
+                ArrayList<Token> result;
+                try {
+                    result = task.execute(snapshot);
+                } catch (Exception e) {
+                    result = new ArrayList<>();
+                }
+                final ArrayList<Token> preview = result;
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (requestVersion != version) { //The input has changed since
+                            return;
+                        }
+                        display.execute(preview);
+                        recordLatency(SystemClock.uptimeMillis() - requestTime);
+                    }
+                });
+            }
+        }, DEBOUNCE_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drops any request that has not been shown yet (ex. when the result is shown by equals instead).
+     */
+    public void cancel() {
+        version++;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+    }
+
+    /**
+     * @param latency The time from the request to the preview being shown
+     */
+    private void recordLatency(long latency) {
+        lastLatency = latency;
+        totalLatency += latency;
+        maxLatency = Math.max(maxLatency, latency);
+        numPreviews++;
+    }
+
+    /**
+     * @return The time (in milliseconds) from the input changing to the last preview being shown
+     */
+    public long getLastLatency() {
+        return lastLatency;
+    }
+
+    /**
+     * @return The average time (in milliseconds) from the input changing to its preview being shown
+     */
+    public long getAverageLatency() {
+        return numPreviews == 0 ? 0 : totalLatency / numPreviews;
+    }
+
+    /**
+     * @return The longest time (in milliseconds) from the input changing to its preview being shown
+     */
+    public long getMaxLatency() {
+        return maxLatency;
+    }
+
+    /**
+     * @return The amount of previews that have been shown
+     */
+    public int getPreviewCount() {
+        return numPreviews;
+    }
+}
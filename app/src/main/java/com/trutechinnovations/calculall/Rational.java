@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2016 TruTech Innovations Inc - All Rights Reserved
+ */
+
+package com.trutechinnovations.calculall;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.ArrayList;
+
+/**
+ * An exact rational number, always kept in lowest terms with the sign in the numerator. The
+ * numerator and denominator are stored as longs, and only switch over to BigIntegers when a result
+ * would not fit, so most fractions stay cheap. As it is also a Number, it can be used anywhere a
+ * Number can, in which case its (approximate) double value is used.
+ *
+ * @author Alston Lin
+ * @version 3.0
+ */
+public class Rational extends Number implements Serializable {
+
+    public static final Rational ZERO = new Rational(0, 1), ONE = new Rational(1, 1);
+    private static final long serialVersionUID = 752647224;
+    private static final long SMALL = Integer.MAX_VALUE; //Products of values up to this fit in a long
+    private static final int MAX_BITS = 4096; //Results larger than this are not kept exactly
+    private static final BigInteger MIN_LONG = BigInteger.valueOf(Long.MIN_VALUE), MAX_LONG = BigInteger.valueOf(Long.MAX_VALUE);
+    private static final double MAX_EXACT_DOUBLE = 9007199254740992d; //2^53; every integer up to this is exact as a double
+    private final long num, denom; //Used when the BigIntegers are null
+    private final BigInteger bigNum, bigDenom; //Only used when the fraction does not fit in longs
+
+    /**
+     * Use valueOf() to obtain Rationals.
+     */
+    private Rational(long num, long denom) {
+        super(num / (double) denom);
+        this.num = num;
+        this.denom = denom;
+        bigNum = null;
+        bigDenom = null;
+    }
+
+    /**
+     * Use valueOf() to obtain Rationals.
+     */
+    private Rational(BigInteger num, BigInteger denom) {
+        super(new BigDecimal(num).divide(new BigDecimal(denom), MathContext.DECIMAL64).doubleValue());
+        this.num = 0;
+        this.denom = 1;
+        bigNum = num;
+        bigDenom = denom;
+    }
+
+    /**
+     * @param n The integer
+     * @return The integer as a Rational
+     */
+    public static Rational valueOf(long n) {
+        return new Rational(n, 1);
+    }
+
+    /**
+     * @param num   The numerator
+     * @param denom The denominator
+     * @return The fraction in lowest terms
+     */
+    public static Rational valueOf(long num, long denom) {
+        if (denom == 0) {
+            throw new ArithmeticException("Division by zero");
+        } else if (num == Long.MIN_VALUE || denom == Long.MIN_VALUE) { //Cannot be negated as a long
+            return valueOf(BigInteger.valueOf(num), BigInteger.valueOf(denom));
+        }
+        if (denom < 0) {
+            num = -num;
+            denom = -denom;
+        }
+        long gcd = gcd(Math.abs(num), denom);
+        return new Rational(num / gcd, denom / gcd);
+    }
+
+    /**
+     * @param num   The numerator
+     * @param denom The denominator
+     * @return The fraction in lowest terms
+     */
+    public static Rational valueOf(BigInteger num, BigInteger denom) {
+        if (denom.signum() == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        if (denom.signum() < 0) {
+            num = num.negate();
+            denom = denom.negate();
+        }
+        BigInteger gcd = num.gcd(denom);
+        num = num.divide(gcd);
+        denom = denom.divide(gcd);
+        if (num.compareTo(MIN_LONG) > 0 && num.compareTo(MAX_LONG) <= 0 && denom.compareTo(MAX_LONG) <= 0) { //Fits in longs
+            return new Rational(num.longValue(), denom.longValue());
+        }
+        return new Rational(num, denom);
+    }
+
+    /**
+     * Finds the exact value of the given Number, if it has one. Only integers are taken as exact,
+     * as any other double is most likely already rounded.
+     *
+     * @param n The Number
+     * @return The exact value, or null if it is not known
+     */
+    public static Rational exactValueOf(Number n) {
+        if (n instanceof Rational) {
+            return (Rational) n;
+        }
+        double value = n.getValue();
+        if (value % 1 == 0 && Math.abs(value) < Long.MAX_VALUE) { //Also excludes infinities and NaN
+            return valueOf((long) value);
+        }
+        return null;
+    }
+
+    /**
+     * @param a A non-negative integer
+     * @param b A non-negative integer
+     * @return The greatest common divisor of a and b (1 if both are 0)
+     */
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long r = a % b;
+            a = b;
+            b = r;
+        }
+        return a == 0 ? 1 : a;
+    }
+
+    /**
+     * @return If the numerator and denominator are small enough to be multiplied as longs
+     */
+    private boolean isSmall() {
+        return bigNum == null && num >= -SMALL && num <= SMALL && denom <= SMALL;
+    }
+
+    /**
+     * @return The numerator (in lowest terms)
+     */
+    public BigInteger getNumerator() {
+        return bigNum == null ? BigInteger.valueOf(num) : bigNum;
+    }
+
+    /**
+     * @return The denominator (in lowest terms), which is always positive
+     */
+    public BigInteger getDenominator() {
+        return bigDenom == null ? BigInteger.valueOf(denom) : bigDenom;
+    }
+
+    /**
+     * @return If this is an integer
+     */
+    public boolean isInteger() {
+        return bigNum == null ? denom == 1 : bigDenom.equals(BigInteger.ONE);
+    }
+
+    /**
+     * @return -1, 0 or 1 as this is negative, zero or positive
+     */
+    public int signum() {
+        return bigNum == null ? Long.signum(num) : bigNum.signum();
+    }
+
+    /**
+     * @param other The other Rational
+     * @return This + other
+     */
+    public Rational add(Rational other) {
+        if (isSmall() && other.isSmall()) {
+            return valueOf(num * other.denom + other.num * denom, denom * other.denom);
+        }
+        return valueOf(getNumerator().multiply(other.getDenominator()).add(other.getNumerator().multiply(getDenominator())),
+                getDenominator().multiply(other.getDenominator()));
+    }
+
+    /**
+     * @param other The other Rational
+     * @return This - other
+     */
+    public Rational subtract(Rational other) {
+        return add(other.negate());
+    }
+
+    /**
+     * @param other The other Rational
+     * @return This × other
+     */
+    public Rational multiply(Rational other) {
+        if (isSmall() && other.isSmall()) {
+            return valueOf(num * other.num, denom * other.denom);
+        }
+        return valueOf(getNumerator().multiply(other.getNumerator()), getDenominator().multiply(other.getDenominator()));
+    }
+
+    /**
+     * @param other The other Rational, which is not zero
+     * @return This ÷ other
+     */
+    public Rational divide(Rational other) {
+        if (isSmall() && other.isSmall()) {
+            return valueOf(num * other.denom, denom * other.num);
+        }
+        return valueOf(getNumerator().multiply(other.getDenominator()), getDenominator().multiply(other.getNumerator()));
+    }
+
+    /**
+     * @return -this
+     */
+    public Rational negate() {
+        return bigNum == null && num != Long.MIN_VALUE ? new Rational(-num, denom) : valueOf(getNumerator().negate(), getDenominator());
+    }
+
+    /**
+     * @param exponent The exponent
+     * @return This to the power of the exponent, or null if the result would be too large to keep exactly
+     */
+    public Rational pow(int exponent) {
+        if (exponent < 0) {
+            //-Integer.MIN_VALUE is itself, and the result would be far too large anyway
+            return signum() == 0 || exponent == Integer.MIN_VALUE ? null : ONE.divide(this).pow(-exponent);
+        }
+        long bits = (long) Math.max(getNumerator().bitLength(), getDenominator().bitLength()) * exponent;
+        if (bits > MAX_BITS) {
+            return null;
+        }
+        return valueOf(getNumerator().pow(exponent), getDenominator().pow(exponent));
+    }
+
+    /**
+     * @return The Tokens that show this number on the display, as a fraction if it is not an integer
+     */
+    public ArrayList<Token> toTokens() {
+        ArrayList<Token> output = new ArrayList<>();
+        if (isInteger()) {
+            output.add(this);
+        } else {
+            output.add(BracketFactory.getShared(Bracket.FRACTION_OPEN));
+            output.add(BracketFactory.getShared(Bracket.NUM_OPEN));
+            output.add(valueOf(getNumerator(), BigInteger.ONE));
+            output.add(BracketFactory.getShared(Bracket.NUM_CLOSE));
+            output.add(OperatorFactory.getShared(Operator.FRACTION));
+            output.add(BracketFactory.getShared(Bracket.DENOM_OPEN));
+            output.add(valueOf(getDenominator(), BigInteger.ONE));
+            output.add(BracketFactory.getShared(Bracket.DENOM_CLOSE));
+            output.add(BracketFactory.getShared(Bracket.FRACTION_CLOSE));
+        }
+        return output;
+    }
+
+    /**
+     * @return If the double value of this is exactly the same number
+     */
+    public boolean isExactDouble() {
+        return bigNum == null && denom == 1 && Math.abs(num) <= MAX_EXACT_DOUBLE;
+    }
+
+    @Override
+    public String getSymbol() {
+        double value = getValue();
+        if (Double.isInfinite(value) || Double.isNaN(value)) {
+            return ("A Really Big Number");
+        }
+        return format(Utility.round(value, roundTo)); //Unlike Numbers, the value itself is never rounded
+    }
+
+    /**
+     * @return The exact value, as numerator/denominator (or just the numerator for integers)
+     */
+    @Override
+    public String toString() {
+        return isInteger() ? getNumerator().toString() : getNumerator() + "/" + getDenominator();
+    }
+}
@@ -14,6 +14,7 @@ import android.widget.BaseAdapter;
 import android.widget.ListView;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created by david on 1/22/2017.
@@ -23,7 +24,7 @@ public class ReductionActivity extends ListViewActivity {
     public static final double CONSTANTS_IO_RATIO = 0.7; //The size of the output / input in the
     public static final String RREF = "RREF";
 
-    ArrayList<Token[]> steps;
+    List<Token[]> steps;
 
 
     @Override
@@ -61,6 +62,7 @@ public class ReductionActivity extends ListViewActivity {
                     input.add(0, new StringToken("REF of "));
                 }
                 if (steps.size() == 0) {
+                    steps = new ArrayList<>();
                     Token[] temp1 = new Token[2];
                     temp1[0] = new StringToken("No Steps to show");
                     temp1[1] = new StringToken("");
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016 TruTech Innovations Inc - All Rights Reserved
+ */
+
+package com.trutechinnovations.calculall;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+
+/**
+ * The steps of a row reduction, as shown by ReductionActivity. Each item is the matrix after a
+ * number of the steps have been applied, along with the step that follows it (see
+ * MatrixUtils.knitSteps()).
+ * <p>
+ * The steps are applied once when this is created, and only the row that each step changes is kept
+ * from before it. The intermediate matrices are not stored; when an item is needed the working matrix
+ * is moved to it by applying the steps forwards or putting the kept rows back, which only touches
+ * the rows in between. Items are made (and fractionalized) only when they are first shown.
+ *
+ * @author Alston Lin
+ * @version 3.0
+ */
+public class ReductionSteps extends AbstractList<Token[]> {
+
+    private final double[][] steps;
+    private final double[][] changedRows; //The row each step changes, before it was applied; null for swaps
+    private final int[] shownSteps; //Indices of the steps that are shown, in order
+    private final Token[][] items;
+    private double[][] current; //The working matrix
+    private int position; //The number of steps applied to the working matrix
+
+    /**
+     * Applies the given steps to the matrix.
+     *
+     * @param a     The matrix before it is reduced
+     * @param steps The row operations to apply (see MatrixUtils.getREFSteps())
+     * @throws IllegalArgumentException If any of the steps are invalid
+     */
+    public ReductionSteps(double[][] a, double[][] steps) {
+        this.steps = steps;
+        changedRows = new double[steps.length][];
+        items = new Token[steps.length + 1][];
+        current = new double[a.length][];
+        for (int i = 0; i < a.length; i++) {
+            current[i] = a[i].clone();
+        }
+        ArrayList<Integer> shown = new ArrayList<>(steps.length);
+        for (int i = 0; i < steps.length; i++) {
+            double[] step = steps[i];
+            if (step[0] == MatrixUtils.ADD || step[0] == MatrixUtils.SCALE) {
+                changedRows[i] = current[(int) step[1]].clone();
+            }
+            current = MatrixUtils.applyStep(current, step);
+            //Adding a row multiplied by zero is not shown
+            if (!(step[0] == MatrixUtils.ADD && MatrixUtils.roundInfinitesimal(step[3]) == 0)) {
+                if (step[0] != MatrixUtils.SWAP && step[0] != MatrixUtils.ADD && step[0] != MatrixUtils.SCALE) {
+                    throw new IllegalArgumentException("Invalid Step");
+                }
+                shown.add(i);
+            }
+        }
+        position = steps.length;
+        shownSteps = new int[shown.size()];
+        for (int i = 0; i < shownSteps.length; i++) {
+            shownSteps[i] = shown.get(i);
+        }
+    }
+
+    @Override
+    public Token[] get(int index) {
+        if (index < 0 || index >= items.length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + items.length);
+        }
+        if (items[index] == null) {
+            moveTo(index);
+            Matrix matrix = new Matrix(current);
+            matrix.fractionalize();
+            Token[] item = new Token[2];
+            item[0] = matrix;
+            if (index < shownSteps.length) {
+                item[1] = MatrixUtils.tokenizeStep(steps[shownSteps[index]]);
+            } else {
+                item[1] = new StringToken("And we're done!");
+            }
+            items[index] = item;
+        }
+        return items[index];
+    }
+
+    @Override
+    public int size() {
+        return items.length;
+    }
+
+    /**
+     * Moves the working matrix to the given number of steps applied.
+     *
+     * @param target The number of steps to have applied
+     */
+    private void moveTo(int target) {
+        while (position < target) {
+            current = MatrixUtils.applyStep(current, steps[position]);
+            position++;
+        }
+        while (position > target) {
+            position--;
+            double[] step = steps[position];
+            if (changedRows[position] != null) {
+                System.arraycopy(changedRows[position], 0, current[(int) step[1]], 0, changedRows[position].length);
+            } else {
+                current = MatrixUtils.applyStep(current, step); //Swapping again undoes it
+            }
+        }
+    }
+}
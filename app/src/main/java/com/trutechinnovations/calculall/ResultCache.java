@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2016 TruTech Innovations Inc - All Rights Reserved
+ */
+
+package com.trutechinnovations.calculall;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least recently used cache of results of slow calculations (such as the queries sent
+ * to Symja) keyed by the query. Results are evicted when the cache is full or when they become
+ * too old. This is safe to use from multiple threads.
+ *
+ * @author Alston Lin
+ * @version 3.0
+ */
+public class ResultCache {
+
+    private static final int FILE_VERSION = 1;
+    private static final int MAX_SAVED_LENGTH = 16384; //Keeps the strings within the limits of writeUTF()
+    private final int maxSize;
+    private final long maxAge; //In milliseconds
+    private final LinkedHashMap<String, Entry> entries;
+    private int hits = 0, misses = 0;
+
+    /**
+     * Creates a new, empty cache.
+     *
+     * @param maxSize The maximum amount of results stored
+     * @param maxAge  The maximum time (in milliseconds) a result is kept for
+     */
+    public ResultCache(final int maxSize, long maxAge) {
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) { //Access ordered
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Finds the result for the given query.
+     *
+     * @param key The query
+     * @return The result, or null if it is not in the cache
+     */
+    public synchronized String get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.time > maxAge) { //Expired
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        } else {
+            hits++;
+            return entry.value;
+        }
+    }
+
+    /**
+     * Stores the result of the given query.
+     *
+     * @param key   The query
+     * @param value The result
+     */
+    public synchronized void put(String key, String value) {
+        entries.put(key, new Entry(value, System.currentTimeMillis()));
+    }
+
+    /**
+     * Removes all the results in the cache.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return The amount of results stored
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The amount of times a result was found in the cache
+     */
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The amount of times a result was not found in the cache
+     */
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Writes the results in the cache to the given stream, from the least to the most recently used.
+     *
+     * @param stream The stream to write to
+     * @throws IOException If the stream could not be written to
+     */
+    public synchronized void save(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(FILE_VERSION);
+        int count = 0;
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (isSavable(e)) {
+                count++;
+            }
+        }
+        out.writeInt(count);
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (!isSavable(e)) {
+                continue;
+            }
+            out.writeUTF(e.getKey());
+            out.writeUTF(e.getValue().value);
+            out.writeLong(e.getValue().time);
+        }
+        out.flush();
+    }
+
+    /**
+     * @param e The entry in the cache
+     * @return If the entry is small enough to be written by save()
+     */
+    private static boolean isSavable(Map.Entry<String, Entry> e) {
+        return e.getKey().length() <= MAX_SAVED_LENGTH && e.getValue().value.length() <= MAX_SAVED_LENGTH;
+    }
+
+    /**
+     * Adds the results written by save() to this cache, skipping any that have expired.
+     *
+     * @param stream The stream to read from
+     * @throws IOException If the stream could not be read or is not in the expected format
+     */
+    public synchronized void load(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != FILE_VERSION) {
+            throw new IOException("Unknown cache file version");
+        }
+        int size = in.readInt();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            String key = in.readUTF();
+            String value = in.readUTF();
+            long time = in.readLong();
+            if (now - time <= maxAge) {
+                entries.put(key, new Entry(value, time));
+            }
+        }
+    }
+
+    /**
+     * A result stored in the cache, along with when it was stored.
+     */
+    private static class Entry {
+        private final String value;
+        private final long time;
+
+        private Entry(String value, long time) {
+            this.value = value;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2016 TruTech Innovations Inc - All Rights Reserved
+ */
+
+package com.trutechinnovations.calculall;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts an expression as the user has input it into reverse polish in a single pass, giving the
+ * same result as Utility.setupExpression(), Utility.subVariables(), Utility.condenseDigits() and
+ * Utility.addMissingBrackets() followed by Utility.convertToReversePolish(), without building the
+ * expression in between each step.
+ * <p>
+ * Each Token is passed down the steps as soon as it is read: digits are condensed into Numbers,
+ * Variables are substituted with their values, the implied Tokens are added (ex. 2(x + 1) →
+ * 2 × (x + 1)), and the result is sent through the Shunting Yard Algorithm. Only the last two
+ * Tokens of the set up expression are held back, as setting up the next Token may change them.
+ *
+ * @author Alston Lin
+ * @version 3.0
+ */
+public class ReversePolishParser {
+
+    private static final Operator MULTIPLY = OperatorFactory.getShared(Operator.MULTIPLY); //Used for every implied multiplication
+    private final ArrayList<Token> reversePolish;
+    private final ArrayList<Token> operators = new ArrayList<>(); //The operator stack of the Shunting Yard Algorithm
+    private final ArrayList<Digit> digits = new ArrayList<>(); //Digits of the current number
+    private Token last, beforeLast; //The last two Tokens of the set up expression, not yet sent to the Shunting Yard
+    private int setupSize = 0; //The size of the set up expression
+
+    /**
+     * Use parse() to convert expressions.
+     *
+     * @param size The size of the expression, used to size the output
+     */
+    private ReversePolishParser(int size) {
+        reversePolish = new ArrayList<>(size + size / 2);
+    }
+
+    /**
+     * Converts the given expression into reverse polish, adding the missing brackets, condensing
+     * digits, substituting variables and adding the implied Tokens on the way.
+     *
+     * @param tokens The expression as the user has input it
+     * @return The expression in reverse polish
+     * @throws IllegalArgumentException If the expression is invalid
+     */
+    public static ArrayList<Token> parse(List<Token> tokens) {
+        ReversePolishParser parser = new ReversePolishParser(tokens.size());
+        int brackets = 0; //Open brackets that have not been closed
+        for (Token t : tokens) {
+            if (t instanceof Bracket) { //As in Utility.addMissingBrackets()
+                if (t.getType() == Bracket.OPEN) {
+                    brackets++;
+                } else if (t.getType() == Bracket.CLOSE) {
+                    brackets--;
+                }
+            }
+            parser.condense(t);
+        }
+        for (int i = brackets; i > 0; i--) { //Adds the missing brackets
+            parser.condense(BracketFactory.getShared(Bracket.CLOSE));
+        }
+        return parser.finish();
+    }
+
+    /**
+     * Finishes the pass once the whole expression has been read.
+     *
+     * @return The expression in reverse polish
+     */
+    private ArrayList<Token> finish() {
+        if (!digits.isEmpty()) { //Digits left
+            substitute(new Number(Utility.valueOf(digits)));
+        }
+        //Sends the rest of the set up expression through
+        if (beforeLast != null) {
+            shunt(beforeLast);
+        }
+        if (last != null) {
+            shunt(last);
+        }
+        while (!operators.isEmpty()) { //Puts the remaining tokens in the stack to the queue
+            reversePolish.add(operators.remove(operators.size() - 1));
+        }
+        return reversePolish;
+    }
+
+    /**
+     * Condenses digits into Numbers; as in Utility.condenseDigits().
+     *
+     * @param token The next Token
+     */
+    private void condense(Token token) {
+        if (token instanceof Digit) {
+            digits.add((Digit) token);
+        } else {
+            if (!digits.isEmpty()) { //Number ended
+                Number num = new Number(Utility.valueOf(digits));
+                digits.clear();
+                //Special case of //-1 * Variable; the sign is set on a copy, as the Variable may still be in the editor
+                if (num.getValue() == -1 && token instanceof Variable) {
+                    Variable negative = ((Variable) token).copy();
+                    negative.setNegative(true);
+                    token = negative;
+                } else if (num.getValue() == 1 && token instanceof Variable) { // 1 * Variable
+                    Variable positive = ((Variable) token).copy();
+                    positive.setNegative(false);
+                    token = positive;
+                } else if (num.getValue() < 0) { //Negative number; changes to -1 * Number
+                    substitute(new Number(-1));
+                    substitute(MULTIPLY);
+                    substitute(new Number(num.getValue() * -1));
+                } else {
+                    substitute(num);
+                }
+            }
+            substitute(token);
+        }
+    }
+
+    /**
+     * Substitutes Variables with their values; as in Utility.subVariables().
+     *
+     * @param token The next Token
+     */
+    private void substitute(Token token) {
+        if (token instanceof Variable && token.getType() != Variable.S && token.getType() != Variable.T) {
+            ArrayList<Token> val = Utility.condenseDigits(((Variable) token).getValue());
+            if (val.isEmpty()) {
+                val.add(new Number(0));
+            }
+            for (Token t : val) {
+                setup(t);
+            }
+        } else {
+            setup(token);
+        }
+    }
+
+    /**
+     * Adds the implied Tokens to the expression; as in Utility.setupExpression().
+     *
+     * @param t The next Token
+     */
+    private void setup(Token t) {
+        boolean negative = false;
+        boolean lastIsSubtract = last instanceof Operator && last.getType() == Operator.SUBTRACT;
+        boolean beforeLastIsOperator = beforeLast != null && beforeLast instanceof Operator;
+        boolean beforeLastIsOpenBracket = beforeLast != null && beforeLast instanceof Bracket && (beforeLast.getType() == Bracket.OPEN
+                || beforeLast.getType() == Bracket.NUM_OPEN || beforeLast.getType() == Bracket.DENOM_OPEN || beforeLast.getType() == Bracket.SUPERSCRIPT_OPEN || beforeLast.getType() == Bracket.FRACTION_OPEN);
+
+        if (t instanceof Bracket) {
+            Bracket b = (Bracket) t;
+            if (b.getType() == Bracket.OPEN && last instanceof Bracket && (last.getType() == Bracket.CLOSE
+                    || last.getType() == Bracket.SUPERSCRIPT_CLOSE || last.getType() == Bracket.DENOM_CLOSE)) { //Ex. (2 + 1)(3 + 4)
+                add(MULTIPLY);
+            } else if ((last instanceof Number || last instanceof Variable) && (b.getType() == Bracket.OPEN || b.getType() == Bracket.FRACTION_OPEN)) { //Ex. 3(2 + 1)
+                add(MULTIPLY);
+            } else if (lastIsSubtract && beforeLastIsOperator) { //Ex. E + -(X + 1) -> E + -1 * (X + 1)
+                removeLast();
+                add(new Number(-1));
+                add(MULTIPLY);
+            }
+        } else if (t instanceof Number || t instanceof Variable || t instanceof Function) {
+            if (last instanceof Number) { //Ex. 5A , 5f(x)
+                add(MULTIPLY);
+            } else if (last instanceof Bracket && (last.getType() == Bracket.CLOSE
+                    || last.getType() == Bracket.SUPERSCRIPT_CLOSE || last.getType() == Bracket.DENOM_CLOSE)) { //Ex. x^2(x + 1)
+                add(MULTIPLY);
+            } else if (lastIsSubtract && (beforeLastIsOperator || beforeLastIsOpenBracket || setupSize <= 1)) { //Ex. E * -X -> E * -1 * X
+                removeLast();
+                if (t instanceof Number) {
+                    negative = true;
+                } else {
+                    add(new Number(-1));
+                    add(MULTIPLY);
+                }
+            } else if (t instanceof Function && (last instanceof Function || last instanceof Variable)) { //Ex. f(x)g(x)
+                add(MULTIPLY);
+            }
+
+            if (t instanceof Variable && last instanceof Variable) { //Ex. pi x
+                add(MULTIPLY);
+            }
+        }
+        if (negative) {
+            add(new Number(((Number) t).getValue() * -1));
+        } else {
+            add(t);
+        }
+    }
+
+    /**
+     * Adds a Token to the end of the set up expression; the Token that is no longer one of the
+     * last two is sent to the Shunting Yard.
+     *
+     * @param t The Token to add
+     */
+    private void add(Token t) {
+        if (beforeLast != null) {
+            shunt(beforeLast);
+        }
+        beforeLast = last;
+        last = t;
+        setupSize++;
+    }
+
+    /**
+     * Removes the last Token of the set up expression. The Token before it is only needed
+     * again after another Token is added, which always happens right after.
+     */
+    private void removeLast() {
+        last = beforeLast;
+        beforeLast = null;
+        setupSize--;
+    }
+
+    /**
+     * Converts the expression to reverse polish; as in Utility.convertToReversePolish().
+     *
+     * @param token The next Token of the set up expression
+     */
+    private void shunt(Token token) {
+        if (token instanceof Number || token instanceof Variable) { //Adds directly to the queue if it's a token
+            reversePolish.add(token);
+        } else if (token instanceof Function) { //Adds to the stack if it's a function
+            operators.add(token);
+        } else if (token instanceof Operator) {
+            Operator operator = (Operator) token;
+            Token top = operators.isEmpty() ? null : operators.get(operators.size() - 1);
+            while (top != null && ((top instanceof Operator && operator.isLeftAssociative()
+                    && ((Operator) top).getPrecedence() >= operator.getPrecedence()) || top instanceof Function)) {
+                reversePolish.add(operators.remove(operators.size() - 1)); //Pops top element to the queue
+                top = operators.isEmpty() ? null : operators.get(operators.size() - 1);
+            }
+            operators.add(token);
+        } else if (token instanceof Bracket) {
+            int type = token.getType();
+            if (type == Bracket.OPEN || type == Bracket.SUPERSCRIPT_OPEN || type == Bracket.NUM_OPEN
+                    || type == Bracket.DENOM_OPEN || type == Bracket.FRACTION_OPEN) { //Pushes the bracket to the stack if it's open
+                operators.add(token);
+            } else if (type == Bracket.CLOSE || type == Bracket.SUPERSCRIPT_CLOSE || type == Bracket.NUM_CLOSE
+                    || type == Bracket.DENOM_CLOSE || type == Bracket.FRACTION_CLOSE) { //Pops operators until a open bracket is found
+                if (operators.isEmpty()) { //Mismatched brackets
+                    throw new IllegalArgumentException();
+                }
+                while (!(operators.get(operators.size() - 1) instanceof Bracket)) {
+                    reversePolish.add(operators.remove(operators.size() - 1));
+                    if (operators.isEmpty()) { //Mismatched brackets
+                        throw new IllegalArgumentException();
+                    }
+                }
+                operators.remove(operators.size() - 1); //Removes the bracket
+            }
+        }
+    }
+}
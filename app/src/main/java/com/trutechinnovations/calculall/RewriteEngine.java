@@ -0,0 +1,490 @@
+/*
+ * Copyright (c) 2016 TruTech Innovations Inc - All Rights Reserved
+ */
+
+package com.trutechinnovations.calculall;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rewrites an expression tree by applying a list of rules, from the leaves up, until none of them
+ * change the tree any more (or until the step limits are reached). Every rule declares the kinds
+ * of Tokens it can apply to at the root of a subtree, so only the rules that can match a node are
+ * tried on it. Subtrees that have already been rewritten (and not changed since) are not visited
+ * again, which saves rules that recurse into the engine from re-walking them.
+ * <p>
+ * The result of every subtree is remembered for the rest of the rewrite (keyed by its shared
+ * ExpressionNode), so a subtree that appears again (ex. the same fraction in every term of a
+ * polynomial) is only rewritten once. The results can also be shared between rewrites through a
+ * bounded cache, as long as the rewrites have the same context (the outside state that the rules
+ * depend on, such as the angle mode).
+ * <p>
+ * The number of times each rule was tried and fired, along with the time spent in it, are kept
+ * as a profile.
+ *
+ * @author Alston Lin
+ * @version 3.0
+ */
+public class RewriteEngine {
+
+    private static final int OPERATOR = 0, FUNCTION = 1, NUMBER = 2, VARIABLE = 3, OTHER = 4; //Categories of Tokens
+    private final String name;
+    private final Rule[] rules;
+    private final int maxSteps;
+    private final int maxFirings;
+    private final ConcurrentHashMap<Long, Rule[]> index = new ConcurrentHashMap<>(); //Applicable rules for each kind of Token
+    private final ThreadLocal<Run> current = new ThreadLocal<>(); //The rewrite in progress on each thread
+    private final long[] attempts, firings, times; //Profile
+    private int numRuns = 0, numCutoffs = 0, numReused = 0, numShared = 0;
+    private LinkedHashMap<SharedKey, ExpressionNode> shared; //Results shared between rewrites, if enabled
+
+    /**
+     * Creates a new engine.
+     *
+     * @param name       The name of the engine, used in the profile
+     * @param maxSteps   The maximum number of times the rules are swept over a single node
+     * @param maxFirings The maximum number of rules that can fire in one rewrite
+     * @param rules      The rules, in the order they should be applied
+     */
+    public RewriteEngine(String name, int maxSteps, int maxFirings, Rule... rules) {
+        this.name = name;
+        this.rules = rules;
+        this.maxSteps = maxSteps;
+        this.maxFirings = maxFirings;
+        for (int i = 0; i < rules.length; i++) {
+            rules[i].order = i;
+        }
+        attempts = new long[rules.length];
+        firings = new long[rules.length];
+        times = new long[rules.length];
+    }
+
+    /**
+     * @param t The Token
+     * @return The category of the Token (see class constants)
+     */
+    private static int categorize(Token t) {
+        if (t instanceof Operator) {
+            return OPERATOR;
+        } else if (t instanceof Function) {
+            return FUNCTION;
+        } else if (t instanceof Number) {
+            return NUMBER;
+        } else if (t instanceof Variable) {
+            return VARIABLE;
+        } else {
+            return OTHER;
+        }
+    }
+
+    /**
+     * Rewrites the given tree, starting from the leaves.
+     *
+     * @param root The root of the tree
+     * @return The root of the rewritten tree
+     */
+    public Node<Token> rewrite(Node<Token> root) {
+        return rewrite(root, null);
+    }
+
+    /**
+     * Rewrites the given tree, starting from the leaves, reusing the results of earlier rewrites
+     * with the same context if sharing is enabled.
+     *
+     * @param root    The root of the tree
+     * @param context The outside state that the rules depend on, or null to not share results
+     * @return The root of the rewritten tree
+     */
+    public Node<Token> rewrite(Node<Token> root, Object context) {
+        Run run = current.get();
+        if (run != null) { //Called from within a rule
+            return run.rewrite(root, null);
+        }
+        run = new Run(context);
+        current.set(run);
+        try {
+            return run.rewrite(root, null);
+        } finally {
+            current.remove();
+            record(run);
+        }
+    }
+
+    /**
+     * Applies the rules to the root of the given tree only, without rewriting its subtrees.
+     *
+     * @param node The root of the tree
+     * @return The root of the rewritten tree
+     */
+    public Node<Token> applyRules(Node<Token> node) {
+        Run run = current.get();
+        if (run != null) { //Called from within a rule
+            return run.settle(node, false);
+        }
+        run = new Run(null);
+        current.set(run);
+        try {
+            return run.settle(node, false);
+        } finally {
+            current.remove();
+            record(run);
+        }
+    }
+
+    /**
+     * Enables sharing the results of rewrites that are given a context.
+     *
+     * @param maxSize The maximum number of results kept, or 0 to stop sharing
+     */
+    public void shareResults(final int maxSize) {
+        LinkedHashMap<SharedKey, ExpressionNode> map = null;
+        if (maxSize > 0) {
+            map = new LinkedHashMap<SharedKey, ExpressionNode>(16, 0.75f, true) { //In order of access
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<SharedKey, ExpressionNode> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+        synchronized (this) {
+            shared = map;
+        }
+    }
+
+    /**
+     * Forgets all the shared results.
+     */
+    public synchronized void clearSharedResults() {
+        if (shared != null) {
+            shared.clear();
+        }
+    }
+
+    /**
+     * @param key The key of the subtree
+     * @return The shared result of the subtree, or null if there is none
+     */
+    private synchronized ExpressionNode getShared(SharedKey key) {
+        return shared == null ? null : shared.get(key);
+    }
+
+    /**
+     * @param key    The key of the subtree
+     * @param result The result of the subtree
+     */
+    private synchronized void putShared(SharedKey key, ExpressionNode result) {
+        if (shared != null) {
+            shared.put(key, result);
+        }
+    }
+
+    /**
+     * @param t The Token at the root of a subtree
+     * @return The rules that may apply to the subtree, in order
+     */
+    private Rule[] getRules(Token t) {
+        long key = ((long) categorize(t) << 32) | (t.getType() & 0xFFFFFFFFL);
+        Rule[] applicable = index.get(key);
+        if (applicable == null) {
+            ArrayList<Rule> list = new ArrayList<>();
+            for (Rule rule : rules) {
+                if (rule.appliesTo(t)) {
+                    list.add(rule);
+                }
+            }
+            applicable = list.toArray(new Rule[list.size()]);
+            index.put(key, applicable);
+        }
+        return applicable;
+    }
+
+    /**
+     * Adds the statistics of the given run to the profile.
+     *
+     * @param run The finished run
+     */
+    private synchronized void record(Run run) {
+        for (int i = 0; i < rules.length; i++) {
+            attempts[i] += run.attempts[i];
+            firings[i] += run.firings[i];
+            times[i] += run.times[i];
+        }
+        numRuns++;
+        numReused += run.numReused;
+        numShared += run.numShared;
+        if (run.firingsLeft <= 0) {
+            numCutoffs++;
+        }
+    }
+
+    /**
+     * @return A table of how many times each rule has been tried and fired, and the time spent on it
+     */
+    public synchronized String getProfile() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "%s: %d rewrites, %d stopped at the limit, %d subtrees reused (%d from other rewrites)%n",
+                name, numRuns, numCutoffs, numReused, numShared));
+        for (int i = 0; i < rules.length; i++) {
+            sb.append(String.format(Locale.US, "  %-28s tried %8d  fired %6d  %9.3f ms%n", rules[i].name, attempts[i], firings[i], times[i] / 1e6));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Clears the profile.
+     */
+    public synchronized void resetProfile() {
+        for (int i = 0; i < rules.length; i++) {
+            attempts[i] = 0;
+            firings[i] = 0;
+            times[i] = 0;
+        }
+        numRuns = 0;
+        numCutoffs = 0;
+        numReused = 0;
+        numShared = 0;
+    }
+
+    /**
+     * A single rule; it should return the node unchanged if it does not apply.
+     */
+    public abstract static class Rule {
+        private final String name;
+        private final Class<? extends Token> kind;
+        private final int[] types;
+        private int order; //Position of the rule within its engine
+
+        /**
+         * Creates a rule.
+         *
+         * @param name  The name of the rule, used in the profile
+         * @param kind  The class of Tokens this rule may apply to
+         * @param types The types of Tokens this rule may apply to, or none for any type
+         */
+        public Rule(String name, Class<? extends Token> kind, int... types) {
+            this.name = name;
+            this.kind = kind;
+            this.types = types;
+        }
+
+        /**
+         * Applies this rule to the given node.
+         *
+         * @param node The root of the subtree
+         * @return The new root of the subtree
+         */
+        public abstract Node<Token> apply(Node<Token> node);
+
+        /**
+         * @param t The Token at the root of a subtree
+         * @return If this rule may apply to the subtree
+         */
+        private boolean appliesTo(Token t) {
+            if (!kind.isInstance(t)) {
+                return false;
+            } else if (types.length == 0) {
+                return true;
+            }
+            for (int type : types) {
+                if (t.getType() == type) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The key of a shared result.
+     */
+    private static class SharedKey {
+        private final Object context;
+        private final ExpressionNode node;
+
+        private SharedKey(Object context, ExpressionNode node) {
+            this.context = context;
+            this.node = node;
+        }
+
+        @Override
+        public int hashCode() {
+            return context.hashCode() * 31 + node.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SharedKey)) {
+                return false;
+            }
+            SharedKey other = (SharedKey) o;
+            return node == other.node && context.equals(other.context);
+        }
+    }
+
+    /**
+     * The state of a single rewrite.
+     */
+    private class Run {
+        private final IdentityHashMap<Node<Token>, ExpressionNode> clean = new IdentityHashMap<>(); //Rewritten nodes, with their subtrees at the time
+        private final HashMap<ExpressionNode, ExpressionNode> results = new HashMap<>(); //Results of the subtrees rewritten so far
+        private final long[] attempts = new long[rules.length], firings = new long[rules.length], times = new long[rules.length];
+        private final Object context;
+        private int firingsLeft = maxFirings;
+        private int numReused = 0, numShared = 0;
+
+        /**
+         * @param context The outside state that the rules depend on, or null to not share results
+         */
+        private Run(Object context) {
+            this.context = context;
+        }
+
+        /**
+         * Rewrites the subtrees of the given node, and then the node itself, unless the same
+         * subtree has been rewritten before.
+         *
+         * @param node The root of the subtree
+         * @param key  The shared node of the subtree, or null if it has not been found yet
+         * @return The new root of the subtree
+         */
+        private Node<Token> rewrite(Node<Token> node, ExpressionNode key) {
+            if (node.getNumOfChildren() == 0) { //Leaves are left as they are
+                return node;
+            }
+            if (key == null) {
+                key = ExpressionNode.of(node);
+            }
+            if (clean.get(node) == key) { //Rewritten before, and not changed since
+                return node;
+            }
+            ExpressionNode known = getResult(key);
+            if (known != null) {
+                Node<Token> result = known.toNode();
+                clean.put(result, known);
+                return result;
+            }
+            rewriteChildren(node, key);
+            Node<Token> result = settle(node, true);
+            if (firingsLeft > 0) { //Results cut off at the limit are incomplete
+                ExpressionNode value = ExpressionNode.of(result);
+                results.put(key, value);
+                if (context != null) {
+                    putShared(new SharedKey(context, key), value);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * @param key The shared node of the subtree
+         * @return The result of rewriting the subtree before, or null if it has not been
+         */
+        private ExpressionNode getResult(ExpressionNode key) {
+            ExpressionNode result = results.get(key);
+            if (result == null && context != null) {
+                result = getShared(new SharedKey(context, key));
+                if (result != null) {
+                    results.put(key, result);
+                    numShared++;
+                }
+            }
+            if (result != null) {
+                numReused++;
+            }
+            return result;
+        }
+
+        /**
+         * Rewrites the subtrees of the given node in place.
+         *
+         * @param node The node
+         * @param key  The shared node of the subtree before its subtrees are rewritten, or null
+         */
+        private void rewriteChildren(Node<Token> node, ExpressionNode key) {
+            ArrayList<Node<Token>> children = new ArrayList<>(node.getChildren());
+            for (int i = 0; i < children.size(); i++) {
+                children.set(i, rewrite(children.get(i), key == null ? null : key.getChild(i)));
+            }
+            node.getChildren().clear();
+            node.addChildren(children);
+        }
+
+        /**
+         * Sweeps the rules over the given node until nothing changes.
+         *
+         * @param node      The root of the subtree
+         * @param recursive If subtrees created by the rules should be rewritten as well
+         * @return The new root of the subtree
+         */
+        private Node<Token> settle(Node<Token> node, boolean recursive) {
+            for (int step = 0; step < maxSteps; step++) {
+                Node<Token> result = sweep(node);
+                if (result == null) { //Fixed point
+                    break;
+                }
+                node = result;
+                if (recursive && step + 1 < maxSteps && !isClean(node)) { //Subtrees made by the rules
+                    rewriteChildren(node, null);
+                }
+            }
+            clean.put(node, ExpressionNode.of(node));
+            return node;
+        }
+
+        /**
+         * Applies each of the rules that can match the node once, in order.
+         *
+         * @param node The root of the subtree
+         * @return The new root of the subtree, or null if no rules changed it
+         */
+        private Node<Token> sweep(Node<Token> node) {
+            boolean changed = false;
+            Rule[] applicable = getRules(node.getContent());
+            ExpressionNode before = ExpressionNode.of(node); //Taken before the rule, which may change the subtree in place
+            int i = 0;
+            while (i < applicable.length && firingsLeft > 0) {
+                Rule rule = applicable[i++];
+                long changes = Node.getNumOfChanges();
+                long start = System.nanoTime();
+                Node<Token> result = rule.apply(node);
+                times[rule.order] += System.nanoTime() - start;
+                attempts[rule.order]++;
+                if (result == node && Node.getNumOfChanges() == changes) { //No new root, and no Node was changed in place
+                    continue;
+                }
+                ExpressionNode after = ExpressionNode.of(result);
+                if (after != before) { //Changed anywhere in the subtree
+                    before = after;
+                    firings[rule.order]++;
+                    firingsLeft--;
+                    changed = true;
+                    if (categorize(result.getContent()) != categorize(node.getContent()) || result.getContent().getType() != node.getContent().getType()) {
+                        //Continues with the rules after this one that match the new root
+                        applicable = getRules(result.getContent());
+                        i = 0;
+                        while (i < applicable.length && applicable[i].order <= rule.order) {
+                            i++;
+                        }
+                    }
+                }
+                node = result;
+            }
+            return changed ? node : null;
+        }
+
+        /**
+         * @param node The node
+         * @return If the node has been rewritten and has not been changed since, anywhere in its subtree
+         */
+        private boolean isClean(Node<Token> node) {
+            ExpressionNode snapshot = clean.get(node);
+            return snapshot != null && snapshot == ExpressionNode.of(node);
+        }
+    }
+}
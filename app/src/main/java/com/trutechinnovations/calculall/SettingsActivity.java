@@ -48,20 +48,24 @@ public class SettingsActivity extends AppCompatActivity {
     //Constants
     public static final int MIN_DIGITS = 5, MAX_DIGITS = 12;
     public static final Integer[] FONT_SIZES = {42, 48, 64, 72, 84, 96, 108, 120};
+    public static final int[] PRECISION_DIGITS = {PreciseEvaluator.OFF, 20, 30, 50, 100};
     public static final String TRUTECH_URL = "http://www.trutechinnovations.com", REPORT_URL = "http://www.trutechinnovations.com", UPGRADE_URL = "https://play.google.com/store/apps/details?id=com.trutechinnovations.calculallaf";
     //Default values
     public static final int DEFAULT_ROUND = 6;
     public static final int DEFAULT_FONT_SIZE = 96;
+    public static final int DEFAULT_PRECISION = PreciseEvaluator.OFF;
     public static final boolean DEFAULT_FEEDBACK = false;
     public static final boolean DEFAULT_SWIPE = false;
     public static final boolean AUTOCALCULATE_ON = false;
+    public static final boolean DEFAULT_EXACT_EIGEN = false;
     //Fields
     private int currentTheme  = -1;
     private PopupWindow popup;
     private SharedPreferences pref;
-    private boolean feedbackOn, swipeOnly, autocalculateOn;
+    private boolean feedbackOn, swipeOnly, autocalculateOn, exactEigenOn;
     private int roundTo;
     private int fontSize;
+    private int precision;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -71,8 +75,10 @@ public class SettingsActivity extends AppCompatActivity {
         currentTheme = pref.getInt(getString(R.string.theme), ThemeHelper.DEFAULT_THEME);
         feedbackOn = pref.getBoolean(getString(R.string.haptic), DEFAULT_FEEDBACK);
         autocalculateOn = pref.getBoolean(getString(R.string.autocalculate), AUTOCALCULATE_ON);
+        exactEigenOn = pref.getBoolean(getString(R.string.exact_eigen), DEFAULT_EXACT_EIGEN);
         roundTo = pref.getInt(getString(R.string.round_to), DEFAULT_ROUND);
         fontSize = pref.getInt(getString(R.string.font_size), DEFAULT_FONT_SIZE);
+        precision = pref.getInt(getString(R.string.precision), DEFAULT_PRECISION);
         swipeOnly = pref.getBoolean(getString(R.string.mode_switch), DEFAULT_SWIPE);
         currentTheme = ThemeHelper.setUpTheme(this,true);
         setContentView(R.layout.settings);
@@ -81,6 +87,7 @@ public class SettingsActivity extends AppCompatActivity {
         getSupportActionBar().setDisplayShowHomeEnabled(true);
         setupDecimalSpinner();
         setupFontSpinner();
+        setupPrecisionSpinner();
         setupSwitches();
     }
 
@@ -165,6 +172,39 @@ public class SettingsActivity extends AppCompatActivity {
         spinner.setSelection(Arrays.binarySearch(FONT_SIZES, fontSize));
     }
 
+    /**
+     * Sets up the spinner for the number of digits of the high precision mode.
+     */
+    public void setupPrecisionSpinner() {
+        AppCompatSpinner spinner = (AppCompatSpinner) findViewById(R.id.precision_spinner);
+        List<String> list = new ArrayList<>();
+        int selected = 0;
+        for (int i = 0; i < PRECISION_DIGITS.length; i++) {
+            list.add(PRECISION_DIGITS[i] == PreciseEvaluator.OFF ? "Off" : PRECISION_DIGITS[i] + " digits");
+            if (PRECISION_DIGITS[i] == precision) {
+                selected = i;
+            }
+        }
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, R.layout.spinner_item, list);
+        spinner.setAdapter(adapter);
+        spinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                ((TextView) parent.getChildAt(0)).setTextColor(Color.WHITE);
+                precision = PRECISION_DIGITS[position];
+                SharedPreferences.Editor editor = pref.edit();
+                editor.putInt(getString(R.string.precision), precision);
+                editor.apply();
+                PreciseEvaluator.getInstance().setDigits(precision);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+        spinner.setSelection(selected);
+    }
+
     /**
      * Sets up the switches.
      */
@@ -175,6 +215,7 @@ public class SettingsActivity extends AppCompatActivity {
 
         CheckBox haptic = (CheckBox) findViewById(R.id.haptic_switch);
         CheckBox autocalculate = (CheckBox) findViewById(R.id.autocalculate_switch);
+        CheckBox exactEigen = (CheckBox) findViewById(R.id.exact_eigen_switch);
 
         haptic.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
             /**
@@ -211,6 +252,25 @@ public class SettingsActivity extends AppCompatActivity {
         });
 
         autocalculate.setChecked(autocalculateOn);
+
+        exactEigen.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            /**
+             * When the check has been changed.
+             *
+             * @param buttonView Not Used
+             * @param isChecked  If it is now checked
+             */
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                exactEigenOn = isChecked;
+                MatrixUtils.exactEigenvectors = isChecked;
+                SharedPreferences.Editor editor = pref.edit();
+                editor.putBoolean(getString(R.string.exact_eigen), isChecked);
+                editor.apply();
+            }
+        });
+
+        exactEigen.setChecked(exactEigenOn);
     }
 
     /**
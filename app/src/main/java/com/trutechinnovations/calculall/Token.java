@@ -2,19 +2,27 @@ package com.trutechinnovations.calculall;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Represents a digit, operation, brackets, or a function on the calculator screen; cannot be used by itself
  * (must use a subclass of this).
+ * <p>
+ * Tokens made by the factories are new each time, so that they can be edited on the screen. The
+ * factories also have shared Tokens (see getShared() in each factory), which can be used any number
+ * of times in expressions that are never edited (ex. results); these cannot have dependencies.
  *
  * @author Alston Lin
  * @version 3.0
  */
 public abstract class Token implements Serializable {
 
+    private static final long serialVersionUID = 8656407008170778259L; //The same as before it was set, so old history can still be read
     protected int type;
-    private ArrayList<Token> dependencies = new ArrayList<Token>(); //Tokens that are dependent with this token
+    private ArrayList<Token> dependencies; //Tokens that are dependent with this token; only created when one is added
     private String symbol;
+    private transient boolean shared; //If this is a shared Token; copies made by deserialization are not
 
     /**
      * Creates a new Token to be shown on the calculator screen.
@@ -25,6 +33,18 @@ public abstract class Token implements Serializable {
         this.symbol = symbol;
     }
 
+    /**
+     * Marks the given Token as shared; should only be used by the factories.
+     *
+     * @param token The new Token to share
+     * @param <T>   The type of Token
+     * @return The Token
+     */
+    static <T extends Token> T share(T token) {
+        ((Token) token).shared = true;
+        return token;
+    }
+
     /**
      * @return The symbol for this Token to be shown on the display
      */
@@ -36,20 +56,40 @@ public abstract class Token implements Serializable {
      * Adds a dependent token to the list; if this token is removed so would the dependencies.
      *
      * @param t The token that is dependent on this one
+     * @throws UnsupportedOperationException If this is a shared Token
      */
     public void addDependency(Token t) {
+        if (shared) {
+            throw new UnsupportedOperationException("Shared Tokens cannot have dependencies");
+        }
+        if (dependencies == null) {
+            dependencies = new ArrayList<>(2);
+        }
         dependencies.add(t);
     }
 
     /**
      * @return The Tokens that are dependent on this one
      */
-    public ArrayList<Token> getDependencies() {
-        return dependencies;
+    public List<Token> getDependencies() {
+        return dependencies == null ? Collections.<Token>emptyList() : dependencies;
+    }
+
+    /**
+     * Removes all the dependencies of this Token.
+     */
+    public void clearDependencies() {
+        dependencies = null;
+    }
+
+    /**
+     * @return If this is a shared Token, which may appear any number of times in any expression
+     */
+    public boolean isShared() {
+        return shared;
     }
 
     public int getType() {
         return type;
     }
 }
-
@@ -296,14 +296,18 @@ public class Utility {
                     atDigits = false;
                     Number num = new Number(Utility.valueOf(digits));
                     digits.clear();
-                    //Special case of //-1 * Variable
+                    //Special case of //-1 * Variable; the sign is set on a copy, as the Variable may still be in the editor
                     if (num.getValue() == -1 && token instanceof Variable) {
-                        ((Variable) token).setNegative(true);
+                        Variable negative = ((Variable) token).copy();
+                        negative.setNegative(true);
+                        token = negative;
                     } else if (num.getValue() == 1 && token instanceof Variable) { // 1 * Variable
-                        ((Variable) token).setNegative(false);
+                        Variable positive = ((Variable) token).copy();
+                        positive.setNegative(false);
+                        token = positive;
                     } else if (num.getValue() < 0) { //Negative number; changes to -1 * Number
                         newTokens.add(new Number(-1));
-                        newTokens.add(OperatorFactory.makeMultiply());
+                        newTokens.add(OperatorFactory.getShared(Operator.MULTIPLY));
                         newTokens.add(new Number(num.getValue() * -1));
                     } else {
                         newTokens.add(num); //Adds the sum of all the digits
@@ -347,34 +351,34 @@ public class Utility {
                 Bracket b = (Bracket) t;
                 if (b.getType() == Bracket.OPEN && last instanceof Bracket && (last.getType() == Bracket.CLOSE
                         || last.getType() == Bracket.SUPERSCRIPT_CLOSE || last.getType() == Bracket.DENOM_CLOSE)) { //Ex. (2 + 1)(3 + 4), (2)/(5)(x + 1) or x^(2)(x+1)
-                    newExpression.add(OperatorFactory.makeMultiply()); //Implies multiplication between the two expressions in the brackets
+                    newExpression.add(OperatorFactory.getShared(Operator.MULTIPLY)); //Implies multiplication between the two expressions in the brackets
                 } else if ((last instanceof Number || last instanceof Variable) && (b.getType() == Bracket.OPEN || b.getType() == Bracket.FRACTION_OPEN)) { //Ex. 3(2 + 1) or X(1+X) or 2(1/2)
-                    newExpression.add(OperatorFactory.makeMultiply());
+                    newExpression.add(OperatorFactory.getShared(Operator.MULTIPLY));
                 } else if (last instanceof Operator && last.getType() == Operator.SUBTRACT && beforeLastIsOperator) { //Ex. E + -(X + 1) -> E + -1 * (X + 1)
-                    newExpression.remove(last);
+                    newExpression.remove(newExpression.size() - 1); //By index, as shared Tokens may appear earlier too
                     newExpression.add(new Number(-1));
-                    newExpression.add(OperatorFactory.makeMultiply());
+                    newExpression.add(OperatorFactory.getShared(Operator.MULTIPLY));
                 }
             } else if (t instanceof Number || t instanceof Variable || t instanceof Function) { //So it works with Function mode too
                 if (last instanceof Number) { //Ex. 5A , 5f(x)
-                    newExpression.add(OperatorFactory.makeMultiply());
+                    newExpression.add(OperatorFactory.getShared(Operator.MULTIPLY));
                 } else if (last instanceof Bracket && (last.getType() == Bracket.CLOSE
                         || last.getType() == Bracket.SUPERSCRIPT_CLOSE || last.getType() == Bracket.DENOM_CLOSE)) { //Ex. x^2(x + 1) or 2/5x
-                    newExpression.add(OperatorFactory.makeMultiply());
+                    newExpression.add(OperatorFactory.getShared(Operator.MULTIPLY));
                 } else if (lastIsSubtract && (beforeLastIsOperator || beforeLastIsOpenBracket || newExpression.size() <= 1)) { //Ex. E * -X -> E * -1 * X
-                    newExpression.remove(last);
+                    newExpression.remove(newExpression.size() - 1);
                     if (t instanceof Number) {
                         negative = true;
                     } else {
                         newExpression.add(new Number(-1));
-                        newExpression.add(OperatorFactory.makeMultiply());
+                        newExpression.add(OperatorFactory.getShared(Operator.MULTIPLY));
                     }
                 } else if (t instanceof Function && (last instanceof Function || last instanceof Variable)) { //Ex. f(x)g(x) or (1 + 2)f(x) or xf(x)
-                    newExpression.add(OperatorFactory.makeMultiply());
+                    newExpression.add(OperatorFactory.getShared(Operator.MULTIPLY));
                 }
 
                 if (t instanceof Variable && last instanceof Variable) { //Ex. pi x
-                    newExpression.add(OperatorFactory.makeMultiply());
+                    newExpression.add(OperatorFactory.getShared(Operator.MULTIPLY));
                 }
             }
             if (negative) {
@@ -397,7 +401,7 @@ public class Utility {
         for (Token t : toSetup){
             Token last = newExpression.isEmpty() ? null : newExpression.get(newExpression.size() - 1); //Last token in the new expression
             if (t instanceof Variable && last instanceof Variable){
-                newExpression.add(OperatorFactory.makeMultiply());
+                newExpression.add(OperatorFactory.getShared(Operator.MULTIPLY));
             }
             newExpression.add(t);
         }
@@ -490,7 +494,7 @@ public class Utility {
 
     public static ArrayList<Token> convertDoublesToVector(double[] vector) {
         ArrayList<Token> newVector = new ArrayList<>();
-        newVector.add(BracketFactory.makeOpenSquareBracket());
+        newVector.add(BracketFactory.getShared(Bracket.SQUAREOPEN));
         newVector.add(new Number(vector[0]));
         newVector.add(new Token(",") {
         });
@@ -501,7 +505,7 @@ public class Utility {
             });
             newVector.add(new Number(vector[2]));
         }
-        newVector.add(BracketFactory.makeCloseSquareBracket());
+        newVector.add(BracketFactory.getShared(Bracket.SQUARECLOSED));
         return newVector;
     }
 
@@ -560,11 +564,11 @@ public class Utility {
             Token last = newExpression.size() > 0 ? newExpression.get(newExpression.size() - 1) : null;
             //Token beforeLast = newExpression.size() > 1 ? newExpression.get(newExpression.size() - 2) : null;
             if (t instanceof Variable && last != null && last instanceof Operator && last.getType() == Operator.MULTIPLY) { // E * V -> EV
-                newExpression.remove(last);
+                newExpression.remove(newExpression.size() - 1);
             } else if (t instanceof Bracket && t.getType() == Bracket.OPEN && last instanceof Operator && last.getType() == Operator.MULTIPLY) { //E * (E) -> E(E)
-                newExpression.remove(last);
+                newExpression.remove(newExpression.size() - 1);
             } else if (t instanceof Function && last instanceof Operator && last.getType() == Operator.MULTIPLY) { //E * F -> EF
-                newExpression.remove(last);
+                newExpression.remove(newExpression.size() - 1);
             }
             newExpression.add(t);
         }
@@ -593,32 +597,22 @@ public class Utility {
     }
 
     /**
-     * Finds the value of the function at the given x value.
+     * Finds the value of the function at the given x value. The function is compiled on every call,
+     * so anything that evaluates the same function many times should compile it once with
+     * CompiledExpression.compile() instead.
      *
      * @param function The function to evaluate
      * @param x        The x value to find the function at
-     * @return The y value, or -1 if non-existant
+     * @return The y value, or Integer.MAX_VALUE if non-existant
      */
     public static double valueAt(ArrayList<Token> function, double x) {
-        ArrayList<Token> expression = new ArrayList<>();
-        //Substitutes all variables with the given x value
-        for (Token token : function) {
-            if (token instanceof Variable && token.getType() == Variable.X) {
-                expression.add(((Variable) token).isNegative() ? new Number(-x) : new Number(x));
-            } else if (token instanceof Variable) {
-                ArrayList<Token> value = ((Variable) token).getValue();
-                double result = Utility.process(value);
-                expression.add(new Number(result));
-            } else {
-                expression.add(token);
-            }
-        }
+        CompiledExpression expression;
         try {
-            double y = Utility.evaluateExpression(Utility.convertToReversePolish(expression));
-            return y;
-        } catch (Exception e) {
+            expression = CompiledExpression.compile(function);
+        } catch (RuntimeException e) { //Malformed expression
             return Integer.MAX_VALUE;
         }
+        return expression.valueAt(x);
     }
 
     /**
@@ -837,17 +831,14 @@ public class Utility {
      *
      * @param n The base of the factorial
      * @return The value of the factorial
+     * @see Combinatorics#factorial(double)
      */
     public static double factorial(int n) throws NumberTooLargeException {
-        if (n == 1 || n == 0) {
-            return 1;
-        } else {
-            double result = n * factorial(n - 1);
-            if (Double.isInfinite(result)) {
-                throw new NumberTooLargeException();
-            }
-            return result;
+        double result = Combinatorics.factorial(n);
+        if (Double.isInfinite(result)) {
+            throw new NumberTooLargeException();
         }
+        return result;
     }
 
     /**
@@ -885,7 +876,7 @@ public class Utility {
         }
         //Adds missing brackets
         for (int i = bracketCount; i > 0; i--) {
-            newExpression.add(BracketFactory.makeCloseBracket());
+            newExpression.add(BracketFactory.getShared(Bracket.CLOSE));
         }
         return newExpression;
     }
@@ -897,10 +888,10 @@ public class Utility {
      * @param tokens The expression to process
      * @return The numerical value of the expression
      * @throws IllegalArgumentException If the user has input a invalid expression
+     * @see ReversePolishParser
      */
     public static double process(ArrayList<Token> tokens) {
-        tokens = setupExpression(subVariables(condenseDigits(addMissingBrackets(tokens))));
-        return evaluateExpression(convertToReversePolish(tokens));
+        return evaluateExpression(ReversePolishParser.parse(tokens));
     }
 
     /**
@@ -913,7 +904,6 @@ public class Utility {
         ArrayList<Token> newTokens = new ArrayList<>();
         for (Token token : tokens) {
             if (token instanceof Variable && token.getType() != Variable.S && token.getType() != Variable.T) {
-                int index = tokens.indexOf(token);
                 Variable v = (Variable) token;
                 ArrayList<Token> val = v.getValue();
                 val = condenseDigits(val);
@@ -958,26 +948,18 @@ public class Utility {
      * @return The gcd
      */
     public static int gcd(int[] values) {
-        //Finds min value
-        int min = Integer.MAX_VALUE;
+        int gcd = 0;
         for (int value : values) {
-            value = Math.abs(value);
-            if (value < min && value != 0) {
-                min = value;
-            }
-        }
-        boolean finished = false;
-        int i = min;
-        while (!finished && i > 0) {
-            finished = true;
-            for (int value : values) {
-                if (value % i != 0) {
-                    finished = false;
-                }
+            //Euclid's algorithm
+            int a = gcd, b = Math.abs(value);
+            while (b != 0) {
+                int r = a % b;
+                a = b;
+                b = r;
             }
-            i--;
+            gcd = a;
         }
-        return i + 1;
+        return gcd == 0 ? 1 : gcd;
     }
 
     /**
@@ -991,7 +973,6 @@ public class Utility {
         ArrayList<Token> newTokens = new ArrayList<>();
         for (Token token : tokens) {
             if (token instanceof Variable && ((token.getType() != Variable.PI && token.getType() != Variable.E && token.getType() != Variable.CONSTANT) || constants)) {
-                int index = tokens.indexOf(token);
                 Variable v = (Variable) token;
                 ArrayList<Token> val = v.getValue();
                 val = condenseDigits(val);
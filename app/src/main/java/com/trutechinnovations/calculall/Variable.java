@@ -10,12 +10,13 @@ import java.util.ArrayList;
  * @author Alston Lin
  * @version 3.0
  */
-public abstract class Variable extends Token implements Serializable {
+public abstract class Variable extends Token implements Serializable, Cloneable {
 
     public static final int A = 1, B = 2, C = 3, X = 4, PI = 5, E = 6, ANS = 7,
             CONSTANT = 8, MATRIX_A = 9, MATRIX_B = 10, MATRIX_C = 11, U = 12,
             V = 13, S = 14, T = 15, Y = 16;
     public static final double PI_VALUE = Math.PI, E_VALUE = Math.E;
+    private static final long serialVersionUID = 1480926034052734105L; //The same as before it was set, so old history can still be read
     public boolean negative = false;
 
     /**
@@ -41,6 +42,17 @@ public abstract class Variable extends Token implements Serializable {
         this.negative = negative;
     }
 
+    /**
+     * @return A copy of this Variable, whose sign can be changed without changing this one
+     */
+    public Variable copy() {
+        try {
+            return (Variable) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e); //Variables are Cloneable
+        }
+    }
+
     public String getSymbol() {
         String symbol = "";
         if (negative) {